@@ -0,0 +1,314 @@
+package blockrpg;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary space partition of static faces. Every node splits space along the
+ * plane of one face, and faces that cross it are cut in two, so walking the
+ * tree from where the eye is gives an exact back to front order without ever
+ * comparing two faces. Moving faces are dropped into the region of the tree
+ * their center is in and painted when that region is reached
+ */
+public class BSPTree implements VisibilityEngine {
+
+	// Faces tried as the splitter of each node, the one cutting the fewest wins
+	public static final int SPLITTER_SAMPLES = 8;
+
+	private static final int FRONT = 1;
+	private static final int BACK = 2;
+	private static final int SPANNING = FRONT | BACK;
+	private static final int COPLANAR = 0;
+
+	/**
+	 * Splitting plane with the faces lying in it
+	 */
+	private static class Node {
+
+		private Plane plane;
+		private final List<Face> faces = new ArrayList<Face>();
+		private Node front;
+		private Node back;
+	}
+
+	/**
+	 * Moving faces that fell into the empty sides of a node
+	 */
+	private static class Bucket {
+
+		private final List<Face> front = new ArrayList<Face>();
+		private final List<Face> back = new ArrayList<Face>();
+
+		/**
+		 *
+		 * @param side 0 for front side, 1 for back
+		 * @return Returns faces on that side
+		 */
+		List<Face> get(int side) {
+			return side == 0 ? front : back;
+		}
+	}
+
+	private Node root;
+	private List<Face> staticFaces;
+	private final FaceSorter sorter;
+
+	/**
+	 * Default constructor for BSPTree
+	 */
+	public BSPTree() {
+		this.staticFaces = new ArrayList<Face>();
+		this.sorter = new FaceSorter();
+	}
+
+	/**
+	 * Custom constructor for BSPTree
+	 *
+	 * @param faces Static faces to build tree from
+	 */
+	public BSPTree(List<Face> faces) {
+		this();
+		setStaticFaces(faces);
+	}
+
+	@Override
+	public void setStaticFaces(List<Face> faces) {
+		this.staticFaces = new ArrayList<Face>();
+		this.root = build(faces);
+	}
+
+	@Override
+	public List<Face> getStaticFaces() {
+		return staticFaces;
+	}
+
+	/**
+	 * The tree only depends on where the faces are, and a view just picks which
+	 * side of each plane is walked first
+	 */
+	@Override
+	public boolean isViewIndependent() {
+		return true;
+	}
+
+	/**
+	 * Builds the tree without recursing, so long chains of parallel planes can
+	 * not overflow the stack
+	 *
+	 * @param faces Faces to build from
+	 * @return Returns root of tree, null if there are no faces
+	 */
+	private Node build(List<Face> faces) {
+		if (faces.isEmpty()) {
+			return null;
+		}
+
+		Node top = new Node();
+		ArrayDeque<Node> nodes = new ArrayDeque<Node>();
+		ArrayDeque<List<Face>> lists = new ArrayDeque<List<Face>>();
+		nodes.push(top);
+		lists.push(faces);
+
+		while (!nodes.isEmpty()) {
+			Node node = nodes.pop();
+			List<Face> list = lists.pop();
+
+			Face splitter = chooseSplitter(list);
+			node.plane = splitter.getPlane().clone();
+
+			List<Face> front = new ArrayList<Face>();
+			List<Face> back = new ArrayList<Face>();
+			for (Face face : list) {
+				int side = face == splitter ? COPLANAR : classify(face, node.plane);
+				if (side == COPLANAR) {
+					node.faces.add(face);
+					staticFaces.add(face);
+				} else if (side == FRONT) {
+					front.add(face);
+				} else if (side == BACK) {
+					back.add(face);
+				} else {
+					Face[] pieces = face.split(node.plane);
+					if (pieces[0] != null) {
+						front.add(pieces[0]);
+					}
+					if (pieces[1] != null) {
+						back.add(pieces[1]);
+					}
+				}
+			}
+
+			if (!front.isEmpty()) {
+				node.front = new Node();
+				nodes.push(node.front);
+				lists.push(front);
+			}
+			if (!back.isEmpty()) {
+				node.back = new Node();
+				nodes.push(node.back);
+				lists.push(back);
+			}
+		}
+
+		return top;
+	}
+
+	/**
+	 * Tries a few evenly spaced faces as the splitter and keeps the one that
+	 * cuts the fewest others
+	 *
+	 * @param faces Faces of node
+	 * @return Returns face whose plane splits node
+	 */
+	private static Face chooseSplitter(List<Face> faces) {
+		if (faces.size() <= 2) {
+			return faces.get(0);
+		}
+
+		Face best = faces.get(0);
+		int bestCuts = Integer.MAX_VALUE;
+		int step = Math.max(1, faces.size() / SPLITTER_SAMPLES);
+		for (int i = 0; i < faces.size() && bestCuts > 0; i += step) {
+			Face candidate = faces.get(i);
+			Plane plane = candidate.getPlane();
+			int cuts = 0;
+			for (int j = 0; j < faces.size() && cuts < bestCuts; j++) {
+				if (classify(faces.get(j), plane) == SPANNING) {
+					cuts++;
+				}
+			}
+			if (cuts < bestCuts) {
+				best = candidate;
+				bestCuts = cuts;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 *
+	 * @param face  Face to check
+	 * @param plane Plane to check against
+	 * @return Returns which side of plane the points of face are on
+	 */
+	private static int classify(Face face, Plane plane) {
+		Vector3D norm = plane.getNorm();
+		Position3D origin = plane.getPos();
+		int side = COPLANAR;
+		for (Position3D point : face.getTruePoints()) {
+			double dis = norm.dot(point.subtract(origin));
+			if (dis > Coord3D.ERROR) {
+				side |= FRONT;
+			} else if (dis < -Coord3D.ERROR) {
+				side |= BACK;
+			}
+		}
+		return side;
+	}
+
+	/**
+	 *
+	 * @param plane Plane to check against
+	 * @param point Point to check
+	 * @return Returns signed distance of point in front of plane
+	 */
+	private static double distance(Plane plane, Position3D point) {
+		return plane.getNorm().dot(point.subtract(plane.getPos()));
+	}
+
+	/**
+	 * Orders only the static faces
+	 *
+	 * @param pov Perspective faces are seen from
+	 * @return Returns static faces in back to front order
+	 */
+	public ArrayList<Face> order(Perspective pov) {
+		return order(new ArrayList<Face>(), pov);
+	}
+
+	@Override
+	public ArrayList<Face> order(List<Face> faces, Perspective pov) {
+		ArrayList<Face> ordered = new ArrayList<Face>(staticFaces.size() + faces.size());
+		if (root == null) {
+			ordered.addAll(sorter.sort(faces));
+			return ordered;
+		}
+
+		// Each moving face falls down the tree by its center into the empty side of
+		// a node
+		Map<Node, Bucket> buckets = new IdentityHashMap<Node, Bucket>();
+		for (Face face : faces) {
+			Node node = root;
+			while (true) {
+				boolean front = distance(node.plane, face.getCenter3D()) >= 0;
+				Node next = front ? node.front : node.back;
+				if (next == null) {
+					Bucket bucket = buckets.get(node);
+					if (bucket == null) {
+						bucket = new Bucket();
+						buckets.put(node, bucket);
+					}
+					bucket.get(front ? 0 : 1).add(face);
+					break;
+				}
+				node = next;
+			}
+		}
+
+		Position3D eye = pov.getPos();
+		ArrayDeque<Node> nodes = new ArrayDeque<Node>();
+		ArrayDeque<Integer> steps = new ArrayDeque<Integer>();
+		nodes.push(root);
+		steps.push(-1);
+
+		// Step -1 expands a node, 0 and 1 paint its front or back side when it has
+		// no child there, and 2 paints the faces in its plane
+		while (!nodes.isEmpty()) {
+			Node node = nodes.pop();
+			int step = steps.pop();
+
+			if (step == 2) {
+				ordered.addAll(node.faces);
+				continue;
+			}
+			if (step >= 0) {
+				Bucket bucket = buckets.get(node);
+				if (bucket != null && !bucket.get(step).isEmpty()) {
+					ordered.addAll(sorter.sort(bucket.get(step)));
+				}
+				continue;
+			}
+
+			// The side the eye is on is painted last, so it is pushed first
+			boolean eyeInFront = distance(node.plane, eye) >= 0;
+			push(nodes, steps, node, eyeInFront ? node.front : node.back, eyeInFront ? 0 : 1);
+			nodes.push(node);
+			steps.push(2);
+			push(nodes, steps, node, eyeInFront ? node.back : node.front, eyeInFront ? 1 : 0);
+		}
+
+		return ordered;
+	}
+
+	/**
+	 * Pushes a child to expand, or the bucket of moving faces in its place
+	 *
+	 * @param nodes  Stack of nodes
+	 * @param steps  Stack of steps
+	 * @param parent Node child belongs to
+	 * @param child  Child to push, may be null
+	 * @param side   0 for front side of parent, 1 for back
+	 */
+	private static void push(ArrayDeque<Node> nodes, ArrayDeque<Integer> steps, Node parent, Node child, int side) {
+		if (child != null) {
+			nodes.push(child);
+			steps.push(-1);
+		} else {
+			nodes.push(parent);
+			steps.push(side);
+		}
+	}
+}
@@ -0,0 +1,643 @@
+package blockrpg;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dynamic bounding volume hierarchy of faces. Every face sits in a leaf whose
+ * box is a little larger than the face, so small moves only need the box
+ * checked rather than the tree changed, and faces that leave their box are
+ * taken out and put back where they grow the tree least. Nodes are rotated as
+ * they are refitted to keep the tree balanced, so frustum, box and ray queries
+ * walk O(log n) nodes instead of every face
+ */
+public class BVH {
+
+	// Share of a face's largest side its leaf box is grown by on every side
+	public static final double MARGIN = 0.1;
+
+	/**
+	 * Box with either a face or two children
+	 */
+	private static class Node {
+
+		private final double[] box = new double[6];
+		private Node parent;
+		private Node left;
+		private Node right;
+		private Face face;
+		private long version;
+		private int height;
+
+		boolean isLeaf() {
+			return left == null;
+		}
+	}
+
+	private Node root;
+	private final Map<Face, Node> leaves;
+
+	/**
+	 * Default constructor for BVH
+	 */
+	public BVH() {
+		this.leaves = new IdentityHashMap<Face, Node>();
+	}
+
+	/**
+	 * Custom constructor for BVH
+	 *
+	 * @param faces Faces to add
+	 */
+	public BVH(List<Face> faces) {
+		this();
+		for (Face face : faces) {
+			insert(face);
+		}
+	}
+
+	/**
+	 *
+	 * @return Returns number of faces in tree
+	 */
+	public int size() {
+		return leaves.size();
+	}
+
+	/**
+	 *
+	 * @return Returns number of levels below the root, 0 for a single leaf or
+	 *         empty tree
+	 */
+	public int getHeight() {
+		return root == null ? 0 : root.height;
+	}
+
+	/**
+	 *
+	 * @param face Face to check
+	 * @return Returns true if face is in tree
+	 */
+	public boolean contains(Face face) {
+		return leaves.containsKey(face);
+	}
+
+	/**
+	 * Adds a face, doing nothing if it is already in the tree
+	 *
+	 * @param face Face to add
+	 */
+	public void insert(Face face) {
+		if (leaves.containsKey(face)) {
+			return;
+		}
+		Node leaf = new Node();
+		leaf.face = face;
+		fatten(leaf);
+		leaves.put(face, leaf);
+		insertLeaf(leaf);
+	}
+
+	/**
+	 * Takes a face out of the tree
+	 *
+	 * @param face Face to remove
+	 * @return Returns true if face was in tree
+	 */
+	public boolean remove(Face face) {
+		Node leaf = leaves.remove(face);
+		if (leaf == null) {
+			return false;
+		}
+		removeLeaf(leaf);
+		return true;
+	}
+
+	/**
+	 * Makes the tree hold exactly the given faces. Faces already in it keep their
+	 * leaves, so a list that mostly matches the tree only costs the difference
+	 *
+	 * @param faces Faces the tree should hold
+	 * @return Returns number of faces added or removed
+	 */
+	public int sync(List<Face> faces) {
+		Set<Face> keep = Collections.newSetFromMap(new IdentityHashMap<Face, Boolean>());
+		keep.addAll(faces);
+
+		int changed = 0;
+		for (Face face : new ArrayList<Face>(leaves.keySet())) {
+			if (!keep.contains(face)) {
+				remove(face);
+				changed++;
+			}
+		}
+		for (Face face : keep) {
+			if (!leaves.containsKey(face)) {
+				insert(face);
+				changed++;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Moves a face to a new leaf if it has left its box
+	 *
+	 * @param face Face that moved
+	 * @return Returns true if tree changed
+	 */
+	public boolean update(Face face) {
+		Node leaf = leaves.get(face);
+		if (leaf == null) {
+			return false;
+		}
+		leaf.version = face.getVersion();
+
+		double[] tight = bounds(face);
+		if (encloses(leaf.box, tight)) {
+			return false;
+		}
+		removeLeaf(leaf);
+		fatten(leaf);
+		insertLeaf(leaf);
+		return true;
+	}
+
+	/**
+	 * Updates every face whose points were set since it was last placed
+	 *
+	 * @return Returns number of faces moved to new leaves
+	 */
+	public int refit() {
+		int moved = 0;
+		for (Node leaf : new ArrayList<Node>(leaves.values())) {
+			if (leaf.version != leaf.face.getVersion() && update(leaf.face)) {
+				moved++;
+			}
+		}
+		return moved;
+	}
+
+	/**
+	 * Finds faces whose boxes may be inside a frustum
+	 *
+	 * @param frustum Frustum to check against
+	 * @return Returns faces that may be seen
+	 */
+	public ArrayList<Face> query(Frustum frustum) {
+		ArrayList<Face> found = new ArrayList<Face>();
+		if (root == null) {
+			return found;
+		}
+
+		ArrayDeque<Node> stack = new ArrayDeque<Node>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			Node node = stack.pop();
+			double[] b = node.box;
+			if (!frustum.intersectsBox(b[0], b[1], b[2], b[3], b[4], b[5])) {
+				continue;
+			}
+			if (node.isLeaf()) {
+				found.add(node.face);
+			} else {
+				stack.push(node.left);
+				stack.push(node.right);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Finds faces whose boxes overlap a box, for collision checks
+	 *
+	 * @param minX Lowest x of box
+	 * @param minY Lowest y of box
+	 * @param minZ Lowest z of box
+	 * @param maxX Highest x of box
+	 * @param maxY Highest y of box
+	 * @param maxZ Highest z of box
+	 * @return Returns faces that may touch box
+	 */
+	public ArrayList<Face> query(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		double[] box = { minX, minY, minZ, maxX, maxY, maxZ };
+		ArrayList<Face> found = new ArrayList<Face>();
+		if (root == null) {
+			return found;
+		}
+
+		ArrayDeque<Node> stack = new ArrayDeque<Node>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			Node node = stack.pop();
+			if (!overlaps(node.box, box)) {
+				continue;
+			}
+			if (node.isLeaf()) {
+				// Leaf boxes are padded, so the face itself is checked too
+				if (overlaps(bounds(node.face), box)) {
+					found.add(node.face);
+				}
+			} else {
+				stack.push(node.left);
+				stack.push(node.right);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Finds the nearest face a ray passes through. Nodes are skipped once the
+	 * ray enters them further away than the nearest hit so far
+	 *
+	 * @param origin      Start of ray
+	 * @param dir         Direction of ray
+	 * @param maxDistance Furthest distance to look
+	 * @return Returns nearest face hit, null if none was
+	 */
+	public Face raycast(Position3D origin, Vector3D dir, double maxDistance) {
+		double len = Math.sqrt(dir.getX() * dir.getX() + dir.getY() * dir.getY() + dir.getZ() * dir.getZ());
+		if (root == null || len < Coord3D.ERROR) {
+			return null;
+		}
+
+		double[] o = origin.getCoord();
+		double[] d = { dir.getX() / len, dir.getY() / len, dir.getZ() / len };
+		Face nearest = null;
+		double nearestT = maxDistance;
+
+		ArrayDeque<Node> stack = new ArrayDeque<Node>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			Node node = stack.pop();
+			if (entry(node.box, o, d) > nearestT) {
+				continue;
+			}
+			if (node.isLeaf()) {
+				double t = hit(node.face, o, d);
+				if (t >= 0 && t <= nearestT) {
+					nearestT = t;
+					nearest = node.face;
+				}
+			} else {
+				stack.push(node.left);
+				stack.push(node.right);
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 *
+	 * @param face   Face to test
+	 * @param origin Start of ray
+	 * @param dir    Direction of ray
+	 * @return Returns distance along ray to where it passes through face, -1 if it
+	 *         misses
+	 */
+	static double hitDistance(Face face, Position3D origin, Vector3D dir) {
+		double len = Math.sqrt(dir.getX() * dir.getX() + dir.getY() * dir.getY() + dir.getZ() * dir.getZ());
+		if (len < Coord3D.ERROR) {
+			return -1;
+		}
+		double[] d = { dir.getX() / len, dir.getY() / len, dir.getZ() / len };
+		return hit(face, origin.getCoord(), d);
+	}
+
+	/**
+	 * Finds where a leaf grows the tree least and hangs it there
+	 *
+	 * @param leaf Leaf to add
+	 */
+	private void insertLeaf(Node leaf) {
+		if (root == null) {
+			root = leaf;
+			leaf.parent = null;
+			return;
+		}
+
+		// Walk down while the cost of pairing with a child is below pairing here
+		double[] box = leaf.box;
+		Node sibling = root;
+		while (!sibling.isLeaf()) {
+			double area = area(sibling.box);
+			double combined = area(union(sibling.box, box));
+			double cost = 2 * combined;
+			double inherit = 2 * (combined - area);
+
+			double leftCost = descendCost(sibling.left, box) + inherit;
+			double rightCost = descendCost(sibling.right, box) + inherit;
+			if (cost < leftCost && cost < rightCost) {
+				break;
+			}
+			sibling = leftCost < rightCost ? sibling.left : sibling.right;
+		}
+
+		Node oldParent = sibling.parent;
+		Node parent = new Node();
+		parent.parent = oldParent;
+		setBox(parent.box, union(sibling.box, box));
+		parent.height = sibling.height + 1;
+		parent.left = sibling;
+		parent.right = leaf;
+		sibling.parent = parent;
+		leaf.parent = parent;
+
+		if (oldParent == null) {
+			root = parent;
+		} else if (oldParent.left == sibling) {
+			oldParent.left = parent;
+		} else {
+			oldParent.right = parent;
+		}
+
+		refitUp(parent.parent);
+	}
+
+	/**
+	 *
+	 * @param child Child that may be descended into
+	 * @param box   Box being added
+	 * @return Returns extra area added by pairing box under child
+	 */
+	private static double descendCost(Node child, double[] box) {
+		double combined = area(union(child.box, box));
+		return child.isLeaf() ? combined : combined - area(child.box);
+	}
+
+	/**
+	 * Unhooks a leaf, replacing its parent with its sibling
+	 *
+	 * @param leaf Leaf to remove
+	 */
+	private void removeLeaf(Node leaf) {
+		if (leaf == root) {
+			root = null;
+			return;
+		}
+
+		Node parent = leaf.parent;
+		Node grandParent = parent.parent;
+		Node sibling = parent.left == leaf ? parent.right : parent.left;
+		leaf.parent = null;
+
+		if (grandParent == null) {
+			root = sibling;
+			sibling.parent = null;
+			return;
+		}
+
+		if (grandParent.left == parent) {
+			grandParent.left = sibling;
+		} else {
+			grandParent.right = sibling;
+		}
+		sibling.parent = grandParent;
+		refitUp(grandParent);
+	}
+
+	/**
+	 * Balances and refits boxes from a node up to the root
+	 *
+	 * @param node First node to refit, may be null
+	 */
+	private void refitUp(Node node) {
+		while (node != null) {
+			node.height = 1 + Math.max(node.left.height, node.right.height);
+			setBox(node.box, union(node.left.box, node.right.box));
+			node = balance(node).parent;
+		}
+	}
+
+	/**
+	 * Rotates the taller grandchild up if one side is more than a level taller
+	 *
+	 * @param a Node to balance
+	 * @return Returns node now in a's place
+	 */
+	private Node balance(Node a) {
+		if (a.isLeaf() || a.height < 2) {
+			return a;
+		}
+
+		Node b = a.left;
+		Node c = a.right;
+		int diff = c.height - b.height;
+		if (diff > 1) {
+			return rotate(a, c, b);
+		}
+		if (diff < -1) {
+			return rotate(a, b, c);
+		}
+		return a;
+	}
+
+	/**
+	 * Moves the tall child into the parent's place, with the parent taking the
+	 * tall child's shorter grandchild
+	 *
+	 * @param a     Parent being rotated down
+	 * @param tall  Taller child of a
+	 * @param other Other child of a
+	 * @return Returns tall, now in a's place
+	 */
+	private Node rotate(Node a, Node tall, Node other) {
+		Node f = tall.left;
+		Node g = tall.right;
+
+		tall.parent = a.parent;
+		if (tall.parent == null) {
+			root = tall;
+		} else if (tall.parent.left == a) {
+			tall.parent.left = tall;
+		} else {
+			tall.parent.right = tall;
+		}
+
+		// The taller grandchild stays with tall and the other goes to a
+		Node keep = f.height > g.height ? f : g;
+		Node give = keep == f ? g : f;
+
+		a.left = other;
+		a.right = give;
+		a.parent = tall;
+		give.parent = a;
+		other.parent = a;
+		setBox(a.box, union(other.box, give.box));
+		a.height = 1 + Math.max(other.height, give.height);
+
+		tall.left = a;
+		tall.right = keep;
+		keep.parent = tall;
+		setBox(tall.box, union(a.box, keep.box));
+		tall.height = 1 + Math.max(a.height, keep.height);
+		return tall;
+	}
+
+	/**
+	 * Sets a leaf's box to its face's bounds grown by the margin
+	 *
+	 * @param leaf Leaf to size
+	 */
+	private static void fatten(Node leaf) {
+		double[] tight = bounds(leaf.face);
+		double size = Math.max(tight[3] - tight[0], Math.max(tight[4] - tight[1], tight[5] - tight[2]));
+		double pad = size * MARGIN;
+		for (int i = 0; i < 3; i++) {
+			leaf.box[i] = tight[i] - pad;
+			leaf.box[i + 3] = tight[i + 3] + pad;
+		}
+		leaf.version = leaf.face.getVersion();
+		leaf.height = 0;
+	}
+
+	/**
+	 *
+	 * @param face Face to bound
+	 * @return Returns tight box around face as min x, y, z then max x, y, z
+	 */
+	private static double[] bounds(Face face) {
+		double[] box = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (Position3D point : face.getTruePoints()) {
+			double[] coord = point.getCoord();
+			for (int i = 0; i < 3; i++) {
+				box[i] = Math.min(box[i], coord[i]);
+				box[i + 3] = Math.max(box[i + 3], coord[i]);
+			}
+		}
+		return box;
+	}
+
+	/**
+	 *
+	 * @param a First box
+	 * @param b Second box
+	 * @return Returns smallest box holding both
+	 */
+	private static double[] union(double[] a, double[] b) {
+		return new double[] { Math.min(a[0], b[0]), Math.min(a[1], b[1]), Math.min(a[2], b[2]),
+				Math.max(a[3], b[3]), Math.max(a[4], b[4]), Math.max(a[5], b[5]) };
+	}
+
+	/**
+	 *
+	 * @param box Box to measure
+	 * @return Returns half the surface area of box
+	 */
+	private static double area(double[] box) {
+		double x = box[3] - box[0];
+		double y = box[4] - box[1];
+		double z = box[5] - box[2];
+		return x * y + y * z + z * x;
+	}
+
+	/**
+	 *
+	 * @param outer Box that may hold the other
+	 * @param inner Box to check
+	 * @return Returns true if inner is wholly inside outer
+	 */
+	private static boolean encloses(double[] outer, double[] inner) {
+		return outer[0] <= inner[0] && outer[1] <= inner[1] && outer[2] <= inner[2] && inner[3] <= outer[3]
+				&& inner[4] <= outer[4] && inner[5] <= outer[5];
+	}
+
+	/**
+	 *
+	 * @param a First box
+	 * @param b Second box
+	 * @return Returns true if boxes touch or overlap
+	 */
+	private static boolean overlaps(double[] a, double[] b) {
+		return a[0] <= b[3] && b[0] <= a[3] && a[1] <= b[4] && b[1] <= a[4] && a[2] <= b[5] && b[2] <= a[5];
+	}
+
+	/**
+	 *
+	 * @param to   Box to write
+	 * @param from Box to copy
+	 */
+	private static void setBox(double[] to, double[] from) {
+		System.arraycopy(from, 0, to, 0, 6);
+	}
+
+	/**
+	 * Slab test of a ray against a box
+	 *
+	 * @param box Box to check
+	 * @param o   Start of ray
+	 * @param d   Unit direction of ray
+	 * @return Returns distance the ray enters box at, infinity if it misses
+	 */
+	private static double entry(double[] box, double[] o, double[] d) {
+		double near = 0;
+		double far = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < 3; i++) {
+			if (Math.abs(d[i]) < Coord3D.ERROR) {
+				if (o[i] < box[i] || o[i] > box[i + 3]) {
+					return Double.POSITIVE_INFINITY;
+				}
+				continue;
+			}
+			double t0 = (box[i] - o[i]) / d[i];
+			double t1 = (box[i + 3] - o[i]) / d[i];
+			near = Math.max(near, Math.min(t0, t1));
+			far = Math.min(far, Math.max(t0, t1));
+			if (near > far) {
+				return Double.POSITIVE_INFINITY;
+			}
+		}
+		return near;
+	}
+
+	/**
+	 * Intersects a ray with the plane of a face and checks the point is inside
+	 * its convex outline
+	 *
+	 * @param face Face to check
+	 * @param o    Start of ray
+	 * @param d    Unit direction of ray
+	 * @return Returns distance along ray of hit, -1 if it misses
+	 */
+	private static double hit(Face face, double[] o, double[] d) {
+		double[] norm = face.getPlane().getNorm().getCoord();
+		double[] origin = face.getPlane().getPos().getCoord();
+		double den = norm[0] * d[0] + norm[1] * d[1] + norm[2] * d[2];
+		if (Math.abs(den) < Coord3D.ERROR) {
+			return -1;
+		}
+		double t = (norm[0] * (origin[0] - o[0]) + norm[1] * (origin[1] - o[1]) + norm[2] * (origin[2] - o[2]))
+				/ den;
+		if (t < 0) {
+			return -1;
+		}
+
+		double[] p = { o[0] + t * d[0], o[1] + t * d[1], o[2] + t * d[2] };
+		Position3D[] points = face.getTruePoints();
+		double sign = 0;
+		for (int i = 0, j = face.getNumPoints() - 1; i < face.getNumPoints(); j = i++) {
+			double[] a = points[j].getCoord();
+			double[] b = points[i].getCoord();
+			double ex = b[0] - a[0];
+			double ey = b[1] - a[1];
+			double ez = b[2] - a[2];
+			double px = p[0] - a[0];
+			double py = p[1] - a[1];
+			double pz = p[2] - a[2];
+			double side = norm[0] * (ey * pz - ez * py) + norm[1] * (ez * px - ex * pz) + norm[2] * (ex * py - ey * px);
+			if (side * sign < 0) {
+				return -1;
+			}
+			if (side != 0) {
+				sign = side;
+			}
+		}
+		return t;
+	}
+}
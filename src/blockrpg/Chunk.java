@@ -0,0 +1,186 @@
+package blockrpg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fixed size cube of blocks that is meshed into faces as one unit
+ */
+public class Chunk {
+
+	public static final int SIZE = 16;
+	public static final int AIR = 0;
+
+	// Visibility bit for every (from, to) pair of the six sides
+	public static final long ALL_CONNECTED = (1L << 36) - 1;
+
+	private final int chunkX;
+	private final int chunkY;
+	private final int chunkZ;
+
+	private final int[] blocks;
+
+	private volatile List<Face> faces;
+	private volatile long visibility;
+	private final AtomicBoolean dirty;
+
+	/**
+	 * Custom constructor for an empty Chunk
+	 *
+	 * @param chunkX X index of chunk
+	 * @param chunkY Y index of chunk
+	 * @param chunkZ Z index of chunk
+	 */
+	public Chunk(int chunkX, int chunkY, int chunkZ) {
+		this.chunkX = chunkX;
+		this.chunkY = chunkY;
+		this.chunkZ = chunkZ;
+
+		this.blocks = new int[SIZE * SIZE * SIZE];
+
+		this.faces = new ArrayList<Face>();
+		this.visibility = ALL_CONNECTED;
+		this.dirty = new AtomicBoolean(false);
+	}
+
+	/**
+	 *
+	 * @return Returns X index of chunk
+	 */
+	public int getChunkX() {
+		return chunkX;
+	}
+
+	/**
+	 *
+	 * @return Returns Y index of chunk
+	 */
+	public int getChunkY() {
+		return chunkY;
+	}
+
+	/**
+	 *
+	 * @return Returns Z index of chunk
+	 */
+	public int getChunkZ() {
+		return chunkZ;
+	}
+
+	/**
+	 *
+	 * @param x Local x coordinate
+	 * @param y Local y coordinate
+	 * @param z Local z coordinate
+	 * @return Returns block at local coordinates (AIR if empty)
+	 */
+	public int getBlock(int x, int y, int z) {
+		return blocks[index(x, y, z)];
+	}
+
+	/**
+	 * Sets block at local coordinates
+	 *
+	 * @param x     Local x coordinate
+	 * @param y     Local y coordinate
+	 * @param z     Local z coordinate
+	 * @param block Block to set (AIR to clear)
+	 */
+	public void setBlock(int x, int y, int z, int block) {
+		blocks[index(x, y, z)] = block;
+	}
+
+	/**
+	 *
+	 * @return Returns faces of the last finished mesh
+	 */
+	public List<Face> getFaces() {
+		return faces;
+	}
+
+	/**
+	 * Swaps in a freshly built mesh
+	 *
+	 * @param faces Faces of new mesh
+	 */
+	public void setFaces(List<Face> faces) {
+		this.faces = faces;
+	}
+
+	/**
+	 * Sets which pairs of sides are connected through air (one bit per pair of
+	 * directions)
+	 *
+	 * @param visibility Visibility bits
+	 */
+	public void setVisibility(long visibility) {
+		this.visibility = visibility;
+	}
+
+	/**
+	 *
+	 * @return Returns visibility bits
+	 */
+	public long getVisibility() {
+		return visibility;
+	}
+
+	/**
+	 *
+	 * @param from Side looked in through
+	 * @param to   Side looked out of
+	 * @return Returns true if the two sides are connected through air
+	 */
+	public boolean isConnected(Direction from, Direction to) {
+		return (visibility & bit(from, to)) != 0;
+	}
+
+	/**
+	 *
+	 * @param from First side
+	 * @param to   Second side
+	 * @return Returns visibility bit of a pair of sides
+	 */
+	public static long bit(Direction from, Direction to) {
+		return 1L << (from.ordinal() * 6 + to.ordinal());
+	}
+
+	/**
+	 * Marks chunk as needing a new mesh
+	 *
+	 * @return Returns true if chunk was not already dirty
+	 */
+	public boolean markDirty() {
+		return dirty.compareAndSet(false, true);
+	}
+
+	/**
+	 * Clears dirty flag before a mesh is built so edits made during the build mark
+	 * the chunk again
+	 *
+	 * @return Returns true if chunk was dirty
+	 */
+	public boolean clearDirty() {
+		return dirty.compareAndSet(true, false);
+	}
+
+	/**
+	 *
+	 * @return Returns true if chunk is waiting on a new mesh
+	 */
+	public boolean isDirty() {
+		return dirty.get();
+	}
+
+	/**
+	 *
+	 * @param x Local x coordinate
+	 * @param y Local y coordinate
+	 * @param z Local z coordinate
+	 * @return Returns index into block array
+	 */
+	private static int index(int x, int y, int z) {
+		return (z * SIZE + y) * SIZE + x;
+	}
+}
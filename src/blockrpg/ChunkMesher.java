@@ -0,0 +1,227 @@
+package blockrpg;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Rebuilds the faces of dirty chunks on a background thread and swaps the
+ * finished mesh into the chunk in one step
+ */
+public class ChunkMesher {
+
+	// Plane axes per direction, picked so that vecX X vecY points out of the block
+	private static final Vector3D[] VEC_X = { new Vector3D(0, 1, 0), new Vector3D(0, 0, 1), new Vector3D(0, 0, 1),
+			new Vector3D(1, 0, 0), new Vector3D(1, 0, 0), new Vector3D(0, 1, 0) };
+	private static final Vector3D[] VEC_Y = { new Vector3D(0, 0, 1), new Vector3D(0, 1, 0), new Vector3D(1, 0, 0),
+			new Vector3D(0, 0, 1), new Vector3D(0, 1, 0), new Vector3D(1, 0, 0) };
+
+	private final World world;
+	private final ExecutorService executor;
+
+	/**
+	 * Custom constructor for ChunkMesher
+	 *
+	 * @param world World whose chunks are meshed
+	 */
+	public ChunkMesher(World world) {
+		this.world = world;
+		this.executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ChunkMesher");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Queues a chunk for a new mesh unless it is already queued
+	 *
+	 * @param chunk Chunk that was edited
+	 */
+	public void markDirty(Chunk chunk) {
+		if (chunk.markDirty()) {
+			executor.execute(() -> remesh(chunk));
+		}
+	}
+
+	/**
+	 * Builds a new mesh for a chunk and swaps it in
+	 *
+	 * @param chunk Chunk to mesh
+	 */
+	public void remesh(Chunk chunk) {
+		// Cleared first so an edit during the build queues the chunk again
+		if (!chunk.clearDirty()) {
+			return;
+		}
+
+		List<Face> faces = Collections.unmodifiableList(buildMesh(chunk));
+		chunk.setVisibility(buildVisibility(chunk));
+		chunk.setFaces(faces);
+		world.incrementVersion();
+	}
+
+	/**
+	 * Creates a face for every block side that touches air
+	 *
+	 * @param chunk Chunk to mesh
+	 * @return Returns faces of chunk
+	 */
+	public List<Face> buildMesh(Chunk chunk) {
+		List<Face> faces = new ArrayList<Face>();
+		Direction[] dirs = Direction.values();
+
+		int baseX = chunk.getChunkX() * Chunk.SIZE;
+		int baseY = chunk.getChunkY() * Chunk.SIZE;
+		int baseZ = chunk.getChunkZ() * Chunk.SIZE;
+
+		for (int z = 0; z < Chunk.SIZE; z++) {
+			for (int y = 0; y < Chunk.SIZE; y++) {
+				for (int x = 0; x < Chunk.SIZE; x++) {
+					int block = chunk.getBlock(x, y, z);
+					if (block == Chunk.AIR) {
+						continue;
+					}
+
+					for (Direction dir : dirs) {
+						int nx = x + dir.getDX();
+						int ny = y + dir.getDY();
+						int nz = z + dir.getDZ();
+
+						boolean covered;
+						if (nx >= 0 && nx < Chunk.SIZE && ny >= 0 && ny < Chunk.SIZE && nz >= 0 && nz < Chunk.SIZE) {
+							covered = chunk.getBlock(nx, ny, nz) != Chunk.AIR;
+						} else {
+							covered = world.isSolid(baseX + nx, baseY + ny, baseZ + nz);
+						}
+
+						if (!covered) {
+							faces.add(createFace(baseX + x, baseY + y, baseZ + z, dir, new Color(block)));
+						}
+					}
+				}
+			}
+		}
+
+		return faces;
+	}
+
+	/**
+	 * Flood fills the air of a chunk and records which sides each air pocket
+	 * touches. Two sides are connected if any pocket touches both
+	 *
+	 * @param chunk Chunk to check
+	 * @return Returns visibility bits of chunk
+	 */
+	public long buildVisibility(Chunk chunk) {
+		int volume = Chunk.SIZE * Chunk.SIZE * Chunk.SIZE;
+		boolean[] visited = new boolean[volume];
+		int[] stack = new int[volume];
+		Direction[] dirs = Direction.values();
+		long visibility = 0;
+
+		for (int start = 0; start < volume; start++) {
+			if (visited[start] || blockAt(chunk, start) != Chunk.AIR) {
+				continue;
+			}
+
+			int sides = 0;
+			int size = 0;
+			stack[size++] = start;
+			visited[start] = true;
+
+			while (size > 0) {
+				int cell = stack[--size];
+				int x = cell % Chunk.SIZE;
+				int y = (cell / Chunk.SIZE) % Chunk.SIZE;
+				int z = cell / (Chunk.SIZE * Chunk.SIZE);
+
+				for (Direction dir : dirs) {
+					int nx = x + dir.getDX();
+					int ny = y + dir.getDY();
+					int nz = z + dir.getDZ();
+					if (nx < 0 || nx >= Chunk.SIZE || ny < 0 || ny >= Chunk.SIZE || nz < 0 || nz >= Chunk.SIZE) {
+						sides |= 1 << dir.ordinal();
+						continue;
+					}
+
+					int next = (nz * Chunk.SIZE + ny) * Chunk.SIZE + nx;
+					if (!visited[next] && chunk.getBlock(nx, ny, nz) == Chunk.AIR) {
+						visited[next] = true;
+						stack[size++] = next;
+					}
+				}
+			}
+
+			for (Direction from : dirs) {
+				if ((sides & (1 << from.ordinal())) == 0) {
+					continue;
+				}
+				for (Direction to : dirs) {
+					if ((sides & (1 << to.ordinal())) != 0) {
+						visibility |= Chunk.bit(from, to);
+					}
+				}
+			}
+		}
+
+		return visibility;
+	}
+
+	/**
+	 *
+	 * @param chunk Chunk to look in
+	 * @param cell  Index of cell in chunk
+	 * @return Returns block at cell index
+	 */
+	private static int blockAt(Chunk chunk, int cell) {
+		return chunk.getBlock(cell % Chunk.SIZE, (cell / Chunk.SIZE) % Chunk.SIZE,
+				cell / (Chunk.SIZE * Chunk.SIZE));
+	}
+
+	/**
+	 * Creates the square face of a block side
+	 *
+	 * @param x   Block x coordinate
+	 * @param y   Block y coordinate
+	 * @param z   Block z coordinate
+	 * @param dir Side of block
+	 * @param col Colour of block
+	 * @return Returns face of block side
+	 */
+	private Face createFace(int x, int y, int z, Direction dir, Color col) {
+		double half = World.BLOCK_SIZE / 2;
+		Position3D pos = new Position3D((x + 0.5 + 0.5 * dir.getDX()) * World.BLOCK_SIZE,
+				(y + 0.5 + 0.5 * dir.getDY()) * World.BLOCK_SIZE, (z + 0.5 + 0.5 * dir.getDZ()) * World.BLOCK_SIZE);
+		Plane plane = new Plane(VEC_X[dir.ordinal()], VEC_Y[dir.ordinal()], pos);
+
+		Position2D[] points = { new Position2D(-half, -half), new Position2D(-half, half),
+				new Position2D(half, half), new Position2D(half, -half) };
+		return new Face(points, points.length, plane, world.getPov(), col);
+	}
+
+	/**
+	 * Blocks until every queued mesh has been swapped in
+	 */
+	public void flush() {
+		try {
+			executor.submit(() -> {
+			}).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Stops the background thread
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
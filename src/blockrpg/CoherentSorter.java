@@ -0,0 +1,204 @@
+package blockrpg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps last frame's depth order and only repairs it. Faces that have not been
+ * moved or reprojected since the last order keep their places relative to each
+ * other, and every face that did change is taken out and walked back in from
+ * where it was, a bounded number of steps. The cost then follows how much moved
+ * rather than how many faces there are, and when too much moved at once the
+ * whole list is sorted again instead
+ */
+public class CoherentSorter implements VisibilityEngine {
+
+	// Steps a changed face may walk from its old place before it is binary searched in
+	public static final int MAX_MOVES = 32;
+	// Share of faces that may change before a full sort is cheaper than repairs
+	public static final double RESORT_FRACTION = 0.25;
+
+	private final FaceSorter sorter;
+	private List<Face> staticFaces;
+
+	private ArrayList<Face> last;
+	// Version of every face in the last order when it was placed
+	private final Map<Face, Long> versions;
+
+	private long fullSorts;
+	private long repairs;
+	private long searches;
+
+	/**
+	 * Default constructor for CoherentSorter
+	 */
+	public CoherentSorter() {
+		this(new FaceSorter());
+	}
+
+	/**
+	 * Custom constructor for CoherentSorter
+	 *
+	 * @param sorter Sorter used when the whole list has to be sorted
+	 */
+	public CoherentSorter(FaceSorter sorter) {
+		this.sorter = sorter;
+		this.staticFaces = new ArrayList<Face>();
+		this.last = new ArrayList<Face>();
+		this.versions = new IdentityHashMap<Face, Long>();
+	}
+
+	@Override
+	public void setStaticFaces(List<Face> faces) {
+		this.staticFaces = faces;
+	}
+
+	@Override
+	public List<Face> getStaticFaces() {
+		return staticFaces;
+	}
+
+	/**
+	 *
+	 * @return Returns number of times every face was sorted from scratch
+	 */
+	public long getFullSorts() {
+		return fullSorts;
+	}
+
+	/**
+	 *
+	 * @return Returns number of faces put back in place one at a time
+	 */
+	public long getRepairs() {
+		return repairs;
+	}
+
+	/**
+	 *
+	 * @return Returns number of repaired faces that were new or too far from their
+	 *         old place to walk back and had to be binary searched in
+	 */
+	public long getSearches() {
+		return searches;
+	}
+
+	@Override
+	public ArrayList<Face> order(List<Face> faces, Perspective pov) {
+		ArrayList<Face> all = new ArrayList<Face>(staticFaces.size() + faces.size());
+		all.addAll(staticFaces);
+		all.addAll(faces);
+		return order(all);
+	}
+
+	/**
+	 * Orders faces back to front, starting from the last order
+	 *
+	 * @param faces Faces to order
+	 * @return Returns new list in back to front order
+	 */
+	public ArrayList<Face> order(List<Face> faces) {
+		Set<Face> present = Collections.newSetFromMap(new IdentityHashMap<Face, Boolean>());
+		present.addAll(faces);
+
+		// Faces still in order keep it, changed ones remember where they were
+		ArrayList<Face> kept = new ArrayList<Face>(faces.size());
+		ArrayList<Face> changed = new ArrayList<Face>();
+		ArrayList<Integer> hints = new ArrayList<Integer>();
+		for (Face face : last) {
+			if (!present.remove(face)) {
+				continue;
+			}
+			if (hasChanged(face)) {
+				changed.add(face);
+				hints.add(kept.size());
+			} else {
+				kept.add(face);
+			}
+		}
+		int moved = changed.size();
+		// Left over faces were not in the last order at all
+		for (Face face : faces) {
+			if (present.remove(face)) {
+				changed.add(face);
+				hints.add(-1);
+			}
+		}
+
+		if (last.isEmpty() || changed.size() > RESORT_FRACTION * faces.size()) {
+			fullSorts++;
+			kept = sorter.sort(faces);
+		} else {
+			// Hints only count the kept faces before each one, so changed faces go back
+			// in from the furthest forward first and none is shifted by another
+			for (int i = moved - 1; i >= 0; i--) {
+				insert(kept, changed.get(i), hints.get(i));
+			}
+			for (int i = moved; i < changed.size(); i++) {
+				insert(kept, changed.get(i), -1);
+			}
+			repairs += changed.size();
+		}
+
+		versions.clear();
+		for (Face face : kept) {
+			versions.put(face, face.getVersion());
+		}
+		last = kept;
+		return new ArrayList<Face>(kept);
+	}
+
+	/**
+	 *
+	 * @param face Face in last order
+	 * @return Returns true if face was moved or reprojected since it was placed
+	 */
+	private boolean hasChanged(Face face) {
+		Long version = versions.get(face);
+		return version == null || version != face.getVersion() || face.checkMoved();
+	}
+
+	/**
+	 * Walks a face from its old place to where it belongs, falling back to a
+	 * binary search if it has to go further than MAX_MOVES
+	 *
+	 * @param list Faces in back to front order
+	 * @param face Face to add
+	 * @param hint Index face was at, -1 if it is new
+	 */
+	private void insert(ArrayList<Face> list, Face face, int hint) {
+		if (hint >= 0) {
+			int index = Math.min(hint, list.size());
+			int moves = 0;
+			while (index > 0 && moves < MAX_MOVES && face.compareTo(list.get(index - 1)) < 0) {
+				index--;
+				moves++;
+			}
+			while (index < list.size() && moves < MAX_MOVES && face.compareTo(list.get(index)) > 0) {
+				index++;
+				moves++;
+			}
+			if (moves < MAX_MOVES) {
+				list.add(index, face);
+				return;
+			}
+		}
+
+		searches++;
+		int lo = 0;
+		int hi = list.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (face.compareTo(list.get(mid)) < 0) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		list.add(lo, face);
+	}
+}
@@ -6,7 +6,7 @@ import java.util.Arrays;
 public class Coord2D {
 
 	protected final static double ERROR = Coord3D.ERROR;
-	protected final static DecimalFormat df = Coord3D.df;
+	protected final static ThreadLocal<DecimalFormat> df = Coord3D.df;
 
 	protected double x;
 	protected double y;
@@ -55,7 +55,7 @@ public class Coord2D {
 	public void setCoord(double[] coords) {
 		// Rounds numbers that are very close to nearest billionth
 		for (int i = 0; i < 2; i++) {
-			coords[i] = Double.parseDouble(df.format(coords[i])) + 0.0;
+			coords[i] = Double.parseDouble(df.get().format(coords[i])) + 0.0;
 		}
 		this.x = coords[0];
 		this.y = coords[1];
@@ -15,7 +15,9 @@ import java.util.Arrays;
 public class Coord3D {
 
 	protected final static double ERROR = 0.000000001;
-	protected final static DecimalFormat df = new DecimalFormat("#.##########");
+	// DecimalFormat is not thread safe so every thread gets its own copy
+	protected final static ThreadLocal<DecimalFormat> df = ThreadLocal
+			.withInitial(() -> new DecimalFormat("#.##########"));
 
 	protected double x;
 	protected double y;
@@ -68,7 +70,7 @@ public class Coord3D {
 	public void setCoord(double[] coords) {
 		// Rounds numbers that are very close to nearest billionth
 		for (int i = 0; i < 3; i++) {
-			coords[i] = Double.parseDouble(df.format(coords[i])) + 0.0;
+			coords[i] = Double.parseDouble(df.get().format(coords[i])) + 0.0;
 		}
 		this.x = coords[0];
 		this.y = coords[1];
@@ -0,0 +1,337 @@
+package blockrpg;
+
+import java.util.Arrays;
+
+/**
+ * Front to back renderer backed by a coverage buffer. Each scanline keeps a
+ * sorted list of the spans already filled, and a face only writes the parts of
+ * its own spans that fall in the gaps between them. Faces whose bounds are
+ * already covered on every scanline are rejected without being walked, so
+ * once the screen is covered the faces behind cost nothing and each pixel is
+ * written about once
+ */
+public class CoverageBuffer {
+
+	private final Rasterizer target;
+
+	// Filled spans of each scanline as start and end pairs, sorted and disjoint
+	private final int[][] spans;
+	private final int[] numSpans;
+	private int fullRows;
+
+	private double[] crossings;
+	private double[] crossingZ;
+	private int[] scratch;
+
+	private long written;
+	private long rejected;
+
+	/**
+	 * Custom constructor for CoverageBuffer
+	 *
+	 * @param target Rasterizer whose buffers are written to
+	 */
+	public CoverageBuffer(Rasterizer target) {
+		this.target = target;
+		this.spans = new int[target.getHeight()][8];
+		this.numSpans = new int[target.getHeight()];
+		this.crossings = new double[8];
+		this.crossingZ = new double[8];
+		this.scratch = new int[8];
+	}
+
+	/**
+	 *
+	 * @return Returns number of pixels written by the last render
+	 */
+	public long getWritten() {
+		return written;
+	}
+
+	/**
+	 *
+	 * @return Returns number of faces that wrote nothing in the last render
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * Draws polygons nearest first, then fills what is left with background
+	 *
+	 * @param polys      Polygons in back to front order, as painted by Drawer
+	 * @param background Colour of pixels no polygon covers
+	 */
+	public void render(ScreenPolygon[] polys, int background) {
+		Arrays.fill(numSpans, 0);
+		fullRows = 0;
+		written = 0;
+		rejected = 0;
+
+		for (int i = polys.length - 1; i >= 0; i--) {
+			if (fullRows == spans.length) {
+				rejected += i + 1;
+				break;
+			}
+			if (!fill(polys[i], i)) {
+				rejected++;
+			}
+		}
+
+		fillBackground(background);
+	}
+
+	/**
+	 * Writes the parts of a polygon no nearer polygon has covered
+	 *
+	 * @param poly Polygon to draw
+	 * @param id   Id written to the pixels it covers
+	 * @return Returns true if any pixel was written
+	 */
+	private boolean fill(ScreenPolygon poly, int id) {
+		int num = poly.getNumPoints();
+		if (num < 3) {
+			return false;
+		}
+
+		int width = target.getWidth();
+		int startY = Math.max(0, (int) Math.ceil(poly.getMinY() - 0.5));
+		int endY = Math.min(spans.length, (int) Math.ceil(poly.getMaxY() - 0.5));
+		int minX = Math.max(0, (int) Math.ceil(poly.getMinX() - 0.5));
+		int maxX = Math.min(width, (int) Math.ceil(poly.getMaxX() - 0.5));
+		if (minX >= maxX || !hasOpenRow(startY, endY, minX, maxX)) {
+			return false;
+		}
+
+		double[] xs = poly.getXs();
+		double[] ys = poly.getYs();
+		float[] invZ = poly.getInvZ();
+		if (crossings.length < num) {
+			crossings = new double[num];
+			crossingZ = new double[num];
+		}
+
+		int[] pixels = target.getPixels();
+		float[] depth = target.getDepth();
+		int[] ids = target.getIds();
+		long before = written;
+
+		for (int y = startY; y < endY; y++) {
+			if (isCovered(y, minX, maxX)) {
+				continue;
+			}
+			double sampleY = y + 0.5;
+
+			// Same edge rules as Rasterizer, so faces cover the same pixels either way
+			int count = 0;
+			for (int i = 0, j = num - 1; i < num; j = i++) {
+				double y0 = ys[j];
+				double y1 = ys[i];
+				if ((y0 <= sampleY && sampleY < y1) || (y1 <= sampleY && sampleY < y0)) {
+					double t = (sampleY - y0) / (y1 - y0);
+					double x = xs[j] + t * (xs[i] - xs[j]);
+					double z = invZ[j] + t * (invZ[i] - invZ[j]);
+
+					int k = count++;
+					while (k > 0 && crossings[k - 1] > x) {
+						crossings[k] = crossings[k - 1];
+						crossingZ[k] = crossingZ[k - 1];
+						k--;
+					}
+					crossings[k] = x;
+					crossingZ[k] = z;
+				}
+			}
+
+			for (int i = 0; i + 1 < count; i += 2) {
+				int startX = Math.max(0, (int) Math.ceil(crossings[i] - 0.5));
+				int endX = Math.min(width, (int) Math.ceil(crossings[i + 1] - 0.5));
+				if (startX >= endX) {
+					continue;
+				}
+
+				double spanX = crossings[i + 1] - crossings[i];
+				double dz = spanX > 0 ? (crossingZ[i + 1] - crossingZ[i]) / spanX : 0;
+				double z = crossingZ[i] + (startX + 0.5 - crossings[i]) * dz;
+				cover(y, startX, endX, poly.getRGB(), id, z, dz, pixels, depth, ids);
+			}
+		}
+
+		return written > before;
+	}
+
+	/**
+	 * Fills the gaps of a scanline inside a span and merges the span into the
+	 * scanline's list
+	 *
+	 * @param y      Scanline
+	 * @param startX First pixel of span
+	 * @param endX   One past last pixel of span
+	 * @param rgb    Colour to fill with
+	 * @param id     Id to fill with
+	 * @param z      Inverse distance at first pixel
+	 * @param dz     Change in inverse distance per pixel
+	 * @param pixels Pixels to write
+	 * @param depth  Depth buffer to write
+	 * @param ids    Id buffer to write
+	 */
+	private void cover(int y, int startX, int endX, int rgb, int id, double z, double dz, int[] pixels,
+			float[] depth, int[] ids) {
+		if (isFull(y)) {
+			return;
+		}
+		int[] row = spans[y];
+		int count = numSpans[y];
+
+		// Spans wholly before the new one, touching ones are merged with it
+		int first = 0;
+		while (first < count && row[first * 2 + 1] < startX) {
+			first++;
+		}
+
+		int last = first;
+		int mergedStart = startX;
+		int mergedEnd = endX;
+		int cursor = startX;
+		int offset = y * target.getWidth();
+		while (last < count && row[last * 2] <= endX) {
+			int spanStart = row[last * 2];
+			int spanEnd = row[last * 2 + 1];
+			if (spanStart > cursor) {
+				write(offset, cursor, spanStart, startX, rgb, id, z, dz, pixels, depth, ids);
+			}
+			cursor = Math.max(cursor, spanEnd);
+			mergedStart = Math.min(mergedStart, spanStart);
+			mergedEnd = Math.max(mergedEnd, spanEnd);
+			last++;
+		}
+		if (cursor < endX) {
+			write(offset, cursor, endX, startX, rgb, id, z, dz, pixels, depth, ids);
+		}
+
+		// Spans first to last collapse into one
+		int newCount = count - (last - first) + 1;
+		if (scratch.length < newCount * 2) {
+			scratch = new int[newCount * 4];
+		}
+		System.arraycopy(row, 0, scratch, 0, first * 2);
+		scratch[first * 2] = mergedStart;
+		scratch[first * 2 + 1] = mergedEnd;
+		System.arraycopy(row, last * 2, scratch, first * 2 + 2, (count - last) * 2);
+
+		if (row.length < newCount * 2) {
+			row = new int[newCount * 4];
+			spans[y] = row;
+		}
+		System.arraycopy(scratch, 0, row, 0, newCount * 2);
+		numSpans[y] = newCount;
+
+		if (isFull(y)) {
+			fullRows++;
+		}
+	}
+
+	/**
+	 * Writes a run of uncovered pixels
+	 *
+	 * @param offset Index of first pixel of scanline
+	 * @param from   First pixel to write
+	 * @param to     One past last pixel to write
+	 * @param startX Pixel the inverse distance is given at
+	 * @param rgb    Colour to fill with
+	 * @param id     Id to fill with
+	 * @param z      Inverse distance at startX
+	 * @param dz     Change in inverse distance per pixel
+	 * @param pixels Pixels to write
+	 * @param depth  Depth buffer to write
+	 * @param ids    Id buffer to write
+	 */
+	private void write(int offset, int from, int to, int startX, int rgb, int id, double z, double dz,
+			int[] pixels, float[] depth, int[] ids) {
+		float value = (float) (z + (from - startX) * dz);
+		float step = (float) dz;
+		Arrays.fill(pixels, offset + from, offset + to, rgb);
+		Arrays.fill(ids, offset + from, offset + to, id);
+		for (int index = offset + from, end = offset + to; index < end; index++) {
+			depth[index] = value;
+			value += step;
+		}
+		written += to - from;
+	}
+
+	/**
+	 * Fills every gap left once all faces are drawn
+	 *
+	 * @param background Colour to fill with
+	 */
+	private void fillBackground(int background) {
+		int width = target.getWidth();
+		int[] pixels = target.getPixels();
+		float[] depth = target.getDepth();
+		int[] ids = target.getIds();
+		for (int y = 0; y < spans.length; y++) {
+			int[] row = spans[y];
+			int offset = y * width;
+			int cursor = 0;
+			for (int i = 0; i < numSpans[y]; i++) {
+				Arrays.fill(pixels, offset + cursor, offset + row[i * 2], background);
+				Arrays.fill(depth, offset + cursor, offset + row[i * 2], 0f);
+				Arrays.fill(ids, offset + cursor, offset + row[i * 2], -1);
+				cursor = row[i * 2 + 1];
+			}
+			Arrays.fill(pixels, offset + cursor, offset + width, background);
+			Arrays.fill(depth, offset + cursor, offset + width, 0f);
+			Arrays.fill(ids, offset + cursor, offset + width, -1);
+		}
+	}
+
+	/**
+	 *
+	 * @param y Scanline
+	 * @return Returns true if every pixel of scanline is covered
+	 */
+	private boolean isFull(int y) {
+		return numSpans[y] == 1 && spans[y][0] == 0 && spans[y][1] == target.getWidth();
+	}
+
+	/**
+	 *
+	 * @param y      Scanline
+	 * @param startX First pixel of range
+	 * @param endX   One past last pixel of range
+	 * @return Returns true if every pixel of scanline in range is covered
+	 */
+	private boolean isCovered(int y, int startX, int endX) {
+		// Touching spans are merged, so a covered range lies inside a single span:
+		// the first one ending at or after the range
+		int[] row = spans[y];
+		int lo = 0;
+		int hi = numSpans[y];
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (row[mid * 2 + 1] < endX) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo < numSpans[y] && row[lo * 2] <= startX;
+	}
+
+	/**
+	 *
+	 * @param startY First scanline
+	 * @param endY   One past last scanline
+	 * @param startX First pixel of range
+	 * @param endX   One past last pixel of range
+	 * @return Returns true if any scanline in range still has a gap in range
+	 */
+	private boolean hasOpenRow(int startY, int endY, int startX, int endX) {
+		for (int y = startY; y < endY; y++) {
+			if (!isCovered(y, startX, endX)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
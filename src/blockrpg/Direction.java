@@ -0,0 +1,58 @@
+package blockrpg;
+
+/**
+ * The six axis aligned directions a block face can point in
+ */
+public enum Direction {
+	POS_X(1, 0, 0), NEG_X(-1, 0, 0), POS_Y(0, 1, 0), NEG_Y(0, -1, 0), POS_Z(0, 0, 1), NEG_Z(0, 0, -1);
+
+	private final int dx;
+	private final int dy;
+	private final int dz;
+
+	private Direction(int dx, int dy, int dz) {
+		this.dx = dx;
+		this.dy = dy;
+		this.dz = dz;
+	}
+
+	/**
+	 *
+	 * @return Returns x step of direction
+	 */
+	public int getDX() {
+		return dx;
+	}
+
+	/**
+	 *
+	 * @return Returns y step of direction
+	 */
+	public int getDY() {
+		return dy;
+	}
+
+	/**
+	 *
+	 * @return Returns z step of direction
+	 */
+	public int getDZ() {
+		return dz;
+	}
+
+	/**
+	 *
+	 * @return Returns direction pointing the other way
+	 */
+	public Direction getOpposite() {
+		return values()[ordinal() ^ 1];
+	}
+
+	/**
+	 *
+	 * @return Returns unit normal of direction
+	 */
+	public Vector3D toVec() {
+		return new Vector3D(dx, dy, dz);
+	}
+}
@@ -1,12 +1,20 @@
 package blockrpg;
 
-import javax.swing.JPanel;
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.util.ArrayList;
+import java.awt.image.BufferStrategy;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
-public class Drawer extends JPanel {
+/**
+ * Canvas the game is drawn on. Frames are drawn by a dedicated render thread
+ * into a BufferStrategy and flipped, so Swing's repaint path is never used.
+ * The simulation hands over immutable snapshots, so the faces themselves are
+ * never read while they are being moved. A frame is only asked for when the
+ * snapshot or HUD actually changed, so a still scene costs nothing to show
+ */
+public class Drawer extends Canvas {
 
 	/**
 	 * 
@@ -15,111 +23,243 @@ public class Drawer extends JPanel {
 
 	private static final Stroke THIN = new BasicStroke(1);
 	private static final Stroke THICK = new BasicStroke((float) 1.5);
+	private static final Font HUD_FONT = new Font("Arial", Font.BOLD, 11);
 
-	private List<Shape> sortedFace;
-	private BufferedImage screen;
-	private double[][] zBuf;
-	private int[][] colBuf;
+	// Latest published frame. The simulation builds the next snapshot while this
+	// one is drawn and swaps it in whole, so neither side waits on the other
+	private final AtomicReference<RenderSnapshot> snapshot;
+	private TileRasterizer rasterizer;
+	private ScanlineRenderer scanline;
+	private CoverageBuffer coverage;
+	private WarnockRenderer warnock;
+	// Last filled frame with the id buffer it was drawn into, null after a
+	// wireframe. The rasterizer writes the next frame into the spare buffer and
+	// the two are swapped once it is done
+	private volatile DrawnFrame shown;
+	private int[] spareIds;
+	private volatile String hud;
+	private volatile String stats;
+
+	// Set whenever something on screen changed since the last presented frame
+	private final AtomicBoolean dirty;
+	private volatile Thread waiter;
 
 	public Drawer() {
-		sortedFace = new ArrayList<Shape>();
-		screen = new BufferedImage(MainWindow._width, MainWindow._height, BufferedImage.TYPE_INT_RGB);
-		colBuf = new int[MainWindow._width][MainWindow._height];
-		zBuf = new double[MainWindow._width][MainWindow._height];
+		snapshot = new AtomicReference<RenderSnapshot>(RenderSnapshot.EMPTY);
+		rasterizer = new TileRasterizer(MainWindow._width, MainWindow._height);
+		scanline = new ScanlineRenderer(rasterizer.getRasterizer());
+		coverage = new CoverageBuffer(rasterizer.getRasterizer());
+		warnock = new WarnockRenderer(rasterizer.getRasterizer());
+		spareIds = new int[MainWindow._width * MainWindow._height];
+		hud = "";
+		stats = "";
+		dirty = new AtomicBoolean(true);
+	}
+
+	/**
+	 * Captures faces to draw (in back to front order). Called from the simulation
+	 * thread
+	 * 
+	 * @param faces Sorted faces
+	 */
+	public void setList(List<Face> faces) {
+		publish(RenderSnapshot.capture(faces));
+	}
+
+	/**
+	 * Replaces the frame being drawn
+	 * 
+	 * @param frame Snapshot to draw
+	 */
+	public void publish(RenderSnapshot frame) {
+		if (snapshot.getAndSet(frame) != frame) {
+			requestFrame();
+		}
+	}
+
+	/**
+	 * 
+	 * @return Returns latest published snapshot
+	 */
+	public RenderSnapshot getSnapshot() {
+		return snapshot.get();
+	}
+
+	/**
+	 * Every filled mode leaves the index of the polygon nearest at each pixel
+	 * behind. Its buffer is only written again once the frame after this one has
+	 * replaced it, so reads are safe for as long as this still returns the same
+	 * frame
+	 * 
+	 * @return Returns last filled frame on screen, null if the frame on screen is
+	 *         a wireframe
+	 */
+	public DrawnFrame getShown() {
+		return shown;
+	}
+
+	/**
+	 * Sets text drawn over the frame
+	 * 
+	 * @param hud Text to draw
+	 */
+	public void setHud(String hud) {
+		if (!hud.equals(this.hud)) {
+			this.hud = hud;
+			requestFrame();
+		}
+	}
+
+	/**
+	 * Sets frame timing text drawn after the HUD. Does not ask for a new frame,
+	 * otherwise showing the timing of a frame would always cause another one
+	 * 
+	 * @param stats Text to draw
+	 */
+	public void setStats(String stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * Marks the screen as changed and wakes the render thread if it is idle
+	 */
+	public void requestFrame() {
+		dirty.set(true);
+		Thread thread = waiter;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
 	}
 
-	public void setList(ArrayList<Shape>faces) {
-		sortedFace = faces;
+	/**
+	 * 
+	 * @return Returns true if the screen changed since the last frame
+	 */
+	public boolean isDirty() {
+		return dirty.get();
+	}
+
+	/**
+	 * Parks the calling thread until the screen changes
+	 */
+	public void awaitFrame() {
+		waiter = Thread.currentThread();
+		// The flag is checked after registering so a change made in between still
+		// unparks us
+		while (!dirty.get() && !Thread.currentThread().isInterrupted()) {
+			LockSupport.park(this);
+		}
+		waiter = null;
+	}
+
+	/**
+	 * Exposed areas are redrawn by the render thread rather than cleared here
+	 */
+	@Override
+	public void paint(Graphics g) {
+		requestFrame();
 	}
 
 	@Override
-	public void paintComponent(Graphics g) {
-
-		super.paintComponent(g);
-
-		Graphics2D g2 = (Graphics2D) g; // Casts the Graphics to Graphics2D
-
-		// Turns on Anti-Aliasing
-		RenderingHints rh = new RenderingHints(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-		 g2.setRenderingHints(rh);
-		 
-
-//		Position2D pos2D = new Position2D();
-//		Position3D pos3D = new Position3D();
-//		for (int i = 0; i < MainWindow._width; i++) {
-//			for (int j = 0; j < MainWindow._height; j++) {
-//				int col = Color.WHITE.getRGB();
-//				colBuf[i][j] = col;
-//				zBuf[i][j] = 0;
-//			}
-//		}
-//
-//		for(int k = 0; k < sortedFace.size();k++) {
-//			Face face = sortedFace.get(k);
-//			double[][] faceBuf = face.getzBuf();
-//			
-//			int dim = (int) Math.ceil(2 * face.getBound2D());
-//			for(int i = 0; i < dim;i++) {
-//				for(int j = 0; j < dim;j++) {
-//					if (i < faceBuf.length && faceBuf.length != 0 && j < faceBuf[0].length) {
-//						int x = (int) (Math.floor(i - face.getBound2D() + face.getCenter2D().getX()) + Face.xOffset);
-//						int y = (int) (-Math.floor(j - face.getBound2D() + face.getCenter2D().getY()) + Face.yOffset);
-//						if (x >= 0 && x < MainWindow._width && y >= 0 && y < MainWindow._height) {
-//							if (zBuf[x][y] == 0) {
-//								zBuf[x][y] = faceBuf[i][j];
-//								if (zBuf[x][y] != 0) {
-//									colBuf[x][y] = face.getCol().getRGB();
-//								}
-//
-//							} else if (faceBuf[i][j] < zBuf[x][y]) {
-//								zBuf[x][y] = faceBuf[i][j];
-//								colBuf[x][y] = face.getCol().getRGB();
-//							}
-//						} 
-//					}
-//				}
-//			}
-//		}
-//
-//		for (int i = 0; i < MainWindow._width; i++) {
-//			for (int j = 0; j < MainWindow._height; j++) {
-//				screen.setRGB(i,j, colBuf[i][j]);
-//			}
-//		}
-//	
-//		 g2.drawImage(screen, 0, 0, MainWindow._width, MainWindow._height, null);
-//		
-		
-		 
-
-//		for (int i = 0; i < sortedFace.size(); i++) {
-//			if (sortedFace.get(i).isVisible()) {
-//				g2.setColor(sortedFace.get(i).getCol());
-//				if (MainWindow.WIRE) {
-//					g2.setStroke(THIN);
-//					g2.drawPolygon(sortedFace.get(i).getPoly());
-//				} else {
-//					// g2.setStroke(THICK);
-//					// g2.drawPolygon(sortedFace.get(i).getPoly());
-//					g2.fillPolygon(sortedFace.get(i).getPoly());
-//
-//				}
-//
-//				if (MainWindow.SHOWCENT) {
-//					Position2D center = sortedFace.get(i).getPOV().getViewPoint(sortedFace.get(i).getCenter3D());
-//					g2.setColor(Color.BLACK);
-//					g2.fillArc((int) (center.getX() + Face.xOffset - 5), (int) (-center.getY() + Face.yOffset - 5), 10,
-//							10, 0, 360);
-//				}
-//
-//			}
-//
-//			if (MainWindow.DEBUG) {
-//				g2.setColor(sortedFace.get(i).getCol());
-//				g2.drawString(Boolean.toString(sortedFace.get(i).isVisible()) + " " + Double.toString(sortedFace.get(i).getPlane().getNorm().dot(sortedFace.get(i).getPOV().getPos().getDirection(sortedFace.get(i).getCenter3D()))), 100, 100 + 10 * i);
-//
-//			}
-//		}
+	public void update(Graphics g) {
+		requestFrame();
+	}
+
+	/**
+	 * Draws a frame into the back buffer and flips it. Called from the render
+	 * thread
+	 */
+	public void render() {
+		if (!isDisplayable()) {
+			return;
+		}
+
+		BufferStrategy strategy = getBufferStrategy();
+		if (strategy == null) {
+			createBufferStrategy(2);
+			strategy = getBufferStrategy();
+		}
+
+		// Cleared before drawing so a change made during the frame asks for another
+		dirty.set(false);
+
+		// Contents can be lost or restored while drawing so the frame is redone
+		// until it is shown intact
+		do {
+			do {
+				Graphics2D g2 = (Graphics2D) strategy.getDrawGraphics();
+				try {
+					draw(g2);
+				} finally {
+					g2.dispose();
+				}
+			} while (strategy.contentsRestored());
+
+			strategy.show();
+		} while (strategy.contentsLost());
+
+		Toolkit.getDefaultToolkit().sync();
+	}
+
+	/**
+	 * Draws the latest snapshot and HUD
+	 * 
+	 * @param g2 Graphics to draw on
+	 */
+	private void draw(Graphics2D g2) {
+
+		RenderSnapshot frame = snapshot.get();
+		boolean wire = MainWindow.WIRE;
+
+		if (wire) {
+			g2.setColor(getBackground());
+			g2.fillRect(0, 0, getWidth(), getHeight());
+			g2.setStroke(THIN);
+			for (int i = 0; i < frame.size(); i++) {
+				g2.setColor(new Color(frame.getPolys()[i].getRGB()));
+				g2.drawPolygon(frame.getOutline(i));
+			}
+		} else if ("scanline".equalsIgnoreCase(MainWindow.RASTER)) {
+			// Only the nearest face is written at each pixel, in whatever order faces
+			// come in
+			scanline.render(frame.getPolys(), getBackground().getRGB());
+			g2.drawImage(rasterizer.getImage(), 0, 0, null);
+		} else if ("cbuffer".equalsIgnoreCase(MainWindow.RASTER)) {
+			// Nearest faces first, each only filling the gaps left on its scanlines
+			coverage.render(frame.getPolys(), getBackground().getRGB());
+			g2.drawImage(rasterizer.getImage(), 0, 0, null);
+		} else if ("warnock".equalsIgnoreCase(MainWindow.RASTER)) {
+			// The screen is split until each region is empty, hidden by one face or
+			// small
+			warnock.render(frame.getPolys(), getBackground().getRGB());
+			g2.drawImage(rasterizer.getImage(), 0, 0, null);
+		} else {
+			// Faces are filled straight into the image raster, a tile per core, and
+			// blitted once
+			rasterizer.render(frame.getPolys(), getBackground().getRGB());
+			g2.drawImage(rasterizer.getImage(), 0, 0, null);
+		}
+
+		if (wire) {
+			shown = null;
+		} else {
+			Rasterizer target = rasterizer.getRasterizer();
+			spareIds = target.swapIds(spareIds);
+			shown = new DrawnFrame(frame, spareIds, target.getWidth(), target.getHeight());
+		}
+
+		if (MainWindow.SHOWCENT && frame.hasCenters()) {
+			g2.setColor(Color.BLACK);
+			for (int i = 0; i < frame.size(); i++) {
+				g2.fillArc((int) (frame.getCenterX(i) - 5), (int) (frame.getCenterY(i) - 5), 10, 10, 0, 360);
+			}
+		}
+
+		if (MainWindow.FPS) {
+			g2.setColor(Color.BLACK);
+			g2.setFont(HUD_FONT);
+			g2.drawString(hud + stats, 20, 30);
+		}
 
 	}
 }
@@ -0,0 +1,52 @@
+package blockrpg;
+
+/**
+ * A filled frame together with the ids the rasterizer left at its pixels. The
+ * id buffer is handed over by the rasterizer once the frame is drawn, so it
+ * stays as it is while the frame after is drawn into another one
+ */
+public class DrawnFrame {
+
+	private final RenderSnapshot frame;
+	private final int[] ids;
+	private final int width;
+	private final int height;
+
+	/**
+	 * Custom constructor for DrawnFrame
+	 *
+	 * @param frame  Snapshot that was drawn
+	 * @param ids    Index of polygon nearest at each pixel (row major), -1 if none
+	 * @param width  Width of screen in pixels
+	 * @param height Height of screen in pixels
+	 */
+	public DrawnFrame(RenderSnapshot frame, int[] ids, int width, int height) {
+		this.frame = frame;
+		this.ids = ids;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 *
+	 * @return Returns snapshot that was drawn
+	 */
+	public RenderSnapshot getFrame() {
+		return frame;
+	}
+
+	/**
+	 * Looks up the face drawn at a pixel, which is one array read
+	 *
+	 * @param x X pixel
+	 * @param y Y pixel
+	 * @return Returns face shown at pixel, null if it is background or off screen
+	 */
+	public Face pick(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return null;
+		}
+		int id = ids[y * width + x];
+		return id >= 0 && id < frame.size() ? frame.getSource(id) : null;
+	}
+}
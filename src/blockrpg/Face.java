@@ -10,8 +10,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -28,6 +28,7 @@ public class Face implements Comparable<Face> {
 
 	public static double xOffset;
 	public static double yOffset;
+	private static volatile boolean offsetSet = false;
 
 	private double bound2D;
 	private double bound2DSQ;
@@ -55,7 +56,10 @@ public class Face implements Comparable<Face> {
 	private boolean visible;
 	private boolean forceTransparent;
 	private boolean moved;
+	// Bumped every time the points are set, so sorters can tell what changed
+	private long version;
 
+	// Cached depth order against other faces, written from every sorting thread
 	private Map<Face, Integer> comps;
 
 	private Color col;
@@ -89,7 +93,7 @@ public class Face implements Comparable<Face> {
 		this.setForceTransparent(false);
 		this.moved = true;
 
-		this.comps = new HashMap<Face, Integer>();
+		this.comps = new ConcurrentHashMap<Face, Integer>();
 
 		this.col = new Color(0, 0, 0);
 	}
@@ -139,7 +143,7 @@ public class Face implements Comparable<Face> {
 		this.setForceTransparent(false);
 		this.moved = true;
 
-		this.comps = new HashMap<Face, Integer>();
+		this.comps = new ConcurrentHashMap<Face, Integer>();
 
 		this.col = new Color(0, 0, 0);
 
@@ -193,7 +197,7 @@ public class Face implements Comparable<Face> {
 		this.setForceTransparent(false);
 		this.moved = true;
 
-		this.comps = new HashMap<Face, Integer>();
+		this.comps = new ConcurrentHashMap<Face, Integer>();
 
 		this.col = new Color(col.getRGB());
 
@@ -244,7 +248,7 @@ public class Face implements Comparable<Face> {
 		this.setForceTransparent(false);
 		this.moved = true;
 
-		this.comps = new HashMap<Face, Integer>();
+		this.comps = new ConcurrentHashMap<Face, Integer>();
 
 		this.col = new Color(other.col.getRGB());
 
@@ -292,7 +296,7 @@ public class Face implements Comparable<Face> {
 		this.setForceTransparent(other.forceTransparent);
 		this.moved = other.moved;
 
-		this.comps = new HashMap<Face, Integer>();
+		this.comps = new ConcurrentHashMap<Face, Integer>();
 
 		this.col = new Color(other.col.getRGB());
 
@@ -606,6 +610,7 @@ public class Face implements Comparable<Face> {
 	public void setPoints() {
 
 		this.moved = true;
+		this.version++;
 
 		this.bound3D = 0;
 		this.bound3DSQ = 0;
@@ -664,23 +669,37 @@ public class Face implements Comparable<Face> {
 	}
 
 	/**
-	 * Sets offset of origin for the coordinate system (set to standard
+	 * Sets offset of origin for the coordinate system (set to standard). The
+	 * config is only read the first time since chunks build faces in bulk. The
+	 * flag is only raised once the offsets are written, so faces built on other
+	 * threads either read the config themselves or see the offsets it set
 	 */
 	private void setOffset() {
-		File file = new File("src\\blockrpg\\MainWindow.form");
-		DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-		DocumentBuilder documentBuilder;
-		try {
-			documentBuilder = documentBuilderFactory.newDocumentBuilder();
-			Document document = documentBuilder.parse(file);
-
-			xOffset = Integer.parseInt(document.getElementsByTagName("width").item(0).getTextContent()) / 2;
-			yOffset = Integer.parseInt(document.getElementsByTagName("height").item(0).getTextContent()) / 2;
-
-		} catch (SAXException | IOException e) {
-			e.printStackTrace();
-		} catch (ParserConfigurationException e) {
-			e.printStackTrace();
+		if (offsetSet) {
+			return;
+		}
+
+		synchronized (Face.class) {
+			if (offsetSet) {
+				return;
+			}
+
+			File file = new File("src\\blockrpg\\MainWindow.form");
+			DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+			DocumentBuilder documentBuilder;
+			try {
+				documentBuilder = documentBuilderFactory.newDocumentBuilder();
+				Document document = documentBuilder.parse(file);
+
+				xOffset = Integer.parseInt(document.getElementsByTagName("width").item(0).getTextContent()) / 2;
+				yOffset = Integer.parseInt(document.getElementsByTagName("height").item(0).getTextContent()) / 2;
+
+			} catch (SAXException | IOException e) {
+				e.printStackTrace();
+			} catch (ParserConfigurationException e) {
+				e.printStackTrace();
+			}
+			offsetSet = true;
 		}
 	}
 
@@ -739,6 +758,14 @@ public class Face implements Comparable<Face> {
 		return moved;
 	}
 
+	/**
+	 * 
+	 * @return Returns number of times the points have been set
+	 */
+	public long getVersion() {
+		return version;
+	}
+
 	/**
 	 * 
 	 * @param forceTransparent Sets forceTransparent
@@ -1266,6 +1293,76 @@ public class Face implements Comparable<Face> {
 		this.setCoords(pivot.add(dir).getCoord());
 	}
 
+	/**
+	 * Cuts face in two along a plane. Points within error of the plane are kept
+	 * on both sides, and a face lying in the plane counts as in front
+	 * 
+	 * @param splitter Plane to cut along
+	 * @return Returns pieces in front of and behind plane (null if no piece is on
+	 *         that side, the face itself if it is not cut)
+	 */
+	public Face[] split(Plane splitter) {
+		Vector3D norm = splitter.getNorm();
+		Position3D origin = splitter.getPos();
+		double[] dis = new double[this.numPoints];
+		boolean front = false;
+		boolean back = false;
+		for (int i = 0; i < this.numPoints; i++) {
+			dis[i] = norm.dot(this.truePoints[i].subtract(origin));
+			front |= dis[i] > Coord3D.ERROR;
+			back |= dis[i] < -Coord3D.ERROR;
+		}
+
+		if (!back) {
+			return new Face[] { this, null };
+		}
+		if (!front) {
+			return new Face[] { null, this };
+		}
+
+		// Points along an edge are linear on the face plane as well, so the cut is
+		// done on the relative points
+		ArrayList<Position2D> frontPoints = new ArrayList<Position2D>();
+		ArrayList<Position2D> backPoints = new ArrayList<Position2D>();
+		for (int i = 0; i < this.numPoints; i++) {
+			int j = (i + 1) % this.numPoints;
+			Position2D point = this.relPoints[i];
+			if (dis[i] >= -Coord3D.ERROR) {
+				frontPoints.add(point.clone());
+			}
+			if (dis[i] <= Coord3D.ERROR) {
+				backPoints.add(point.clone());
+			}
+
+			if ((dis[i] > Coord3D.ERROR && dis[j] < -Coord3D.ERROR)
+					|| (dis[i] < -Coord3D.ERROR && dis[j] > Coord3D.ERROR)) {
+				double t = dis[i] / (dis[i] - dis[j]);
+				Position2D next = this.relPoints[j];
+				Position2D cut = new Position2D(point.getX() + t * (next.getX() - point.getX()),
+						point.getY() + t * (next.getY() - point.getY()));
+				frontPoints.add(cut);
+				backPoints.add(cut.clone());
+			}
+		}
+
+		return new Face[] { createPiece(frontPoints), createPiece(backPoints) };
+	}
+
+	/**
+	 * 
+	 * @param points Relative points of piece on this face's plane
+	 * @return Returns face with same plane, perspective and colour
+	 */
+	private Face createPiece(ArrayList<Position2D> points) {
+		if (points.size() < 3) {
+			return null;
+		}
+		Face piece = new Face(points.toArray(new Position2D[points.size()]), points.size(), this.facePlane,
+				this.pov, this.col);
+		piece.setForceTransparent(this.forceTransparent);
+		return piece;
+	}
+
 	public double getBound2DSQ() {
 		return bound2DSQ;
 	}
@@ -0,0 +1,86 @@
+package blockrpg;
+
+/**
+ * Finds the face under a screen pixel. While a filled frame is on screen the
+ * rasterizer has already worked out the nearest face at every pixel, so the
+ * answer is read straight out of its id buffer. Wireframes leave no such
+ * buffer, so then the pixel is turned back into a ray from the perspective and
+ * cast through trees of the faces instead. Each tree is locked while a ray is
+ * cast through it, so whoever moves the faces should hold the same lock while
+ * refitting it
+ */
+public class FacePicker {
+
+	private final Drawer drawer;
+	private final Perspective pov;
+	private volatile BVH[] trees;
+
+	/**
+	 * Custom constructor for FacePicker
+	 *
+	 * @param drawer Drawer whose id buffer is read, or null to always cast rays
+	 * @param pov    Perspective pixels are seen from
+	 * @param trees  Trees of faces rays are cast through
+	 */
+	public FacePicker(Drawer drawer, Perspective pov, BVH... trees) {
+		this.drawer = drawer;
+		this.pov = pov;
+		this.trees = trees;
+	}
+
+	/**
+	 * Replaces the trees rays are cast through
+	 *
+	 * @param trees Trees of faces
+	 */
+	public void setTrees(BVH... trees) {
+		this.trees = trees;
+	}
+
+	/**
+	 * Finds the front most face under a pixel
+	 *
+	 * @param x           X pixel
+	 * @param y           Y pixel
+	 * @param maxDistance Furthest distance a ray looks
+	 * @return Returns face under pixel, null if there is none
+	 */
+	public Face pick(int x, int y, double maxDistance) {
+		DrawnFrame shown = drawer == null ? null : drawer.getShown();
+		if (shown != null) {
+			Face face = shown.pick(x, y);
+			// Once another frame is shown this buffer may be drawn into again
+			if (drawer.getShown() == shown) {
+				return face;
+			}
+		}
+		return raycast(x, y, maxDistance);
+	}
+
+	/**
+	 * Casts the ray through a pixel against every tree
+	 *
+	 * @param x           X pixel
+	 * @param y           Y pixel
+	 * @param maxDistance Furthest distance to look
+	 * @return Returns nearest face hit, null if none was
+	 */
+	public Face raycast(int x, int y, double maxDistance) {
+		Line3D ray = pov.getRay(new Position2D(x - Face.xOffset, Face.yOffset - y));
+		Position3D origin = ray.getPos();
+		Vector3D dir = ray.getDir();
+
+		Face nearest = null;
+		double nearestDistance = maxDistance;
+		for (BVH tree : trees) {
+			synchronized (tree) {
+				Face face = tree.raycast(origin, dir, nearestDistance);
+				if (face != null) {
+					nearest = face;
+					nearestDistance = BVH.hitDistance(face, origin, dir);
+				}
+			}
+		}
+		return nearest;
+	}
+}
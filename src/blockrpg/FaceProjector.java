@@ -0,0 +1,92 @@
+package blockrpg;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reprojects faces after the perspective they are seen from has moved. Each
+ * face only reads its own plane and the shared perspective, so batches of faces
+ * are reprojected on every core at once
+ */
+public class FaceProjector {
+
+	// Faces per task, enough that a batch outweighs the cost of forking it
+	public static final int BATCH_SIZE = 512;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Default constructor for FaceProjector using the common pool
+	 */
+	public FaceProjector() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Custom constructor for FaceProjector
+	 *
+	 * @param pool Pool faces are projected on
+	 */
+	public FaceProjector(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Sets the points of every face. The perspective must not move until this
+	 * returns
+	 *
+	 * @param faces Faces to reproject
+	 */
+	public void project(List<Face> faces) {
+		project(faces.toArray(new Face[faces.size()]));
+	}
+
+	/**
+	 * Sets the points of every face. The perspective must not move until this
+	 * returns
+	 *
+	 * @param faces Faces to reproject
+	 */
+	public void project(Face[] faces) {
+		if (faces.length <= BATCH_SIZE) {
+			for (Face face : faces) {
+				face.setPoints();
+			}
+			return;
+		}
+
+		pool.invoke(new ProjectTask(faces, 0, faces.length));
+	}
+
+	/**
+	 * Splits a range of faces in half until it fits in a batch
+	 */
+	private static class ProjectTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -6383017563386542851L;
+
+		private final Face[] faces;
+		private final int lo;
+		private final int hi;
+
+		ProjectTask(Face[] faces, int lo, int hi) {
+			this.faces = faces;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo <= BATCH_SIZE) {
+				for (int i = lo; i < hi; i++) {
+					faces[i].setPoints();
+				}
+				return;
+			}
+
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new ProjectTask(faces, lo, mid), new ProjectTask(faces, mid, hi));
+		}
+	}
+}
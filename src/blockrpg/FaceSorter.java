@@ -0,0 +1,298 @@
+package blockrpg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Depth sorts faces with a fork/join merge sort. Halves above a threshold are
+ * sorted in parallel, and large merges are split around a pivot found by
+ * binary search so the merge itself also runs on every core. Faces compare
+ * back to front the same way Face.sort does, and the sort is stable
+ */
+public class FaceSorter implements VisibilityEngine {
+
+	// Default sizes at or below which ranges are sorted and merged on one thread
+	public static final int SORT_THRESHOLD = 256;
+	public static final int MERGE_THRESHOLD = 1024;
+
+	private final ForkJoinPool pool;
+	private final int sortThreshold;
+	private final int mergeThreshold;
+
+	private List<Face> staticFaces;
+
+	/**
+	 * Default constructor for FaceSorter using the common pool
+	 */
+	public FaceSorter() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Custom constructor for FaceSorter
+	 *
+	 * @param pool Pool faces are sorted on
+	 */
+	public FaceSorter(ForkJoinPool pool) {
+		this(pool, SORT_THRESHOLD, MERGE_THRESHOLD);
+	}
+
+	/**
+	 * Custom constructor for FaceSorter
+	 *
+	 * @param pool           Pool faces are sorted on
+	 * @param sortThreshold  Largest range sorted on one thread
+	 * @param mergeThreshold Largest merge done on one thread
+	 */
+	public FaceSorter(ForkJoinPool pool, int sortThreshold, int mergeThreshold) {
+		this.pool = pool;
+		this.sortThreshold = Math.max(1, sortThreshold);
+		this.mergeThreshold = Math.max(1, mergeThreshold);
+		this.staticFaces = new ArrayList<Face>();
+	}
+
+	@Override
+	public void setStaticFaces(List<Face> faces) {
+		this.staticFaces = faces;
+	}
+
+	@Override
+	public List<Face> getStaticFaces() {
+		return staticFaces;
+	}
+
+	/**
+	 * Sorts static and moving faces together, since a plain sort has nothing to
+	 * gain from knowing which is which
+	 */
+	@Override
+	public ArrayList<Face> order(List<Face> faces, Perspective pov) {
+		ArrayList<Face> all = new ArrayList<Face>(staticFaces.size() + faces.size());
+		all.addAll(staticFaces);
+		all.addAll(faces);
+		return sort(all);
+	}
+
+	/**
+	 * Sorts faces back to front
+	 *
+	 * @param faces Faces to sort
+	 * @return Returns new sorted list
+	 */
+	public ArrayList<Face> sort(List<Face> faces) {
+		Face[] sorted = faces.toArray(new Face[faces.size()]);
+		sort(sorted);
+		return new ArrayList<Face>(Arrays.asList(sorted));
+	}
+
+	/**
+	 * Sorts faces back to front in place
+	 *
+	 * @param faces Faces to sort
+	 */
+	public void sort(Face[] faces) {
+		if (faces.length < 2) {
+			return;
+		}
+
+		Face[] buf = new Face[faces.length];
+		if (faces.length <= sortThreshold) {
+			sortRange(faces, buf, 0, faces.length);
+		} else {
+			pool.invoke(new SortTask(faces, buf, 0, faces.length));
+		}
+	}
+
+	/**
+	 * Sorts a range on the calling thread
+	 *
+	 * @param faces Faces to sort
+	 * @param buf   Scratch space as long as faces
+	 * @param lo    First index of range
+	 * @param hi    One past last index of range
+	 */
+	private static void sortRange(Face[] faces, Face[] buf, int lo, int hi) {
+		if (hi - lo < 2) {
+			return;
+		}
+
+		int mid = (lo + hi) >>> 1;
+		sortRange(faces, buf, lo, mid);
+		sortRange(faces, buf, mid, hi);
+
+		// Already in order, which is common when little moved since last frame
+		if (faces[mid - 1].compareTo(faces[mid]) <= 0) {
+			return;
+		}
+
+		System.arraycopy(faces, lo, buf, lo, hi - lo);
+		merge(buf, lo, mid, buf, mid, hi, faces, lo);
+	}
+
+	/**
+	 * Merges two sorted ranges on the calling thread, taking from the left one
+	 * on ties
+	 *
+	 * @param left    Array holding left range
+	 * @param leftLo  First index of left range
+	 * @param leftHi  One past last index of left range
+	 * @param right   Array holding right range
+	 * @param rightLo First index of right range
+	 * @param rightHi One past last index of right range
+	 * @param out     Array to merge into
+	 * @param outLo   First index to write
+	 */
+	private static void merge(Face[] left, int leftLo, int leftHi, Face[] right, int rightLo, int rightHi, Face[] out,
+			int outLo) {
+		int l = leftLo;
+		int r = rightLo;
+		int o = outLo;
+		while (l < leftHi && r < rightHi) {
+			if (left[l].compareTo(right[r]) <= 0) {
+				out[o++] = left[l++];
+			} else {
+				out[o++] = right[r++];
+			}
+		}
+		while (l < leftHi) {
+			out[o++] = left[l++];
+		}
+		while (r < rightHi) {
+			out[o++] = right[r++];
+		}
+	}
+
+	/**
+	 *
+	 * @param faces Sorted faces
+	 * @param lo    First index of range
+	 * @param hi    One past last index of range
+	 * @param pivot Face to place
+	 * @return Returns first index in range whose face does not sort before pivot
+	 */
+	private static int lowerBound(Face[] faces, int lo, int hi, Face pivot) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (faces[mid].compareTo(pivot) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 *
+	 * @param faces Sorted faces
+	 * @param lo    First index of range
+	 * @param hi    One past last index of range
+	 * @param pivot Face to place
+	 * @return Returns first index in range whose face sorts after pivot
+	 */
+	private static int upperBound(Face[] faces, int lo, int hi, Face pivot) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (pivot.compareTo(faces[mid]) < 0) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Sorts both halves of a range in parallel then merges them
+	 */
+	private class SortTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 2915208419387204766L;
+
+		private final Face[] faces;
+		private final Face[] buf;
+		private final int lo;
+		private final int hi;
+
+		SortTask(Face[] faces, Face[] buf, int lo, int hi) {
+			this.faces = faces;
+			this.buf = buf;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo <= sortThreshold) {
+				sortRange(faces, buf, lo, hi);
+				return;
+			}
+
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new SortTask(faces, buf, lo, mid), new SortTask(faces, buf, mid, hi));
+
+			if (faces[mid - 1].compareTo(faces[mid]) <= 0) {
+				return;
+			}
+
+			System.arraycopy(faces, lo, buf, lo, hi - lo);
+			new MergeTask(buf, lo, mid, mid, hi, faces, lo).invoke();
+		}
+	}
+
+	/**
+	 * Merges two sorted ranges by splitting the larger one at its middle and the
+	 * smaller one where that middle face belongs, then merging both sides at once
+	 */
+	private class MergeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -1930714480591629553L;
+
+		private final Face[] src;
+		private final int leftLo;
+		private final int leftHi;
+		private final int rightLo;
+		private final int rightHi;
+		private final Face[] out;
+		private final int outLo;
+
+		MergeTask(Face[] src, int leftLo, int leftHi, int rightLo, int rightHi, Face[] out, int outLo) {
+			this.src = src;
+			this.leftLo = leftLo;
+			this.leftHi = leftHi;
+			this.rightLo = rightLo;
+			this.rightHi = rightHi;
+			this.out = out;
+			this.outLo = outLo;
+		}
+
+		@Override
+		protected void compute() {
+			int leftLen = leftHi - leftLo;
+			int rightLen = rightHi - rightLo;
+			if (leftLen + rightLen <= mergeThreshold || leftLen == 0 || rightLen == 0) {
+				merge(src, leftLo, leftHi, src, rightLo, rightHi, out, outLo);
+				return;
+			}
+
+			// Ties keep left faces first, so the split point in the other range is a
+			// lower bound when the pivot is from the left and an upper bound otherwise
+			int leftMid;
+			int rightMid;
+			if (leftLen >= rightLen) {
+				leftMid = (leftLo + leftHi) >>> 1;
+				rightMid = lowerBound(src, rightLo, rightHi, src[leftMid]);
+			} else {
+				rightMid = (rightLo + rightHi) >>> 1;
+				leftMid = upperBound(src, leftLo, leftHi, src[rightMid]);
+			}
+
+			int outMid = outLo + (leftMid - leftLo) + (rightMid - rightLo);
+			invokeAll(new MergeTask(src, leftLo, leftMid, rightLo, rightMid, out, outLo),
+					new MergeTask(src, leftMid, leftHi, rightMid, rightHi, out, outMid));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package blockrpg;
+
+/**
+ * Volume seen by a perspective, used to reject geometry that can not end up on
+ * screen
+ */
+public class Frustum {
+
+	private final double[] origin;
+	// Inward facing plane normals (near, left, right, bottom, top) through origin
+	private final double[][] norms;
+	private final int numPlanes;
+
+	/**
+	 * Custom constructor for Frustum
+	 *
+	 * @param pov        Perspective to build frustum from
+	 * @param halfWidth  Half of the screen width in view units
+	 * @param halfHeight Half of the screen height in view units
+	 */
+	public Frustum(Perspective pov, double halfWidth, double halfHeight) {
+		this.origin = pov.getPos().getCoord();
+		this.norms = new double[5][];
+
+		double[] dir = pov.getDir().getCoord();
+		double[] tilt = pov.getTilt().getCoord();
+		double[] norm = pov.getNorm().getCoord();
+
+		norms[0] = dir;
+
+		double a = halfWidth / pov.getZoom();
+		double b = halfHeight / pov.getZoom();
+		double den = 1 - a * a - b * b;
+
+		if (den <= Coord3D.ERROR) {
+			// View wraps past the sides so only the near plane is meaningful
+			this.numPlanes = 1;
+			return;
+		}
+
+		// Points are divided by their distance when projected, so the screen corner
+		// bounds become slopes against the view direction
+		double slopeX = a / Math.sqrt(den);
+		double slopeY = b / Math.sqrt(den);
+
+		norms[1] = new double[3];
+		norms[2] = new double[3];
+		norms[3] = new double[3];
+		norms[4] = new double[3];
+		for (int i = 0; i < 3; i++) {
+			norms[1][i] = slopeX * dir[i] - tilt[i];
+			norms[2][i] = slopeX * dir[i] + tilt[i];
+			norms[3][i] = slopeY * dir[i] + norm[i];
+			norms[4][i] = slopeY * dir[i] - norm[i];
+		}
+		this.numPlanes = 5;
+	}
+
+	/**
+	 *
+	 * @param pos Point to check
+	 * @return Returns true if point is inside frustum
+	 */
+	public boolean contains(Position3D pos) {
+		return intersectsSphere(pos, 0);
+	}
+
+	/**
+	 *
+	 * @param center Center of sphere
+	 * @param radius Radius of sphere
+	 * @return Returns true if sphere may be inside frustum
+	 */
+	public boolean intersectsSphere(Position3D center, double radius) {
+		double x = center.getX() - origin[0];
+		double y = center.getY() - origin[1];
+		double z = center.getZ() - origin[2];
+		for (int i = 0; i < numPlanes; i++) {
+			double[] n = norms[i];
+			double len = Math.sqrt(n[0] * n[0] + n[1] * n[1] + n[2] * n[2]);
+			if (n[0] * x + n[1] * y + n[2] * z < -radius * len) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks an axis aligned box against frustum by testing the corner furthest
+	 * along each plane normal
+	 *
+	 * @param minX Lowest x of box
+	 * @param minY Lowest y of box
+	 * @param minZ Lowest z of box
+	 * @param maxX Highest x of box
+	 * @param maxY Highest y of box
+	 * @param maxZ Highest z of box
+	 * @return Returns true if box may be inside frustum
+	 */
+	public boolean intersectsBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		for (int i = 0; i < numPlanes; i++) {
+			double[] n = norms[i];
+			double x = (n[0] >= 0 ? maxX : minX) - origin[0];
+			double y = (n[1] >= 0 ? maxY : minY) - origin[1];
+			double z = (n[2] >= 0 ? maxZ : minZ) - origin[2];
+			if (n[0] * x + n[1] * y + n[2] * z < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
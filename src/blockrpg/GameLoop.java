@@ -0,0 +1,127 @@
+package blockrpg;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed timestep game loop. Time that has passed is added to an accumulator
+ * and the simulation is stepped in fixed ticks until it catches up, so motion
+ * does not depend on how fast the machine is. Whatever is left over is passed
+ * on as the fraction to interpolate by when drawing, and the thread parks
+ * between frames instead of spinning
+ */
+public class GameLoop implements Runnable {
+
+	// Frames longer than this are cut short so a stall does not spiral into ever
+	// more ticks
+	public static final long MAX_FRAME = 250000000L;
+
+	/**
+	 * Game state that is stepped by a GameLoop
+	 */
+	public interface Simulation {
+
+		/**
+		 * Advances the simulation by one tick
+		 *
+		 * @param dt Length of a tick in seconds
+		 */
+		void update(double dt);
+
+		/**
+		 * Publishes a frame between the previous and current tick
+		 *
+		 * @param alpha Fraction of a tick past the current one, from 0 to 1
+		 */
+		void render(double alpha);
+	}
+
+	private final Simulation sim;
+	private final long tickPeriod;
+	private final long framePeriod;
+	private final double dt;
+
+	private long accumulator;
+	private long ticks;
+	private volatile boolean running;
+
+	/**
+	 * Custom constructor for GameLoop
+	 *
+	 * @param sim            Simulation to step
+	 * @param ticksPerSecond Simulation ticks per second
+	 * @param targetFps      Frames per second to aim for
+	 */
+	public GameLoop(Simulation sim, int ticksPerSecond, int targetFps) {
+		this.sim = sim;
+		this.tickPeriod = 1000000000L / ticksPerSecond;
+		this.framePeriod = 1000000000L / targetFps;
+		this.dt = 1.0 / ticksPerSecond;
+		this.running = true;
+	}
+
+	@Override
+	public void run() {
+		long prevTime = System.nanoTime();
+		long nextFrame = prevTime;
+
+		while (running) {
+			long currTime = System.nanoTime();
+			advance(currTime - prevTime);
+			prevTime = currTime;
+
+			// Sleep off the rest of the frame, but never try to catch up on frames that
+			// were missed
+			nextFrame += framePeriod;
+			long wait = nextFrame - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			} else {
+				nextFrame = System.nanoTime();
+			}
+		}
+	}
+
+	/**
+	 * Runs every tick that fits in the time passed then renders once
+	 *
+	 * @param elapsed Nanoseconds since last frame
+	 * @return Returns number of ticks run
+	 */
+	public int advance(long elapsed) {
+		accumulator += Math.min(Math.max(elapsed, 0), MAX_FRAME);
+
+		int num = 0;
+		while (accumulator >= tickPeriod) {
+			sim.update(dt);
+			accumulator -= tickPeriod;
+			ticks++;
+			num++;
+		}
+
+		sim.render((double) accumulator / tickPeriod);
+		return num;
+	}
+
+	/**
+	 *
+	 * @return Returns total ticks run
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 *
+	 * @return Returns length of a tick in seconds
+	 */
+	public double getDT() {
+		return dt;
+	}
+
+	/**
+	 * Stops the loop after the current frame
+	 */
+	public void stop() {
+		running = false;
+	}
+}
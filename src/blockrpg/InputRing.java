@@ -0,0 +1,124 @@
+package blockrpg;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed size ring of timestamped key events passed from one producer thread
+ * (the event dispatch thread) to one consumer thread (the game loop) without
+ * locks. Each side only ever writes its own counter, and the event slots are
+ * plain arrays so nothing is allocated per event
+ */
+public class InputRing {
+
+	/**
+	 * Receives events drained from a ring
+	 */
+	public interface Handler {
+
+		/**
+		 * @param time    Time of event from System.nanoTime
+		 * @param code    Key code of event
+		 * @param pressed True if key was pressed, false if released
+		 */
+		void onEvent(long time, int code, boolean pressed);
+	}
+
+	private final long[] times;
+	private final int[] codes;
+	private final boolean[] pressed;
+	private final int mask;
+
+	// Next slot to read, only written by the consumer
+	private final AtomicLong head;
+	// Next slot to write, only written by the producer
+	private final AtomicLong tail;
+	private final AtomicLong dropped;
+
+	/**
+	 * Custom constructor for InputRing
+	 *
+	 * @param capacity Most events held at once, rounded up to a power of two
+	 */
+	public InputRing(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.times = new long[size];
+		this.codes = new int[size];
+		this.pressed = new boolean[size];
+		this.mask = size - 1;
+
+		this.head = new AtomicLong();
+		this.tail = new AtomicLong();
+		this.dropped = new AtomicLong();
+	}
+
+	/**
+	 * Adds an event. Only called from the producer thread
+	 *
+	 * @param time    Time of event from System.nanoTime
+	 * @param code    Key code of event
+	 * @param pressed True if key was pressed, false if released
+	 * @return Returns false if the ring was full and the event was not added
+	 */
+	public boolean offer(long time, int code, boolean pressed) {
+		long t = tail.get();
+		if (t - head.get() > mask) {
+			dropped.incrementAndGet();
+			return false;
+		}
+
+		int index = (int) (t & mask);
+		this.times[index] = time;
+		this.codes[index] = code;
+		this.pressed[index] = pressed;
+
+		// Ordered store publishes the slot before the consumer can see the new tail
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * Passes every waiting event to a handler in the order they were added. Only
+	 * called from the consumer thread
+	 *
+	 * @param handler Handler to receive events
+	 * @return Returns number of events drained
+	 */
+	public int drain(Handler handler) {
+		long h = head.get();
+		long t = tail.get();
+		int num = 0;
+		for (; h < t; h++) {
+			int index = (int) (h & mask);
+			handler.onEvent(times[index], codes[index], pressed[index]);
+			num++;
+		}
+
+		// Slots are only handed back once they have been read
+		head.lazySet(h);
+		return num;
+	}
+
+	/**
+	 *
+	 * @return Returns number of events waiting
+	 */
+	public int size() {
+		return (int) (tail.get() - head.get());
+	}
+
+	/**
+	 *
+	 * @return Returns most events held at once
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 *
+	 * @return Returns number of events turned away because the ring was full
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+}
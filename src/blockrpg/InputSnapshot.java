@@ -0,0 +1,119 @@
+package blockrpg;
+
+/**
+ * State of the keyboard for one simulation tick. Besides which keys are held,
+ * it remembers every key that went down during the tick, so a tap shorter than
+ * a tick is still seen. Nothing in a snapshot changes once it is built
+ */
+public class InputSnapshot {
+
+	// Key codes at or past this are not tracked
+	public static final int KEY_COUNT = 512;
+
+	public static final InputSnapshot EMPTY = new InputSnapshot(new long[KEY_COUNT / 64],
+			new long[KEY_COUNT / 64], 0, 0, 0);
+
+	private final long[] down;
+	private final long[] pressed;
+	private final int numEvents;
+	private final long oldestEvent;
+	private final long newestEvent;
+
+	/**
+	 * Custom constructor for InputSnapshot
+	 *
+	 * @param down        Bits of keys held at end of tick
+	 * @param pressed     Bits of keys pressed during tick
+	 * @param numEvents   Number of events in tick
+	 * @param oldestEvent Time of first event in tick
+	 * @param newestEvent Time of last event in tick
+	 */
+	public InputSnapshot(long[] down, long[] pressed, int numEvents, long oldestEvent, long newestEvent) {
+		this.down = down;
+		this.pressed = pressed;
+		this.numEvents = numEvents;
+		this.oldestEvent = oldestEvent;
+		this.newestEvent = newestEvent;
+	}
+
+	/**
+	 *
+	 * @param bits Bit set to check
+	 * @param code Key code
+	 * @return Returns true if bit of key code is set
+	 */
+	private static boolean isSet(long[] bits, int code) {
+		return code >= 0 && code < KEY_COUNT && (bits[code >>> 6] & (1L << code)) != 0;
+	}
+
+	/**
+	 *
+	 * @param code Key code
+	 * @return Returns true if key is held at end of tick
+	 */
+	public boolean isDown(int code) {
+		return isSet(down, code);
+	}
+
+	/**
+	 *
+	 * @param code Key code
+	 * @return Returns true if key went down during tick
+	 */
+	public boolean wasPressed(int code) {
+		return isSet(pressed, code);
+	}
+
+	/**
+	 *
+	 * @param code Key code
+	 * @return Returns true if key is held or was tapped during tick
+	 */
+	public boolean isActive(int code) {
+		return isDown(code) || wasPressed(code);
+	}
+
+	/**
+	 * Reads a pair of opposing keys as one axis
+	 *
+	 * @param positive Key code for positive direction
+	 * @param negative Key code for negative direction
+	 * @return Returns 1, -1 or 0 if both or neither are active
+	 */
+	public int getAxis(int positive, int negative) {
+		return (isActive(positive) ? 1 : 0) - (isActive(negative) ? 1 : 0);
+	}
+
+	/**
+	 *
+	 * @return Returns number of events in tick
+	 */
+	public int getNumEvents() {
+		return numEvents;
+	}
+
+	/**
+	 *
+	 * @return Returns time of first event in tick
+	 */
+	public long getOldestEvent() {
+		return oldestEvent;
+	}
+
+	/**
+	 *
+	 * @return Returns time of last event in tick
+	 */
+	public long getNewestEvent() {
+		return newestEvent;
+	}
+
+	/**
+	 *
+	 * @param now Current time from System.nanoTime
+	 * @return Returns nanoseconds the oldest event of tick has waited, 0 if none
+	 */
+	public long getLatency(long now) {
+		return numEvents == 0 ? 0 : now - oldestEvent;
+	}
+}
@@ -3,13 +3,26 @@ package blockrpg;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 
-public class KeyInput implements KeyListener {
-
-	public double test = 0;
-
-	public double test2 = 0;
-
-	public double test3 = 0;
+/**
+ * Queues key events from the event dispatch thread so the game loop can read
+ * them once per tick as an InputSnapshot
+ */
+public class KeyInput implements KeyListener, InputRing.Handler {
+
+	private final InputRing ring;
+
+	// Only touched by the thread that polls
+	private final long[] down;
+	private long[] pressed;
+	private int numEvents;
+	private long oldestEvent;
+	private long newestEvent;
+
+	public KeyInput() {
+		ring = new InputRing(1024);
+		down = new long[InputSnapshot.KEY_COUNT / 64];
+		pressed = new long[InputSnapshot.KEY_COUNT / 64];
+	}
 
 	@Override
 	public void keyPressed(KeyEvent e) {
@@ -17,45 +30,72 @@ public class KeyInput implements KeyListener {
 			System.exit(0);
 		}
 
-		if (e.getKeyCode() == KeyEvent.VK_E) {
-			test = 0.01;
-		} else if (e.getKeyCode() == KeyEvent.VK_Q) {
-			test = -0.01;
-		}
+		record(System.nanoTime(), e.getKeyCode(), true);
+	}
 
-		if (e.getKeyCode() == KeyEvent.VK_A) {
-			test2 = 12;
-		} else if (e.getKeyCode() == KeyEvent.VK_D) {
-			test2 = -12;
-		}
+	@Override
+	public void keyReleased(KeyEvent e) {
+		record(System.nanoTime(), e.getKeyCode(), false);
+	}
 
-		if (e.getKeyCode() == KeyEvent.VK_W) {
-			test3 = -12;
-		} else if (e.getKeyCode() == KeyEvent.VK_S) {
-			test3 = 12;
-		}
+	@Override
+	public void keyTyped(KeyEvent e) {
+		// TODO Auto-generated method stub
+
+	}
+
+	/**
+	 * Queues a key event. Only called from one thread
+	 * 
+	 * @param time    Time of event from System.nanoTime
+	 * @param code    Key code of event
+	 * @param pressed True if key was pressed, false if released
+	 */
+	public void record(long time, int code, boolean pressed) {
+		ring.offer(time, code, pressed);
+	}
 
+	/**
+	 * Applies every queued event and captures the result. Only called from the
+	 * game loop
+	 * 
+	 * @return Returns input for this tick
+	 */
+	public InputSnapshot poll() {
+		numEvents = 0;
+		ring.drain(this);
+
+		InputSnapshot snapshot = new InputSnapshot(down.clone(), pressed, numEvents, oldestEvent, newestEvent);
+		pressed = new long[InputSnapshot.KEY_COUNT / 64];
+		return snapshot;
 	}
 
 	@Override
-	public void keyReleased(KeyEvent e) {
-		if (e.getKeyCode() == KeyEvent.VK_Q || e.getKeyCode() == KeyEvent.VK_E) {
-			test = 0;
+	public void onEvent(long time, int code, boolean pressed) {
+		if (numEvents == 0) {
+			oldestEvent = time;
 		}
+		newestEvent = time;
+		numEvents++;
 
-		if (e.getKeyCode() == KeyEvent.VK_D || e.getKeyCode() == KeyEvent.VK_A) {
-			test2 = 0;
+		if (code < 0 || code >= InputSnapshot.KEY_COUNT) {
+			return;
 		}
 
-		if (e.getKeyCode() == KeyEvent.VK_W || e.getKeyCode() == KeyEvent.VK_S) {
-			test3 = 0;
+		if (pressed) {
+			this.down[code >>> 6] |= 1L << code;
+			this.pressed[code >>> 6] |= 1L << code;
+		} else {
+			this.down[code >>> 6] &= ~(1L << code);
 		}
 	}
 
-	@Override
-	public void keyTyped(KeyEvent e) {
-		// TODO Auto-generated method stub
-
+	/**
+	 * 
+	 * @return Returns queue events are passed through
+	 */
+	public InputRing getRing() {
+		return ring;
 	}
 
 }
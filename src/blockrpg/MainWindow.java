@@ -7,16 +7,17 @@ package blockrpg;
 
 import java.awt.Color;
 import java.awt.Dimension;
-import java.awt.Font;
 import java.awt.Toolkit;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.List;
 
-import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -44,10 +45,18 @@ public class MainWindow extends javax.swing.JFrame {
 	public static int _height;
 	private int zoom;
 
+	// Simulation ticks and drawn frames per second
+	public static final int TICK_RATE = 120;
+	public static final int FRAME_RATE = 144;
+
 	public static boolean FPS;
 	public static boolean DEBUG;
 	public static boolean WIRE;
 	public static boolean SHOWCENT;
+	public static boolean ONDEMAND;
+	public static String ENGINE = "sort";
+	public static String RASTER = "tiles";
+	public static boolean OCCLUSION;
 
 	private ArrayList<Face> faces;
 
@@ -78,6 +87,17 @@ public class MainWindow extends javax.swing.JFrame {
 			DEBUG = Boolean.parseBoolean(document.getElementsByTagName("debug").item(0).getTextContent());
 			WIRE = Boolean.parseBoolean(document.getElementsByTagName("wire").item(0).getTextContent());
 			SHOWCENT = Boolean.parseBoolean(document.getElementsByTagName("center").item(0).getTextContent());
+			// Older configs do not have this tag, so they keep drawing every frame
+			ONDEMAND = document.getElementsByTagName("ondemand").getLength() > 0 && Boolean
+					.parseBoolean(document.getElementsByTagName("ondemand").item(0).getTextContent());
+			if (document.getElementsByTagName("engine").getLength() > 0) {
+				ENGINE = document.getElementsByTagName("engine").item(0).getTextContent().trim();
+			}
+			if (document.getElementsByTagName("raster").getLength() > 0) {
+				RASTER = document.getElementsByTagName("raster").item(0).getTextContent().trim();
+			}
+			OCCLUSION = document.getElementsByTagName("occlusion").getLength() > 0 && Boolean
+					.parseBoolean(document.getElementsByTagName("occlusion").item(0).getTextContent());
 			if (_width != Toolkit.getDefaultToolkit().getScreenSize().getWidth()
 					|| _height != Toolkit.getDefaultToolkit().getScreenSize().getHeight()) {
 
@@ -122,11 +142,11 @@ public class MainWindow extends javax.swing.JFrame {
 		setVisible(true);
 
 		gamePanel = new Drawer();
-		fps = new JLabel();
 
 		setDefaultCloseOperation(javax.swing.WindowConstants.EXIT_ON_CLOSE);
 		setTitle("BlockRPG");
 		setResizable(false);
+		setIgnoreRepaint(true);
 		gamePanel.setBackground(new java.awt.Color(242, 242, 242));
 		gamePanel.setSize(_width, _height);
 		gamePanel.setPreferredSize(new Dimension(_width, _height));
@@ -153,17 +173,9 @@ public class MainWindow extends javax.swing.JFrame {
 		// javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE,
 		// Short.MAX_VALUE));
 
-		fps.setForeground(Color.BLACK);
-		fps.setFont(new Font("Arial", Font.BOLD, 11));
-		fps.setBounds(20, 10, 50, 40);
-
 		input = new KeyInput();
 		gamePanel.addKeyListener(input);
-		if (FPS) {
-			gamePanel.add(fps);
-		}
-		gamePanel.setLayout(null);
-		//gamePanel.setList(faces);
+		gamePanel.setList(faces);
 		gamePanel.requestFocus();
 		pack();
 	}
@@ -211,36 +223,13 @@ public class MainWindow extends javax.swing.JFrame {
 
 		});
 
-		Timer paintingThread = new Timer();
-		paintingThread.scheduleAtFixedRate(new TimerTask() {
-
-			@Override
-			public void run() {
-
-				// prism.addY(-3000);
-				// prism.rotate(Math.PI, axis);
-
-				// prevTick = System.nanoTime();
-
-				window.gamePanel.repaint();
-
-				// currTick = System.nanoTime();
-				// window.fps.setText("FPS: " + Long.toString(1000000000 / (currTick -
-				// prevTick)));
-			}
-
-		}, 0, 7);
+		// Frames are presented from their own thread instead of piling repaints onto
+		// the EDT
+		Thread renderThread = new Thread(new RenderLoop(window.gamePanel, FRAME_RATE, ONDEMAND), "Render");
+		renderThread.setDaemon(true);
 
 		thread.start();
-	}
-
-	private void paint() {
-		if (faces != null) {
-			java.awt.EventQueue.invokeLater(() -> {
-				gamePanel.repaint();
-
-			});
-		}
+		renderThread.start();
 	}
 
 	private void testFunc2() {
@@ -261,63 +250,180 @@ public class MainWindow extends javax.swing.JFrame {
 			prisms[i].setY(-1250 * (i - 2));
 		}
 
+		ArrayList<Face> shapeFaces = new ArrayList<Face>();
 		for (int i = 0; i < 6; i++) {
 			prism.setCol(new Color(50 * i, 200 - 15 * i, 210 - 30 * i), i);
-			faces.add(prism.getFaces()[i]);
+			shapeFaces.add(prism.getFaces().get(i));
 			for (int j = 0; j < 5; j++) {
-				faces.add(prisms[j].getFaces()[i]);
+				shapeFaces.add(prisms[j].getFaces().get(i));
 				prisms[j].setCol(new Color(50 * i, 15 * j + 10 * i, 12 * j + 15 * i), i);
 			}
 
 		}
+
+		// Ground is kept in a voxel world so edits only re-mesh the touched chunks
+		World world = new World(pov);
+		for (int x = -4; x <= 4; x++) {
+			for (int y = -4; y <= 4; y++) {
+				world.setBlock(x, y, -3, new Color(90, 140 + 5 * x, 60 + 5 * y));
+			}
+		}
+		world.flush();
+
+		// Shape faces are kept in a tree so culling and picking do not check every one.
+		// The ground has its own tree for picking through wireframes, which is kept
+		// in step with the chunk meshes as they are swapped in
+		BVH shapeTree = new BVH(shapeFaces);
+		BVH groundTree = new BVH();
+		FacePicker picker = new FacePicker(gamePanel, pov, shapeTree, groundTree);
+
+		// Left click breaks the block under the mouse, right click places one against
+		// it and middle click shows where the face under the mouse is
+		gamePanel.addMouseListener(new MouseAdapter() {
+
+			@Override
+			public void mousePressed(MouseEvent e) {
+				if (SwingUtilities.isMiddleMouseButton(e)) {
+					Face face = picker.pick(e.getX(), e.getY(), 64 * World.BLOCK_SIZE);
+					gamePanel.setHud(face == null ? "" : "Face: " + face.getCenter3D() + " ");
+					return;
+				}
+
+				RayHit hit = world.pick(e.getX(), e.getY(), 64 * World.BLOCK_SIZE);
+				if (hit == null) {
+					return;
+				}
+
+				if (SwingUtilities.isLeftMouseButton(e)) {
+					world.removeBlock(hit.getX(), hit.getY(), hit.getZ());
+				} else if (SwingUtilities.isRightMouseButton(e) && hit.getFace() != null) {
+					world.setBlock(hit.getX() + hit.getFace().getDX(), hit.getY() + hit.getFace().getDY(),
+							hit.getZ() + hit.getFace().getDZ(), new Color(hit.getBlock()));
+				}
+			}
+
+		});
+		faces.addAll(shapeFaces);
+		faces.addAll(world.getVisibleFaces(new Frustum(pov, Face.xOffset, Face.yOffset)));
 		Vector3D axis = new Vector3D(0, 1, 0);
 
 		// prism.addY(-3000);
 		// prism.rotate(Math.PI, axis);
 		Collections.sort(faces, new FirstFaceCompare());
 
-		Long prevTick = System.nanoTime();
-		Long currTick = System.nanoTime();
-		while (true) {
-			prevTick = System.nanoTime();
-			prism.addY(input.test2);
-			prism.addX(input.test3);
-			// pov.orbit(input.test, axis, prism.getCenter());
-			prism.rotate(input.test, axis);
-//			for (int i = 0; i < faces.size(); i++) {
-//				for (int j = 0; j < faces.size(); j++) {
-//					if ((faces.get(i).checkMoved() || faces.get(j).checkMoved()) && i != j
-//							&& (faces.get(i).getCenter2D().totDistanceFrom(faces.get(j).getCenter2D())
-//									- faces.get(i).getBound2D() - faces.get(j).getBound2D() < 0)) {
-//						int coverCheck = faces.get(i).checkCover(faces.get(j));
-//						if (coverCheck != 2) {
-//							if (coverCheck < 0) {
-//								faces.get(i).setVisible(false);
-//								faces.get(index)
-//								break;
-//							} else {
-//								faces.get(i).setVisible(true);
-//							}
-//						} else {
-//							faces.get(i).setVisible(true);
-//						}
-//					}
-//				}
-//			}
-			faces = Face.sort(faces, 0, faces.size() - 1);
-			for (Face face : faces) {
-				face.setMoved(false);
-			}
-			//gamePanel.setList(faces);
-			java.awt.EventQueue.invokeLater(() -> {
+		// Steps at a fixed rate so motion no longer depends on how fast the loop
+		// spins, and draws in between ticks
+		GameLoop loop = new GameLoop(new GameLoop.Simulation() {
 
-				gamePanel.repaint();
+			// Starts out of date so the first tick hands the ground to the engine
+			private long worldVersion = -1;
+			private Perspective lastPov = pov.clone();
+			private FaceProjector projector = new FaceProjector();
+			private VisibilityEngine engine = VisibilityEngine.create(ENGINE);
+			private OcclusionCuller culler = new OcclusionCuller(_width, _height);
+			private RenderSnapshot prev;
+			private RenderSnapshot curr;
 
-			});
+			@Override
+			public void update(double dt) {
+				InputSnapshot keys = input.poll();
+				if (FPS && keys.getNumEvents() > 0) {
+					gamePanel.setHud("Input: " + keys.getLatency(System.nanoTime()) / 1000 + "us ");
+				}
 
-			currTick = System.nanoTime();
-			fps.setText("FPS: " + Long.toString(1000000000 / (currTick - prevTick)));
-		}
+				double spin = 0.01 * keys.getAxis(KeyEvent.VK_E, KeyEvent.VK_Q);
+				double moveY = 12 * keys.getAxis(KeyEvent.VK_A, KeyEvent.VK_D);
+				double moveX = 12 * keys.getAxis(KeyEvent.VK_S, KeyEvent.VK_W);
+
+				boolean changed = curr == null;
+				if (moveY != 0 || moveX != 0 || spin != 0) {
+					prism.addY(moveY);
+					prism.addX(moveX);
+					// pov.orbit(spin, axis, prism.getCenter());
+					prism.rotate(spin, axis);
+					changed = true;
+				}
+
+				// Only rebuild the render list once a chunk mesh has been swapped in or the
+				// camera has moved
+				boolean remeshed = world.getVersion() != worldVersion;
+				boolean moved = !pov.equals(lastPov);
+				if (remeshed || moved) {
+					worldVersion = world.getVersion();
+					lastPov = pov.clone();
+					// Only faces of meshes swapped in or out since the last tick change the
+					// ground tree
+					if (remeshed) {
+						synchronized (groundTree) {
+							groundTree.sync(world.getFaces());
+						}
+					}
+					// Every face is seen from somewhere new, so all of them are reprojected
+					// at once across the pool
+					if (moved) {
+						projector.project(shapeFaces);
+					}
+					if (engine.isViewIndependent()) {
+						// The engine holds every meshed face whatever the view, so it is only
+						// rebuilt when a mesh is swapped in and a move just reprojects it
+						if (remeshed) {
+							engine.setStaticFaces(world.getFaces());
+						}
+						projector.project(engine.getStaticFaces());
+					} else {
+						// Sorting engines are only given the ground in chunks that can be seen,
+						// which changes with the view as well as the meshes
+						List<Face> ground = world.getVisibleFaces(new Frustum(pov, Face.xOffset, Face.yOffset));
+						if (moved) {
+							projector.project(ground);
+						}
+						if (OCCLUSION) {
+							// Hidden ground never reaches the engine, so it is not sorted
+							ground = culler.cullAll(ground);
+						}
+						engine.setStaticFaces(ground);
+					}
+					changed = true;
+				}
+
+				// A still scene keeps its snapshot, so nothing new is published and the
+				// renderer can stay idle
+				prev = curr;
+				// Engines that spread their work over frames are given the next slice
+				if (changed || engine.isRefining()) {
+					// Shape faces out of view are skipped by walking the tree rather than
+					// checking every face
+					List<Face> moving;
+					synchronized (shapeTree) {
+						shapeTree.refit();
+						moving = shapeTree.query(new Frustum(pov, Face.xOffset, Face.yOffset));
+					}
+					if (!engine.isViewIndependent()) {
+						faces = engine.order(OCCLUSION ? culler.cull(moving) : moving, pov);
+					} else if (OCCLUSION) {
+						// Static faces were never culled for this view, so the whole order is
+						// culled after sorting. Sorting engines above had their ground culled
+						// when it was handed over, so only the moving faces are left to cull
+						faces = culler.cullAll(engine.order(moving, pov));
+					} else {
+						faces = engine.order(moving, pov);
+					}
+					for (Face face : faces) {
+						face.setMoved(false);
+					}
+					curr = RenderSnapshot.capture(faces);
+				}
+			}
+
+			@Override
+			public void render(double alpha) {
+				if (curr != null) {
+					gamePanel.publish(RenderSnapshot.interpolate(prev, curr, alpha));
+				}
+			}
+
+		}, TICK_RATE, FRAME_RATE);
+		loop.run();
 	}
 
 	private void testFunc3() {
@@ -365,29 +471,39 @@ public class MainWindow extends javax.swing.JFrame {
 		Position3D pos = new Position3D(400, 400, 1000);
 		Vector3D axis = new Vector3D(0, 0, 1);
 
-		Long prevTick = System.nanoTime();
-		Long currTick = System.nanoTime();
-
-		while (true) {
-			prevTick = System.nanoTime();
-			double num = input.test;
-			face1.orbit(num, axis, pos);
-			face2.orbit(num, axis, pos);
-			face3.orbit(num, axis, pos);
-			face4.orbit(num, axis, pos);
-			face5.orbit(num, axis, pos);
-			face6.orbit(num, axis, pos);
-			faces = Face.sort(faces, 0, faces.size() - 1);
-			//gamePanel.setList(faces);
-			java.awt.EventQueue.invokeLater(() -> {
-				gamePanel.repaint();
-
-			});
-
-			currTick = System.nanoTime();
-			fps.setText("FPS: " + Long.toString(1000000000 / (currTick - prevTick)));
-		}
-		
+
+		GameLoop loop = new GameLoop(new GameLoop.Simulation() {
+
+			private boolean changed = true;
+			private FaceSorter sorter = new FaceSorter();
+
+			@Override
+			public void update(double dt) {
+				double num = 0.01 * input.poll().getAxis(KeyEvent.VK_E, KeyEvent.VK_Q);
+				if (num == 0) {
+					return;
+				}
+				face1.orbit(num, axis, pos);
+				face2.orbit(num, axis, pos);
+				face3.orbit(num, axis, pos);
+				face4.orbit(num, axis, pos);
+				face5.orbit(num, axis, pos);
+				face6.orbit(num, axis, pos);
+				faces = sorter.sort(faces);
+				changed = true;
+			}
+
+			@Override
+			public void render(double alpha) {
+				if (changed) {
+					changed = false;
+					gamePanel.setList(faces);
+				}
+			}
+
+		}, TICK_RATE, FRAME_RATE);
+		loop.run();
+
 //		Position2D test = new Position2D();
 //		Position3D testResult = pov.getRealPoint(test, plane1);
 	}
@@ -418,20 +534,12 @@ public class MainWindow extends javax.swing.JFrame {
 		// gamePanel.addShape(face2);
 		// gamePanel.addShape(face3);
 		Collections.sort(faces);
-		//gamePanel.setList(faces);
-		java.awt.EventQueue.invokeLater(() -> {
-			gamePanel.repaint();
-
-		});
+		gamePanel.setList(faces);
 		// Thread.sleep(1000);
 		face1.setX(1000);
 		face2.setX(-1000);
 		Collections.sort(faces);
-		//gamePanel.setList(faces);
-		java.awt.EventQueue.invokeLater(() -> {
-			gamePanel.repaint();
-
-		});
+		gamePanel.setList(faces);
 		// Thread.sleep(1000);
 
 //		try {
@@ -445,62 +553,51 @@ public class MainWindow extends javax.swing.JFrame {
 //		gamePanel.faces.clear();
 //		gamePanel.faces.add(face);
 //		gamePanel.repaint();
-		int xSign = -1;
-		int ySign = 1;
-		// int zSign = -1;
+		Vector3D axis = new Vector3D(0, 1, 0);
+		// Vector3D axis2 = new Vector3D(1, 0, 0);
 
-		Long prevTick = System.nanoTime();
-		Long currTick = System.nanoTime();
-		while (true) {
+		GameLoop loop = new GameLoop(new GameLoop.Simulation() {
 
-			prevTick = System.nanoTime();
+			private int xSign = -1;
+			private int ySign = 1;
+			// private int zSign = -1;
 
-			Vector3D axis = new Vector3D(0, 1, 0);
-			// Vector3D axis2 = new Vector3D(1, 0, 0);
-			face1.rotate(0.01, axis);
-			// face2 = face2.rotate(0.01, axis);
+			@Override
+			public void update(double dt) {
+				face1.rotate(0.01, axis);
+				// face2 = face2.rotate(0.01, axis);
 
-			// face1 = face1.rotate(0.01, axis2);
+				// face1 = face1.rotate(0.01, axis2);
 
-			if (face1.getPlane().getPos().getCoord()[0] <= -2000) {
-				xSign = 1;
-			} else if (face1.getPlane().getPos().getCoord()[0] >= 2000) {
-				xSign = -1;
-			}
-			if (face2.getPlane().getPos().getCoord()[0] <= -2000) {
-				ySign = 1;
-			} else if (face2.getPlane().getPos().getCoord()[0] >= 2000) {
-				ySign = -1;
+				if (face1.getPlane().getPos().getCoord()[0] <= -2000) {
+					xSign = 1;
+				} else if (face1.getPlane().getPos().getCoord()[0] >= 2000) {
+					xSign = -1;
+				}
+				if (face2.getPlane().getPos().getCoord()[0] <= -2000) {
+					ySign = 1;
+				} else if (face2.getPlane().getPos().getCoord()[0] >= 2000) {
+					ySign = -1;
+				}
+				face1.addX(xSign * 1);
+				face2.addX(ySign * 1);
+				// face1.addY(ySign * 10);
+				// face2.addY(ySign * 10);
+				// face1.addZ(zSign * 10);
+				// face2.addZ(zSign * 10);
+
+				Collections.sort(faces);
 			}
-			if (face1.getPlane().getPos().getCoord()[2] <= -1000) {
-				// zSign = 1;
-			} else if (face1.getPlane().getPos().getCoord()[2] >= 1000) {
-				// zSign = -1;
+
+			@Override
+			public void render(double alpha) {
+				gamePanel.setList(faces);
 			}
-			face1.addX(xSign * 1);
-			face2.addX(ySign * 1);
-			// face1.addY(ySign * 10);
-			// face2.addY(ySign * 10);
-			// face1.addZ(zSign * 10);
-			// face2.addZ(zSign * 10);
-
-			// gamePanel.faces.clear();
-			// gamePanel.addShape(face1);
-			// gamePanel.addShape(face2);
-			Collections.sort(faces);
-			//gamePanel.setList(faces);
-			java.awt.EventQueue.invokeLater(() -> {
-				gamePanel.repaint();
-
-			});
-			// Thread.sleep(1);
-
-			currTick = System.nanoTime();
-			fps.setText("FPS: " + Long.toString(1000000000 / (currTick - prevTick)));
-		}
+
+		}, TICK_RATE, FRAME_RATE);
+		loop.run();
 	}
 
 	private Drawer gamePanel;
-	private JLabel fps;
 	private KeyInput input;
 }
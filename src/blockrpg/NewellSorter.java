@@ -0,0 +1,348 @@
+package blockrpg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Newell, Newell and Sancha painter's algorithm. Faces are first sorted by how
+ * far their farthest point is, then the farthest face is only painted once it
+ * is known not to hide any face whose depth range it overlaps. That is checked
+ * with tests ordered cheapest first (screen bounds, either plane, then the
+ * outlines themselves). When a face would hide another the two are swapped, and
+ * if they keep swapping they hide each other in a cycle and one is cut along
+ * the other's plane
+ */
+public class NewellSorter implements VisibilityEngine {
+
+	// Slack for projected outlines just touching, in pixels
+	private static final double OVERLAP_ERROR = 0.000001;
+	// Slack for points lying in a plane, in world units
+	private static final double PLANE_ERROR = 0.000001;
+	// Cuts or repeated moves allowed per face sorted, past this faces are painted
+	// as they are
+	public static final int MAX_SPLITS_PER_FACE = 4;
+
+	/**
+	 * Face with the bounds and plane the tests need, worked out once
+	 */
+	private static class Entry {
+
+		private final Face face;
+		private final double minZ;
+		private final double maxZ;
+		private final double minX;
+		private final double minY;
+		private final double maxX;
+		private final double maxY;
+		private final double[] norm;
+		private final double d;
+		// Set when the entry is moved in front of a face it would hide. It stays set
+		// until the entry is painted, or until a cut breaks the cycle it was in
+		private boolean swapped;
+
+		Entry(Face face, Position3D eye, Vector3D dir) {
+			this.face = face;
+
+			double lowZ = Double.POSITIVE_INFINITY;
+			double highZ = Double.NEGATIVE_INFINITY;
+			for (Position3D point : face.getTruePoints()) {
+				double z = dir.dot(point.subtract(eye));
+				lowZ = Math.min(lowZ, z);
+				highZ = Math.max(highZ, z);
+			}
+			this.minZ = lowZ;
+			this.maxZ = highZ;
+
+			double lowX = Double.POSITIVE_INFINITY;
+			double lowY = Double.POSITIVE_INFINITY;
+			double highX = Double.NEGATIVE_INFINITY;
+			double highY = Double.NEGATIVE_INFINITY;
+			for (Position2D point : face.getViewPoints()) {
+				lowX = Math.min(lowX, point.getX());
+				lowY = Math.min(lowY, point.getY());
+				highX = Math.max(highX, point.getX());
+				highY = Math.max(highY, point.getY());
+			}
+			this.minX = lowX;
+			this.minY = lowY;
+			this.maxX = highX;
+			this.maxY = highY;
+
+			this.norm = face.getPlane().getNorm().getCoord();
+			this.d = face.getPlane().getNorm().dot(face.getPlane().getPos());
+		}
+
+		/**
+		 *
+		 * @param point Point to check
+		 * @return Returns signed distance of point in front of plane
+		 */
+		double distance(Position3D point) {
+			return norm[0] * point.getX() + norm[1] * point.getY() + norm[2] * point.getZ() - d;
+		}
+	}
+
+	private List<Face> staticFaces;
+	private long splits;
+	private long outlineTests;
+
+	/**
+	 * Default constructor for NewellSorter
+	 */
+	public NewellSorter() {
+		this.staticFaces = new ArrayList<Face>();
+	}
+
+	@Override
+	public void setStaticFaces(List<Face> faces) {
+		this.staticFaces = faces;
+	}
+
+	@Override
+	public List<Face> getStaticFaces() {
+		return staticFaces;
+	}
+
+	@Override
+	public ArrayList<Face> order(List<Face> faces, Perspective pov) {
+		ArrayList<Face> all = new ArrayList<Face>(staticFaces.size() + faces.size());
+		all.addAll(staticFaces);
+		all.addAll(faces);
+		return sort(all, pov);
+	}
+
+	/**
+	 *
+	 * @return Returns number of faces cut to break cycles so far
+	 */
+	public long getSplits() {
+		return splits;
+	}
+
+	/**
+	 *
+	 * @return Returns number of pairs that needed the outline overlap test
+	 */
+	public long getOutlineTests() {
+		return outlineTests;
+	}
+
+	/**
+	 * Orders faces back to front, cutting faces that hide each other
+	 *
+	 * @param faces Faces to sort
+	 * @param pov   Perspective faces are seen from
+	 * @return Returns new list in painting order, which may hold cut pieces in
+	 *         place of the faces they came from
+	 */
+	public ArrayList<Face> sort(List<Face> faces, Perspective pov) {
+		Position3D eye = pov.getPos();
+		Vector3D dir = pov.getDir();
+
+		ArrayList<Entry> list = new ArrayList<Entry>(faces.size());
+		for (Face face : faces) {
+			list.add(new Entry(face, eye, dir));
+		}
+		// Farthest back point first
+		list.sort((a, b) -> Double.compare(b.maxZ, a.maxZ));
+
+		ArrayList<Face> ordered = new ArrayList<Face>(faces.size());
+		int splitBudget = MAX_SPLITS_PER_FACE * faces.size();
+		// Entries moved to the front sit before the rest, which stays sorted by
+		// farthest point
+		int moved = 0;
+
+		while (!list.isEmpty()) {
+			Entry p = list.get(0);
+			int blocker = -1;
+
+			// Only faces whose depth range starts before p ends can be hidden by it.
+			// That bound only holds past the moved entries, which are all checked
+			for (int i = 1; i < list.size(); i++) {
+				if (i >= moved && list.get(i).maxZ <= p.minZ + Coord3D.ERROR) {
+					break;
+				}
+				if (!mayHide(p, list.get(i), eye)) {
+					continue;
+				}
+				blocker = i;
+				break;
+			}
+
+			if (blocker < 0) {
+				ordered.add(p.face);
+				list.remove(0);
+				moved = Math.max(0, moved - 1);
+				continue;
+			}
+
+			Entry q = list.get(blocker);
+			if (q.swapped) {
+				if (splitBudget <= 0) {
+					// Out of cuts, paint as is rather than loop forever
+					ordered.add(p.face);
+					list.remove(0);
+					moved = Math.max(0, moved - 1);
+					continue;
+				}
+				splitBudget--;
+
+				// q has already been moved in front of a face once, so the two may hide
+				// each other. p is cut along q's plane, or q along p's if p does not
+				// cross it
+				Entry cut = p;
+				Face[] pieces = p.face.split(q.face.getPlane());
+				if (pieces[0] == null || pieces[1] == null) {
+					cut = q;
+					pieces = q.face.split(p.face.getPlane());
+				}
+				if (pieces[0] != null && pieces[1] != null) {
+					splits++;
+					int index = cut == p ? 0 : blocker;
+					list.remove(index);
+					if (index < moved) {
+						moved--;
+					}
+					// The cycle is broken, so whichever of the pair is left may be moved
+					// again
+					p.swapped = false;
+					q.swapped = false;
+					insert(list, moved, new Entry(pieces[0], eye, dir));
+					insert(list, moved, new Entry(pieces[1], eye, dir));
+					continue;
+				}
+				// Neither crosses the other's plane, so there is no cycle and q is wholly
+				// behind p
+			}
+
+			// q may be the one that has to go first
+			q.swapped = true;
+			list.remove(blocker);
+			list.add(0, q);
+			if (blocker >= moved) {
+				moved++;
+			}
+		}
+
+		return ordered;
+	}
+
+	/**
+	 * Adds an entry after the moved ones, keeping the rest sorted by farthest
+	 * point
+	 *
+	 * @param list  Entries, sorted from start on
+	 * @param start Number of moved entries at the front
+	 * @param entry Entry to add
+	 */
+	private static void insert(ArrayList<Entry> list, int start, Entry entry) {
+		int lo = start;
+		int hi = list.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (list.get(mid).maxZ >= entry.maxZ) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		list.add(lo, entry);
+	}
+
+	/**
+	 * Runs the tests from cheapest to most expensive, any one of which proves p
+	 * can be painted before q
+	 *
+	 * @param p   Face to paint next
+	 * @param q   Face that overlaps p in depth
+	 * @param eye Position faces are seen from
+	 * @return Returns true if p may hide part of q
+	 */
+	private boolean mayHide(Entry p, Entry q, Position3D eye) {
+		if (p.maxX <= q.minX + OVERLAP_ERROR || q.maxX <= p.minX + OVERLAP_ERROR
+				|| p.maxY <= q.minY + OVERLAP_ERROR || q.maxY <= p.minY + OVERLAP_ERROR) {
+			return false;
+		}
+
+		// p is wholly on the far side of q's plane
+		if (allOnSide(p.face, q, -Math.signum(q.distance(eye)))) {
+			return false;
+		}
+
+		// q is wholly on the near side of p's plane
+		if (allOnSide(q.face, p, Math.signum(p.distance(eye)))) {
+			return false;
+		}
+
+		outlineTests++;
+		return outlinesOverlap(p.face.getViewPoints(), q.face.getViewPoints());
+	}
+
+	/**
+	 *
+	 * @param face  Face to check
+	 * @param plane Entry whose plane is checked against
+	 * @param side  1 for in front of plane, -1 for behind
+	 * @return Returns true if no point of face is past the plane on the other side
+	 */
+	private static boolean allOnSide(Face face, Entry plane, double side) {
+		if (side == 0) {
+			return false;
+		}
+		for (Position3D point : face.getTruePoints()) {
+			if (side * plane.distance(point) < -PLANE_ERROR) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Separating axis test for convex outlines. Outlines that only touch along
+	 * an edge do not count as overlapping
+	 *
+	 * @param a Points of first outline
+	 * @param b Points of second outline
+	 * @return Returns true if outlines overlap
+	 */
+	private static boolean outlinesOverlap(Position2D[] a, Position2D[] b) {
+		return !hasSeparatingEdge(a, b) && !hasSeparatingEdge(b, a);
+	}
+
+	/**
+	 *
+	 * @param edges  Outline whose edges are tried as axes
+	 * @param other  Other outline
+	 * @return Returns true if an edge normal of the first outline separates them
+	 */
+	private static boolean hasSeparatingEdge(Position2D[] edges, Position2D[] other) {
+		for (int i = 0, j = edges.length - 1; i < edges.length; j = i++) {
+			double axisX = edges[j].getY() - edges[i].getY();
+			double axisY = edges[i].getX() - edges[j].getX();
+			double len = Math.sqrt(axisX * axisX + axisY * axisY);
+			if (len < Coord3D.ERROR) {
+				continue;
+			}
+
+			double minA = Double.POSITIVE_INFINITY;
+			double maxA = Double.NEGATIVE_INFINITY;
+			for (Position2D point : edges) {
+				double proj = (point.getX() * axisX + point.getY() * axisY) / len;
+				minA = Math.min(minA, proj);
+				maxA = Math.max(maxA, proj);
+			}
+			double minB = Double.POSITIVE_INFINITY;
+			double maxB = Double.NEGATIVE_INFINITY;
+			for (Position2D point : other) {
+				double proj = (point.getX() * axisX + point.getY() * axisY) / len;
+				minB = Math.min(minB, proj);
+				maxB = Math.max(maxB, proj);
+			}
+
+			if (maxA <= minB + OVERLAP_ERROR || maxB <= minA + OVERLAP_ERROR) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
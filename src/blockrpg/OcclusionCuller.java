@@ -0,0 +1,413 @@
+package blockrpg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Drops faces hidden behind large nearby faces before they are sorted. The
+ * nearest big faces are drawn into a coarse buffer of screen cells, where a
+ * cell only counts as blocked if a face covers all of it and its depth is the
+ * farthest point of that face. The buffer is then reduced into a pyramid
+ * holding the nearest and farthest blocked depth of each region, so a face is
+ * checked against a few coarse regions first and only goes down to single
+ * cells when those can not decide
+ */
+public class OcclusionCuller {
+
+	// Size of a cell of the finest level, in pixels
+	public static final int CELL_SIZE = 8;
+	// Most faces drawn into the buffer
+	public static final int MAX_OCCLUDERS = 64;
+	// Smallest screen area a face needs to be drawn into the buffer, in cells
+	public static final double MIN_OCCLUDER_CELLS = 4;
+
+	private final int width;
+	private final int height;
+
+	// Inverse distance of each level, level 0 being single cells. Larger values
+	// are nearer, and 0 means nothing blocks the region
+	private final int[] levelWidths;
+	private final int[] levelHeights;
+	private final float[][] minDepth;
+	private final float[][] maxDepth;
+
+	private long culled;
+
+	/**
+	 * Custom constructor for OcclusionCuller
+	 *
+	 * @param width  Width of screen in pixels
+	 * @param height Height of screen in pixels
+	 */
+	public OcclusionCuller(int width, int height) {
+		this.width = width;
+		this.height = height;
+
+		int levels = 1;
+		int w = cells(width);
+		int h = cells(height);
+		while (w > 1 || h > 1) {
+			w = (w + 1) / 2;
+			h = (h + 1) / 2;
+			levels++;
+		}
+
+		this.levelWidths = new int[levels];
+		this.levelHeights = new int[levels];
+		this.minDepth = new float[levels][];
+		this.maxDepth = new float[levels][];
+		w = cells(width);
+		h = cells(height);
+		for (int level = 0; level < levels; level++) {
+			levelWidths[level] = w;
+			levelHeights[level] = h;
+			minDepth[level] = new float[w * h];
+			maxDepth[level] = new float[w * h];
+			w = (w + 1) / 2;
+			h = (h + 1) / 2;
+		}
+	}
+
+	/**
+	 *
+	 * @return Returns number of levels in pyramid
+	 */
+	public int getLevels() {
+		return levelWidths.length;
+	}
+
+	/**
+	 *
+	 * @return Returns number of faces culled since last build
+	 */
+	public long getCulled() {
+		return culled;
+	}
+
+	/**
+	 * Draws the nearest large faces into the buffer and rebuilds the pyramid
+	 *
+	 * @param faces Faces to pick occluders from
+	 */
+	public void build(List<Face> faces) {
+		culled = 0;
+		float[] cells = minDepth[0];
+		Arrays.fill(cells, 0f);
+
+		double minArea = MIN_OCCLUDER_CELLS * CELL_SIZE * CELL_SIZE;
+		ArrayList<Face> candidates = new ArrayList<Face>();
+		for (Face face : faces) {
+			if (face.isVisible() && face.getNumPoints() >= 3 && screenArea(face) >= minArea) {
+				candidates.add(face);
+			}
+		}
+
+		// Nearest far point first, those block the most
+		double[] depths = new double[candidates.size()];
+		Integer[] order = new Integer[candidates.size()];
+		for (int i = 0; i < order.length; i++) {
+			depths[i] = farDepth(candidates.get(i));
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(depths[b], depths[a]));
+
+		for (int i = 0; i < order.length && i < MAX_OCCLUDERS; i++) {
+			drawOccluder(candidates.get(order[i]), (float) depths[order[i]]);
+		}
+
+		System.arraycopy(cells, 0, maxDepth[0], 0, cells.length);
+		for (int level = 1; level < levelWidths.length; level++) {
+			reduce(level);
+		}
+	}
+
+	/**
+	 * Builds the buffer from faces then culls them against it
+	 *
+	 * @param faces Faces to cull
+	 * @return Returns new list without the faces that are hidden
+	 */
+	public ArrayList<Face> cullAll(List<Face> faces) {
+		build(faces);
+		return cull(faces);
+	}
+
+	/**
+	 * Culls faces against the buffer from the last build
+	 *
+	 * @param faces Faces to cull
+	 * @return Returns new list without the faces that are hidden
+	 */
+	public ArrayList<Face> cull(List<Face> faces) {
+		ArrayList<Face> kept = new ArrayList<Face>(faces.size());
+		for (Face face : faces) {
+			if (isOccluded(face)) {
+				culled++;
+			} else {
+				kept.add(face);
+			}
+		}
+		return kept;
+	}
+
+	/**
+	 * Checks a face against the pyramid from the coarsest level down, stopping as
+	 * soon as a level proves it hidden or in front of everything there
+	 *
+	 * @param face Face to check
+	 * @return Returns true if the face is wholly behind blocked cells
+	 */
+	public boolean isOccluded(Face face) {
+		if (!face.isVisible() || face.getNumPoints() < 3) {
+			return false;
+		}
+
+		double lowX = Double.POSITIVE_INFINITY;
+		double lowY = Double.POSITIVE_INFINITY;
+		double highX = Double.NEGATIVE_INFINITY;
+		double highY = Double.NEGATIVE_INFINITY;
+		for (Position2D point : face.getViewPoints()) {
+			double x = point.getX() + Face.xOffset;
+			double y = -point.getY() + Face.yOffset;
+			lowX = Math.min(lowX, x);
+			lowY = Math.min(lowY, y);
+			highX = Math.max(highX, x);
+			highY = Math.max(highY, y);
+		}
+		if (highX < 0 || highY < 0 || lowX > width || lowY > height) {
+			// Off screen, the frustum deals with these
+			return false;
+		}
+
+		int minCellX = Math.max(0, (int) Math.floor(lowX / CELL_SIZE));
+		int minCellY = Math.max(0, (int) Math.floor(lowY / CELL_SIZE));
+		int maxCellX = Math.min(levelWidths[0] - 1, (int) Math.floor(highX / CELL_SIZE));
+		int maxCellY = Math.min(levelHeights[0] - 1, (int) Math.floor(highY / CELL_SIZE));
+		double near = nearDepth(face);
+
+		for (int level = levelWidths.length - 1; level >= 0; level--) {
+			int levelWidth = levelWidths[level];
+			float lowest = Float.POSITIVE_INFINITY;
+			float highest = 0;
+			for (int y = minCellY >> level; y <= maxCellY >> level; y++) {
+				for (int x = minCellX >> level; x <= maxCellX >> level; x++) {
+					lowest = Math.min(lowest, minDepth[level][y * levelWidth + x]);
+					highest = Math.max(highest, maxDepth[level][y * levelWidth + x]);
+				}
+			}
+			if (near < lowest) {
+				return true;
+			}
+			if (near >= highest) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Marks every cell an occluder covers completely. A convex outline covers a
+	 * cell if it holds all four of its corners
+	 *
+	 * @param face  Face to draw
+	 * @param depth Inverse distance of farthest point of face
+	 */
+	private void drawOccluder(Face face, float depth) {
+		Position2D[] points = face.getViewPoints();
+		int num = face.getNumPoints();
+		double[] xs = new double[num];
+		double[] ys = new double[num];
+		double lowX = Double.POSITIVE_INFINITY;
+		double lowY = Double.POSITIVE_INFINITY;
+		double highX = Double.NEGATIVE_INFINITY;
+		double highY = Double.NEGATIVE_INFINITY;
+		double area = 0;
+		for (int i = 0; i < num; i++) {
+			xs[i] = points[i].getX() + Face.xOffset;
+			ys[i] = -points[i].getY() + Face.yOffset;
+			lowX = Math.min(lowX, xs[i]);
+			lowY = Math.min(lowY, ys[i]);
+			highX = Math.max(highX, xs[i]);
+			highY = Math.max(highY, ys[i]);
+		}
+		for (int i = 0, j = num - 1; i < num; j = i++) {
+			area += xs[j] * ys[i] - xs[i] * ys[j];
+		}
+		double winding = Math.signum(area);
+		if (winding == 0) {
+			return;
+		}
+
+		int cellsWide = levelWidths[0];
+		int firstX = Math.max(0, (int) Math.ceil(lowX / CELL_SIZE));
+		int firstY = Math.max(0, (int) Math.ceil(lowY / CELL_SIZE));
+		int lastX = Math.min(cellsWide, (int) Math.floor(highX / CELL_SIZE));
+		int lastY = Math.min(levelHeights[0], (int) Math.floor(highY / CELL_SIZE));
+		if (firstX >= lastX || firstY >= lastY) {
+			return;
+		}
+
+		// Corners are shared by four cells so each is only tested once
+		int cornersWide = lastX - firstX + 1;
+		boolean[] inside = new boolean[cornersWide * (lastY - firstY + 1)];
+		for (int y = firstY; y <= lastY; y++) {
+			for (int x = firstX; x <= lastX; x++) {
+				inside[(y - firstY) * cornersWide + x - firstX] = contains(xs, ys, num, winding, x * CELL_SIZE,
+						y * CELL_SIZE);
+			}
+		}
+
+		float[] cells = minDepth[0];
+		for (int y = firstY; y < lastY; y++) {
+			for (int x = firstX; x < lastX; x++) {
+				int corner = (y - firstY) * cornersWide + x - firstX;
+				if (inside[corner] && inside[corner + 1] && inside[corner + cornersWide]
+						&& inside[corner + cornersWide + 1]) {
+					int cell = y * cellsWide + x;
+					cells[cell] = Math.max(cells[cell], depth);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fills a level from the one below it. A region is only as blocked as its
+	 * least blocked cell, and no nearer than its nearest one
+	 *
+	 * @param level Level to fill
+	 */
+	private void reduce(int level) {
+		int fineWidth = levelWidths[level - 1];
+		int fineHeight = levelHeights[level - 1];
+		float[] fineMin = minDepth[level - 1];
+		float[] fineMax = maxDepth[level - 1];
+
+		for (int y = 0; y < levelHeights[level]; y++) {
+			for (int x = 0; x < levelWidths[level]; x++) {
+				float lowest = Float.POSITIVE_INFINITY;
+				float highest = 0;
+				for (int fy = y * 2; fy < Math.min(fineHeight, y * 2 + 2); fy++) {
+					for (int fx = x * 2; fx < Math.min(fineWidth, x * 2 + 2); fx++) {
+						lowest = Math.min(lowest, fineMin[fy * fineWidth + fx]);
+						highest = Math.max(highest, fineMax[fy * fineWidth + fx]);
+					}
+				}
+				minDepth[level][y * levelWidths[level] + x] = lowest;
+				maxDepth[level][y * levelWidths[level] + x] = highest;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param xs      X coordinates of convex outline
+	 * @param ys      Y coordinates of convex outline
+	 * @param num     Number of points
+	 * @param winding Sign of outline area
+	 * @param x       X coordinate of point
+	 * @param y       Y coordinate of point
+	 * @return Returns true if point is inside or on outline
+	 */
+	private static boolean contains(double[] xs, double[] ys, int num, double winding, double x, double y) {
+		for (int i = 0, j = num - 1; i < num; j = i++) {
+			double cross = (xs[i] - xs[j]) * (y - ys[j]) - (ys[i] - ys[j]) * (x - xs[j]);
+			if (cross * winding < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @param face Face to measure
+	 * @return Returns area of projected outline in pixels
+	 */
+	private static double screenArea(Face face) {
+		Position2D[] points = face.getViewPoints();
+		double area = 0;
+		for (int i = 0, j = face.getNumPoints() - 1; i < face.getNumPoints(); j = i++) {
+			area += points[j].getX() * points[i].getY() - points[i].getX() * points[j].getY();
+		}
+		return Math.abs(area) / 2;
+	}
+
+	/**
+	 *
+	 * @param face Face to measure
+	 * @return Returns inverse distance of farthest point of face, always a corner
+	 */
+	private static double farDepth(Face face) {
+		Position3D eye = face.getPOV().getPos();
+		double far = 0;
+		for (Position3D point : face.getTruePoints()) {
+			far = Math.max(far, eye.totDistanceFrom(point));
+		}
+		return far > 0 ? 1 / far : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * The nearest point of a face may lie inside it rather than on a corner, so
+	 * the eye is dropped onto the plane first and only falls back to the edges
+	 * if that lands outside
+	 *
+	 * @param face Face to measure
+	 * @return Returns inverse distance of nearest point of face
+	 */
+	private static double nearDepth(Face face) {
+		double[] eye = face.getPOV().getPos().getCoord();
+		double[] norm = face.getPlane().getNorm().getCoord();
+		double[] origin = face.getPlane().getPos().getCoord();
+		Position3D[] points = face.getTruePoints();
+		int num = face.getNumPoints();
+
+		double len = Math.sqrt(norm[0] * norm[0] + norm[1] * norm[1] + norm[2] * norm[2]);
+		double dis = ((eye[0] - origin[0]) * norm[0] + (eye[1] - origin[1]) * norm[1]
+				+ (eye[2] - origin[2]) * norm[2]) / len;
+		double[] foot = new double[3];
+		for (int i = 0; i < 3; i++) {
+			foot[i] = eye[i] - dis * norm[i] / len;
+		}
+
+		boolean inside = true;
+		double sign = 0;
+		double nearestSQ = Double.POSITIVE_INFINITY;
+		for (int i = 0, j = num - 1; i < num; j = i++) {
+			double[] a = points[j].getCoord();
+			double[] b = points[i].getCoord();
+			double[] edge = { b[0] - a[0], b[1] - a[1], b[2] - a[2] };
+			double[] toFoot = { foot[0] - a[0], foot[1] - a[1], foot[2] - a[2] };
+			double side = norm[0] * (edge[1] * toFoot[2] - edge[2] * toFoot[1])
+					+ norm[1] * (edge[2] * toFoot[0] - edge[0] * toFoot[2])
+					+ norm[2] * (edge[0] * toFoot[1] - edge[1] * toFoot[0]);
+			if (side * sign < 0) {
+				inside = false;
+			} else if (side != 0) {
+				sign = side;
+			}
+
+			// Closest point of edge to the eye
+			double edgeSQ = edge[0] * edge[0] + edge[1] * edge[1] + edge[2] * edge[2];
+			double t = edgeSQ > 0 ? ((eye[0] - a[0]) * edge[0] + (eye[1] - a[1]) * edge[1]
+					+ (eye[2] - a[2]) * edge[2]) / edgeSQ : 0;
+			t = Math.max(0, Math.min(1, t));
+			double dx = a[0] + t * edge[0] - eye[0];
+			double dy = a[1] + t * edge[1] - eye[1];
+			double dz = a[2] + t * edge[2] - eye[2];
+			nearestSQ = Math.min(nearestSQ, dx * dx + dy * dy + dz * dz);
+		}
+
+		double nearest = inside ? Math.abs(dis) : Math.sqrt(nearestSQ);
+		return nearest > 0 ? 1 / nearest : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 *
+	 * @param pixels Length in pixels
+	 * @return Returns number of cells needed to cover length
+	 */
+	private static int cells(int pixels) {
+		return Math.max(1, (pixels + CELL_SIZE - 1) / CELL_SIZE);
+	}
+}
@@ -1,12 +1,27 @@
 package blockrpg;
 
 public class Perspective {
+
+	// Quaternion updates allowed before it is scaled back to unit length
+	public static final int RENORMALIZE_INTERVAL = 32;
+	// Orientations closer than this are blended linearly instead of slerped
+	private static final double SLERP_EPSILON = 0.0001;
+
 	private Position3D pos;
-	private Vector3D dir; // Direction of perspective (into screen is positive)
-	private Vector3D tilt; // Tilt of perspective (left is positive)
-	private Vector3D norm; // Cross product of dir X tilt (up is positive)
-	private double[][] viewBasis;
-	private double[][] viewBasisInverse;
+	// Orientation as a unit quaternion w + xi + yj + zk turning the view axes
+	// (into screen, left, up) onto the standard ones
+	private double qw;
+	private double qx;
+	private double qy;
+	private double qz;
+	// Turns applied since the quaternion was last renormalized
+	private int updates;
+	private final Vector3D dir; // Direction of perspective (into screen is positive)
+	private final Vector3D tilt; // Tilt of perspective (left is positive)
+	private final Vector3D norm; // Cross product of dir X tilt (up is positive)
+	// Rows are the axes above in the standard basis, the inverse is its transpose
+	private final double[][] viewBasis;
+	private final double[][] viewBasisInverse;
 	private double zoom;
 
 	/**
@@ -15,11 +30,14 @@ public class Perspective {
 	 */
 	public Perspective() {
 		pos = new Position3D();
-		dir = new Vector3D(1, 0, 0);
-		tilt = new Vector3D(0, 1, 0);
 		setZoom(1);
 		viewBasis = new double[3][3];
 		viewBasisInverse = new double[3][3];
+		dir = new Vector3D();
+		tilt = new Vector3D();
+		norm = new Vector3D();
+		qw = 1;
+		setBasis();
 	}
 
 	/**
@@ -31,17 +49,16 @@ public class Perspective {
 	 */
 	public Perspective(double[] posCoords, double[] dirCoords, double[] tiltCoords) {
 		pos = new Position3D(posCoords);
-		dir = new Vector3D(dirCoords);
-		dir = dir.normalize();
 		setZoom(1);
-		tilt = new Vector3D(tiltCoords);
-		tilt = dir.perp(tilt).normalize();
-		norm = dir.cross(tilt).normalize();
-
 		viewBasis = new double[3][3];
 		viewBasisInverse = new double[3][3];
+		dir = new Vector3D();
+		tilt = new Vector3D();
+		norm = new Vector3D();
 
-		setBasis();
+		Vector3D newDir = new Vector3D(dirCoords).normalize();
+		Vector3D newTilt = newDir.perp(new Vector3D(tiltCoords)).normalize();
+		setRotation(newDir, newTilt, newDir.cross(newTilt).normalize());
 	}
 
 	/**
@@ -51,11 +68,21 @@ public class Perspective {
 	 */
 	public Perspective(Perspective other) {
 		this.pos = other.pos.clone();
+		this.qw = other.qw;
+		this.qx = other.qx;
+		this.qy = other.qy;
+		this.qz = other.qz;
+		this.updates = other.updates;
 		this.dir = other.dir.clone();
 		this.tilt = other.tilt.clone();
 		this.norm = other.norm.clone();
-		this.viewBasis = other.viewBasis.clone();
-		this.viewBasisInverse = other.viewBasisInverse.clone();
+		this.zoom = other.zoom;
+		this.viewBasis = new double[3][3];
+		this.viewBasisInverse = new double[3][3];
+		for (int i = 0; i < 3; i++) {
+			System.arraycopy(other.viewBasis[i], 0, this.viewBasis[i], 0, 3);
+			System.arraycopy(other.viewBasisInverse[i], 0, this.viewBasisInverse[i], 0, 3);
+		}
 	}
 
 	@Override
@@ -64,41 +91,192 @@ public class Perspective {
 	}
 
 	/**
-	 * Procedure to set the view basis matrix and the inverse of said matrix
+	 * Procedure to set the view basis matrix and the inverse of said matrix from
+	 * the quaternion. Rows of the basis are the view axes in the standard basis,
+	 * and as they are orthonormal the inverse is just the transpose, so both are
+	 * written in place without building anything. The axes are written here too,
+	 * so getters never write and can be read from other threads
 	 */
 	private void setBasis() {
-		viewBasis[0] = dir.getCoord();
-		viewBasis[1] = tilt.getCoord();
-		viewBasis[2] = norm.getCoord();
+		double xx = qx * qx;
+		double yy = qy * qy;
+		double zz = qz * qz;
+		double xy = qx * qy;
+		double xz = qx * qz;
+		double yz = qy * qz;
+		double wx = qw * qx;
+		double wy = qw * qy;
+		double wz = qw * qz;
+
+		viewBasis[0][0] = 1 - 2 * (yy + zz) + 0.0;
+		viewBasis[0][1] = 2 * (xy + wz) + 0.0;
+		viewBasis[0][2] = 2 * (xz - wy) + 0.0;
+		viewBasis[1][0] = 2 * (xy - wz) + 0.0;
+		viewBasis[1][1] = 1 - 2 * (xx + zz) + 0.0;
+		viewBasis[1][2] = 2 * (yz + wx) + 0.0;
+		viewBasis[2][0] = 2 * (xz + wy) + 0.0;
+		viewBasis[2][1] = 2 * (yz - wx) + 0.0;
+		viewBasis[2][2] = 1 - 2 * (xx + yy) + 0.0;
 
-		double[][] temp = new double[5][5];
 		for (int i = 0; i < 3; i++) {
 			for (int j = 0; j < 3; j++) {
-				temp[i][j] = viewBasis[i][j];
+				viewBasisInverse[j][i] = viewBasis[i][j];
 			}
 		}
-		for (int i = 3; i < 5; i++) {
-			for (int j = 0; j < 3; j++) {
-				temp[i][j] = temp[i - 3][j];
-			}
+		dir.setExact(viewBasis[0][0], viewBasis[0][1], viewBasis[0][2]);
+		tilt.setExact(viewBasis[1][0], viewBasis[1][1], viewBasis[1][2]);
+		norm.setExact(viewBasis[2][0], viewBasis[2][1], viewBasis[2][2]);
+	}
+
+	/**
+	 * Sets the quaternion from view axes, the axes kept are then rebuilt from it
+	 * 
+	 * @param dir  Unit direction of perspective
+	 * @param tilt Unit tilt of perspective
+	 * @param norm Unit norm of perspective
+	 */
+	private void setRotation(Vector3D dir, Vector3D tilt, Vector3D norm) {
+		// The axes are the columns of the rotation, the largest of w, x, y and z is
+		// found first so nothing is divided by a small number
+		double trace = dir.getX() + tilt.getY() + norm.getZ();
+		if (trace > 0) {
+			double s = 2 * Math.sqrt(trace + 1);
+			qw = s / 4;
+			qx = (tilt.getZ() - norm.getY()) / s;
+			qy = (norm.getX() - dir.getZ()) / s;
+			qz = (dir.getY() - tilt.getX()) / s;
+		} else if (dir.getX() > tilt.getY() && dir.getX() > norm.getZ()) {
+			double s = 2 * Math.sqrt(1 + dir.getX() - tilt.getY() - norm.getZ());
+			qw = (tilt.getZ() - norm.getY()) / s;
+			qx = s / 4;
+			qy = (tilt.getX() + dir.getY()) / s;
+			qz = (norm.getX() + dir.getZ()) / s;
+		} else if (tilt.getY() > norm.getZ()) {
+			double s = 2 * Math.sqrt(1 + tilt.getY() - dir.getX() - norm.getZ());
+			qw = (norm.getX() - dir.getZ()) / s;
+			qx = (tilt.getX() + dir.getY()) / s;
+			qy = s / 4;
+			qz = (norm.getY() + tilt.getZ()) / s;
+		} else {
+			double s = 2 * Math.sqrt(1 + norm.getZ() - dir.getX() - tilt.getY());
+			qw = (dir.getY() - tilt.getX()) / s;
+			qx = (norm.getX() + dir.getZ()) / s;
+			qy = (norm.getY() + tilt.getZ()) / s;
+			qz = s / 4;
 		}
+		renormalize();
+		setBasis();
+	}
 
-		for (int i = 0; i < 5; i++) {
-			for (int j = 3; j < 5; j++) {
-				temp[i][j] = temp[i][j - 3];
-			}
+	/**
+	 * Scales the quaternion back to unit length so rounding from many small turns
+	 * never skews the basis
+	 */
+	private void renormalize() {
+		double len = Math.sqrt(qw * qw + qx * qx + qy * qy + qz * qz);
+		if (len > 0) {
+			qw /= len;
+			qx /= len;
+			qy /= len;
+			qz /= len;
 		}
+		updates = 0;
+	}
 
-		double det = temp[0][0] * (temp[1][1] * temp[2][2] - temp[1][2] * temp[2][1])
-				- temp[0][1] * (temp[1][0] * temp[2][2] - temp[2][0] * temp[1][2])
-				+ temp[0][2] * (temp[1][0] * temp[2][1] - temp[1][1] * temp[2][0]);
+	/**
+	 * 
+	 * @return Returns orientation as a unit quaternion { w, x, y, z }
+	 */
+	public double[] getRotation() {
+		return new double[] { qw, qx, qy, qz };
+	}
 
-		for (int i = 0; i < 3; i++) {
-			for (int j = 0; j < 3; j++) {
-				viewBasisInverse[j][i] = temp[i + 1][j + 1] / det * temp[i + 2][j + 2]
-						- temp[i + 2][j + 1] / det * temp[i + 1][j + 2] + 0.0;
-			}
+	/**
+	 * Sets orientation from a quaternion, which is scaled to unit length
+	 * 
+	 * @param w Real part
+	 * @param x I part
+	 * @param y J part
+	 * @param z K part
+	 */
+	public void setRotation(double w, double x, double y, double z) {
+		qw = w;
+		qx = x;
+		qy = y;
+		qz = z;
+		renormalize();
+		setBasis();
+	}
+
+	/**
+	 * Turns the whole view ang radians ccw about axis. Only the quaternion is
+	 * multiplied and the basis rewritten, nothing is allocated
+	 * 
+	 * @param ang  angle in radians
+	 * @param axis axis to rotate about
+	 */
+	private void turn(double ang, Vector3D axis) {
+		double len = Math.sqrt(axis.getX() * axis.getX() + axis.getY() * axis.getY() + axis.getZ() * axis.getZ());
+		if (len < Coord3D.ERROR) {
+			return;
+		}
+		double sin = Math.sin(ang / 2) / len;
+		double rw = Math.cos(ang / 2);
+		double rx = axis.getX() * sin;
+		double ry = axis.getY() * sin;
+		double rz = axis.getZ() * sin;
+
+		double w = rw * qw - rx * qx - ry * qy - rz * qz;
+		double x = rw * qx + rx * qw + ry * qz - rz * qy;
+		double y = rw * qy - rx * qz + ry * qw + rz * qx;
+		double z = rw * qz + rx * qy - ry * qx + rz * qw;
+		qw = w;
+		qx = x;
+		qy = y;
+		qz = z;
+
+		if (++updates >= RENORMALIZE_INTERVAL) {
+			renormalize();
 		}
+		setBasis();
+	}
+
+	/**
+	 * Places perspective part way between two others. Position moves in a straight
+	 * line and orientation turns at a steady rate the shorter way round
+	 * 
+	 * @param from Perspective at t = 0
+	 * @param to   Perspective at t = 1
+	 * @param t    Fraction of the way from from to to
+	 */
+	public void slerp(Perspective from, Perspective to, double t) {
+		double dot = from.qw * to.qw + from.qx * to.qx + from.qy * to.qy + from.qz * to.qz;
+		// q and -q are the same orientation, the one nearer from is taken
+		double sign = dot < 0 ? -1 : 1;
+		dot *= sign;
+
+		double a;
+		double b;
+		if (dot > 1 - SLERP_EPSILON) {
+			a = 1 - t;
+			b = t;
+		} else {
+			double ang = Math.acos(dot);
+			double sin = Math.sin(ang);
+			a = Math.sin((1 - t) * ang) / sin;
+			b = Math.sin(t * ang) / sin;
+		}
+		b *= sign;
+
+		double w = a * from.qw + b * to.qw;
+		double x = a * from.qx + b * to.qx;
+		double y = a * from.qy + b * to.qy;
+		double z = a * from.qz + b * to.qz;
+		Position3D start = from.pos;
+		Position3D end = to.pos;
+		this.pos = new Position3D(start.getX() + t * (end.getX() - start.getX()),
+				start.getY() + t * (end.getY() - start.getY()), start.getZ() + t * (end.getZ() - start.getZ()));
+		setRotation(w, x, y, z);
 	}
 
 	/**
@@ -244,11 +422,11 @@ public class Perspective {
 	 * @param dirCoords sets dir to dirCoords
 	 */
 	public void setDir(double[] dirCoords) {
-		dir.setCoord(dirCoords);
-		dir = dir.normalize();
-		tilt = dir.perp(tilt).normalize();
-		norm = dir.cross(tilt);
-		setBasis();
+		// Axes given by hand are rounded like any other coordinate, so whole axes
+		// stay whole
+		Vector3D newDir = new Vector3D(dirCoords).normalize();
+		Vector3D newTilt = newDir.perp(new Vector3D(tilt.getCoord())).normalize();
+		setRotation(newDir, newTilt, newDir.cross(newTilt));
 	}
 
 	/**
@@ -256,10 +434,9 @@ public class Perspective {
 	 * @param tiltCoords sets tilt to tiltCoords
 	 */
 	public void setTilt(double[] tiltCoords) {
-		tilt.setCoord(tiltCoords);
-		tilt = dir.perp(tilt).normalize();
-		norm = dir.cross(tilt);
-		setBasis();
+		Vector3D oldDir = new Vector3D(dir.getCoord());
+		Vector3D newTilt = oldDir.perp(new Vector3D(tiltCoords)).normalize();
+		setRotation(oldDir, newTilt, oldDir.cross(newTilt));
 	}
 
 	/**
@@ -288,33 +465,57 @@ public class Perspective {
 
 	/**
 	 * Finds a point corresponding to a 2D view point on a plane. Assumes that all
-	 * view points are in front of pov
+	 * view points are in front of pov. The ray is never built, its direction is
+	 * put together from the view basis and met with the plane straight away
 	 * 
 	 * @param point 2D view point
 	 * @param plane Plane to look at
 	 * @return Returns Position3D corresponding to 2D point placed on plane
 	 */
 	public Position3D getRealPoint(Position2D point, Plane plane) {
+		double[] ray = rayDirection(point.getX(), point.getY());
+		Vector3D planeNorm = plane.getNorm();
+		double den = planeNorm.getX() * ray[0] + planeNorm.getY() * ray[1] + planeNorm.getZ() * ray[2];
+		if (Math.abs(den) < Coord3D.ERROR) {
+			return null;
+		}
 
-		double xVal = Math.sqrt(this.zoom * this.zoom - point.getY() * point.getY() - point.getX() * point.getX());
-
-		Position3D viewPoint3D = this.toViewBasis(this.pos);
-		viewPoint3D.addX(xVal);
-		viewPoint3D.addY(-point.getX());
-		viewPoint3D.addZ(point.getY());
+		double t = (plane.getD()
+				- (planeNorm.getX() * pos.getX() + planeNorm.getY() * pos.getY() + planeNorm.getZ() * pos.getZ()))
+				/ den;
+		return new Position3D(pos.getX() + t * ray[0], pos.getY() + t * ray[1], pos.getZ() + t * ray[2]);
+	}
 
-		Line3D ray = new Line3D(this.pos, this.toStdBasis(viewPoint3D));
+	/**
+	 * Finds the ray leaving the perspective through a 2D view point
+	 * 
+	 * @param point 2D view point
+	 * @return Returns Line3D starting at pos pointing through point
+	 */
+	public Line3D getRay(Position2D point) {
+		return new Line3D(new Vector3D(rayDirection(point.getX(), point.getY())), this.pos);
+	}
 
-		Position3D stdPoint = plane.getIntersect(ray);
+	/**
+	 * Turns the unit ray through a view point from the view basis into the
+	 * standard one. Rays sit on a sphere of radius zoom, so the sideways and up
+	 * parts are the view point over zoom and only the forward part needs a root
+	 * 
+	 * @param x X coordinate of view point
+	 * @param y Y coordinate of view point
+	 * @return Returns unit direction of ray in standard basis
+	 */
+	private double[] rayDirection(double x, double y) {
+		double forward = Math.sqrt(this.zoom * this.zoom - y * y - x * x) / this.zoom;
+		double side = -x / this.zoom;
+		double up = y / this.zoom;
 
-		if (stdPoint == null) {
-			return null;
-		} else {
-			return stdPoint;
+		double[] ray = new double[3];
+		for (int i = 0; i < 3; i++) {
+			ray[i] = forward * viewBasis[0][i] + side * viewBasis[1][i] + up * viewBasis[2][i];
 		}
+		return ray;
 	}
-	
-	
 
 	// Overriding equals() to compare two Perspective objects
 	@Override
@@ -330,7 +531,7 @@ public class Perspective {
 
 		Perspective p = (Perspective) other;
 
-		return this.dir.equals(p.dir) && this.pos.equals(p.pos) && this.tilt.equals(p.tilt);
+		return this.getDir().equals(p.getDir()) && this.pos.equals(p.pos) && this.getTilt().equals(p.getTilt());
 
 	}
 
@@ -353,23 +554,19 @@ public class Perspective {
 
 	@Override
 	public String toString() {
-		return "Direction: " + this.dir.toString() + "\nTilt" + this.tilt.toString() + "\nPosition: "
+		return "Direction: " + this.getDir().toString() + "\nTilt" + this.getTilt().toString() + "\nPosition: "
 				+ this.pos.toString();
 	}
 
 	/**
-	 * Rotates direction of perspective ang radians ccw about axis
+	 * Rotates direction of perspective ang radians ccw about axis. Tilt and norm
+	 * turn with it, so the view never has to be straightened out again
 	 * 
 	 * @param ang  angle in radians
 	 * @param axis axis to rotate about
 	 */
 	public void rotateDir(double ang, Vector3D axis) {
-		dir.rotate(ang, axis);
-		dir = dir.normalize();
-		tilt = dir.perp(tilt).normalize();
-		norm = dir.cross(tilt);
-		setBasis();
-
+		turn(ang, axis);
 	}
 
 	/**
@@ -381,15 +578,10 @@ public class Perspective {
 	 */
 	public void orbit(double ang, Vector3D axis, Position3D pivot) {
 		Vector3D pivotDir = pivot.getDirection(this.pos);
-		dir.rotate(ang, axis);
-		dir = dir.normalize();
-		tilt = dir.perp(tilt).normalize();
-		norm = dir.cross(tilt);
+		turn(ang, axis);
 
 		pivotDir.rotate(ang, axis);
 		this.pos = pivot.add(pivotDir);
-		setBasis();
-
 	}
 
 }
@@ -0,0 +1,289 @@
+package blockrpg;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Software scanline rasterizer that fills polygons straight into the int
+ * raster backing a BufferedImage. Depth is tested against a flat buffer of
+ * inverse distances that is reused every frame, and whichever polygon wins a
+ * pixel leaves its id there so the screen can be picked without any geometry
+ */
+public class Rasterizer {
+
+	private final int width;
+	private final int height;
+
+	private final BufferedImage image;
+	private final int[] pixels;
+	private final float[] depth;
+	private int[] ids;
+
+	/**
+	 * Custom constructor for Rasterizer
+	 *
+	 * @param width  Width of screen in pixels
+	 * @param height Height of screen in pixels
+	 */
+	public Rasterizer(int width, int height) {
+		this.width = width;
+		this.height = height;
+
+		this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		this.depth = new float[width * height];
+		this.ids = new int[width * height];
+		Arrays.fill(ids, -1);
+	}
+
+	/**
+	 *
+	 * @return Returns width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 *
+	 * @return Returns height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 *
+	 * @return Returns image the pixels are written to
+	 */
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	/**
+	 *
+	 * @return Returns pixel array backing the image (row major)
+	 */
+	public int[] getPixels() {
+		return pixels;
+	}
+
+	/**
+	 *
+	 * @return Returns depth buffer (inverse distance per pixel, 0 if empty)
+	 */
+	public float[] getDepth() {
+		return depth;
+	}
+
+	/**
+	 *
+	 * @return Returns id of polygon written to each pixel (row major), -1 if empty
+	 */
+	public int[] getIds() {
+		return ids;
+	}
+
+	/**
+	 *
+	 * @param x X pixel
+	 * @param y Y pixel
+	 * @return Returns id of polygon nearest at a pixel, -1 if empty or off screen
+	 */
+	public int getId(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return -1;
+		}
+		return ids[y * width + x];
+	}
+
+	/**
+	 * Hands the id buffer over and writes ids into another one from then on, so
+	 * the ids of a finished frame can be read while the next one is drawn
+	 *
+	 * @param spare Buffer of width * height ids to write into next
+	 * @return Returns buffer holding the ids written so far
+	 */
+	public int[] swapIds(int[] spare) {
+		if (spare.length != width * height) {
+			throw new IllegalArgumentException("Id buffer must hold " + width * height + " pixels");
+		}
+		int[] filled = ids;
+		ids = spare;
+		return filled;
+	}
+
+	/**
+	 * Fills whole screen with a colour and resets depth to infinitely far away
+	 *
+	 * @param rgb Colour to fill with
+	 */
+	public void clear(int rgb) {
+		Arrays.fill(pixels, rgb);
+		Arrays.fill(depth, 0f);
+		Arrays.fill(ids, -1);
+	}
+
+	/**
+	 * Fills a face if it is visible
+	 *
+	 * @param face Face to fill
+	 */
+	public void fillFace(Face face) {
+		if (!face.isVisible()) {
+			return;
+		}
+
+		fillPolygon(new ScreenPolygon(face), 0, 0, width, height);
+	}
+
+	/**
+	 * Fills a projected polygon inside a clip rectangle
+	 *
+	 * @param poly     Polygon to fill
+	 * @param clipMinX Lowest x pixel to write
+	 * @param clipMinY Lowest y pixel to write
+	 * @param clipMaxX One past highest x pixel to write
+	 * @param clipMaxY One past highest y pixel to write
+	 */
+	public void fillPolygon(ScreenPolygon poly, int clipMinX, int clipMinY, int clipMaxX, int clipMaxY) {
+		fillPolygon(poly, -1, clipMinX, clipMinY, clipMaxX, clipMaxY);
+	}
+
+	/**
+	 * Fills a projected polygon inside a clip rectangle, tagging its pixels
+	 *
+	 * @param poly     Polygon to fill
+	 * @param id       Id written to every pixel the polygon wins
+	 * @param clipMinX Lowest x pixel to write
+	 * @param clipMinY Lowest y pixel to write
+	 * @param clipMaxX One past highest x pixel to write
+	 * @param clipMaxY One past highest y pixel to write
+	 */
+	public void fillPolygon(ScreenPolygon poly, int id, int clipMinX, int clipMinY, int clipMaxX, int clipMaxY) {
+		fillPolygon(poly.getXs(), poly.getYs(), poly.getInvZ(), poly.getNumPoints(), poly.getRGB(), id, clipMinX,
+				clipMinY, clipMaxX, clipMaxY);
+	}
+
+	/**
+	 * Fills a rectangle with a colour and resets its depth
+	 *
+	 * @param rgb  Colour to fill with
+	 * @param minX Lowest x pixel
+	 * @param minY Lowest y pixel
+	 * @param maxX One past highest x pixel
+	 * @param maxY One past highest y pixel
+	 */
+	public void clear(int rgb, int minX, int minY, int maxX, int maxY) {
+		for (int y = minY; y < maxY; y++) {
+			Arrays.fill(pixels, y * width + minX, y * width + maxX, rgb);
+			Arrays.fill(depth, y * width + minX, y * width + maxX, 0f);
+			Arrays.fill(ids, y * width + minX, y * width + maxX, -1);
+		}
+	}
+
+	/**
+	 * Fills a polygon one scanline at a time, sampling at pixel centers. Only
+	 * pixels inside the clip rectangle that are nearer than what is already there
+	 * are written. Points are projected by dividing by their distance, so inverse
+	 * distance is what is interpolated, first down the edges then linearly across
+	 * each span so every pixel only costs an add and a compare
+	 *
+	 * @param xs       X screen coordinates of points
+	 * @param ys       Y screen coordinates of points
+	 * @param invZ     Inverse distance of points from the perspective
+	 * @param num      Number of points
+	 * @param rgb      Colour to fill with
+	 * @param clipMinX Lowest x pixel to write
+	 * @param clipMinY Lowest y pixel to write
+	 * @param clipMaxX One past highest x pixel to write
+	 * @param clipMaxY One past highest y pixel to write
+	 */
+	public void fillPolygon(double[] xs, double[] ys, float[] invZ, int num, int rgb, int clipMinX, int clipMinY,
+			int clipMaxX, int clipMaxY) {
+		fillPolygon(xs, ys, invZ, num, rgb, -1, clipMinX, clipMinY, clipMaxX, clipMaxY);
+	}
+
+	/**
+	 * Fills a polygon like above, writing its id wherever it is nearest
+	 *
+	 * @param xs       X screen coordinates of points
+	 * @param ys       Y screen coordinates of points
+	 * @param invZ     Inverse distance of points from the perspective
+	 * @param num      Number of points
+	 * @param rgb      Colour to fill with
+	 * @param id       Id written to every pixel the polygon wins
+	 * @param clipMinX Lowest x pixel to write
+	 * @param clipMinY Lowest y pixel to write
+	 * @param clipMaxX One past highest x pixel to write
+	 * @param clipMaxY One past highest y pixel to write
+	 */
+	public void fillPolygon(double[] xs, double[] ys, float[] invZ, int num, int rgb, int id, int clipMinX,
+			int clipMinY, int clipMaxX, int clipMaxY) {
+		if (num < 3) {
+			return;
+		}
+
+		double minY = ys[0];
+		double maxY = ys[0];
+		for (int i = 1; i < num; i++) {
+			minY = Math.min(minY, ys[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+
+		int startY = Math.max(clipMinY, (int) Math.ceil(minY - 0.5));
+		int endY = Math.min(clipMaxY, (int) Math.ceil(maxY - 0.5));
+
+		double[] crossings = new double[num];
+		double[] crossingZ = new double[num];
+
+		for (int y = startY; y < endY; y++) {
+			double sampleY = y + 0.5;
+
+			// Edges own their top point but not their bottom one so shared vertices
+			// are only counted once
+			int count = 0;
+			for (int i = 0, j = num - 1; i < num; j = i++) {
+				double y0 = ys[j];
+				double y1 = ys[i];
+				if ((y0 <= sampleY && sampleY < y1) || (y1 <= sampleY && sampleY < y0)) {
+					double t = (sampleY - y0) / (y1 - y0);
+					double x = xs[j] + t * (xs[i] - xs[j]);
+					double z = invZ[j] + t * (invZ[i] - invZ[j]);
+
+					int k = count++;
+					while (k > 0 && crossings[k - 1] > x) {
+						crossings[k] = crossings[k - 1];
+						crossingZ[k] = crossingZ[k - 1];
+						k--;
+					}
+					crossings[k] = x;
+					crossingZ[k] = z;
+				}
+			}
+
+			int row = y * width;
+			for (int i = 0; i + 1 < count; i += 2) {
+				int startX = Math.max(clipMinX, (int) Math.ceil(crossings[i] - 0.5));
+				int endX = Math.min(clipMaxX, (int) Math.ceil(crossings[i + 1] - 0.5));
+				if (startX >= endX) {
+					continue;
+				}
+
+				double spanX = crossings[i + 1] - crossings[i];
+				float dz = spanX > 0 ? (float) ((crossingZ[i + 1] - crossingZ[i]) / spanX) : 0f;
+				float z = (float) (crossingZ[i] + (startX + 0.5 - crossings[i]) * dz);
+
+				for (int index = row + startX, end = row + endX; index < end; index++) {
+					if (z > depth[index]) {
+						depth[index] = z;
+						pixels[index] = rgb;
+						ids[index] = id;
+					}
+					z += dz;
+				}
+			}
+		}
+	}
+}
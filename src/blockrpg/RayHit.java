@@ -0,0 +1,86 @@
+package blockrpg;
+
+/**
+ * Result of casting a ray into a World
+ */
+public class RayHit {
+
+	private final int x;
+	private final int y;
+	private final int z;
+	private final Direction face;
+	private final double distance;
+	private final int block;
+
+	/**
+	 * Custom constructor for RayHit
+	 * 
+	 * @param x        Block x coordinate
+	 * @param y        Block y coordinate
+	 * @param z        Block z coordinate
+	 * @param face     Side of block that was hit (null if ray started inside it)
+	 * @param distance Distance along ray to hit
+	 * @param block    Block that was hit
+	 */
+	public RayHit(int x, int y, int z, Direction face, double distance, int block) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.face = face;
+		this.distance = distance;
+		this.block = block;
+	}
+
+	/**
+	 * 
+	 * @return Returns x coordinate of block
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * 
+	 * @return Returns y coordinate of block
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * 
+	 * @return Returns z coordinate of block
+	 */
+	public int getZ() {
+		return z;
+	}
+
+	/**
+	 * 
+	 * @return Returns side of block that was hit
+	 */
+	public Direction getFace() {
+		return face;
+	}
+
+	/**
+	 * 
+	 * @return Returns distance along ray to hit
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	/**
+	 * 
+	 * @return Returns block that was hit
+	 */
+	public int getBlock() {
+		return block;
+	}
+
+	@Override
+	public String toString() {
+		return "Block: [ " + x + ", " + y + ", " + z + " ]\nFace: " + face + "\nDistance: " + distance;
+	}
+}
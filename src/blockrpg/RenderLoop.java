@@ -0,0 +1,84 @@
+package blockrpg;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs on its own thread and presents frames from a Drawer at a capped rate,
+ * independent of the event dispatch thread. On demand, the thread parks until
+ * the drawer reports a change instead of redrawing a scene that is still
+ */
+public class RenderLoop implements Runnable {
+
+	private final Drawer drawer;
+	private final long framePeriod;
+	private final boolean onDemand;
+	private volatile boolean running;
+
+	/**
+	 * Custom constructor for RenderLoop
+	 * 
+	 * @param drawer    Drawer to present frames from
+	 * @param targetFps Frames per second to aim for
+	 */
+	public RenderLoop(Drawer drawer, int targetFps) {
+		this(drawer, targetFps, false);
+	}
+
+	/**
+	 * Custom constructor for RenderLoop
+	 * 
+	 * @param drawer    Drawer to present frames from
+	 * @param targetFps Most frames per second to present
+	 * @param onDemand  True to only present frames when something changed
+	 */
+	public RenderLoop(Drawer drawer, int targetFps, boolean onDemand) {
+		this.drawer = drawer;
+		this.framePeriod = 1000000000L / targetFps;
+		this.onDemand = onDemand;
+		this.running = true;
+	}
+
+	@Override
+	public void run() {
+		long nextFrame = System.nanoTime();
+		long prevTick = System.nanoTime();
+
+		while (running) {
+			if (onDemand && !drawer.isDirty()) {
+				drawer.awaitFrame();
+				// Time spent idle is not part of any frame
+				nextFrame = System.nanoTime();
+				prevTick = nextFrame;
+				if (!running) {
+					break;
+				}
+			}
+
+			drawer.render();
+
+			long currTick = System.nanoTime();
+			if (MainWindow.FPS && currTick > prevTick) {
+				drawer.setStats("FPS: " + Long.toString(1000000000 / (currTick - prevTick)));
+			}
+			prevTick = currTick;
+
+			// Wait out the rest of the frame, but never try to catch up on frames that
+			// were missed
+			nextFrame += framePeriod;
+			long wait = nextFrame - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			} else {
+				nextFrame = System.nanoTime();
+			}
+		}
+	}
+
+	/**
+	 * Stops the loop after the current frame
+	 */
+	public void stop() {
+		running = false;
+		drawer.requestFrame();
+	}
+}
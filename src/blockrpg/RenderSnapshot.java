@@ -0,0 +1,200 @@
+package blockrpg;
+
+import java.awt.Polygon;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything needed to draw one frame, copied out of the faces by the
+ * simulation thread. Nothing in a snapshot changes once it is built, so the
+ * render thread can draw it while the next frame is being simulated
+ */
+public class RenderSnapshot {
+
+	public static final RenderSnapshot EMPTY = new RenderSnapshot(new ScreenPolygon[0], null, null);
+
+	private final ScreenPolygon[] polys;
+	private final double[] centerXs;
+	private final double[] centerYs;
+	// Faces the polygons came from, only ever compared by identity
+	private final Face[] sources;
+
+	/**
+	 * Custom constructor for RenderSnapshot
+	 *
+	 * @param polys    Visible polygons in draw order
+	 * @param centerXs X screen coordinates of polygon centers, or null
+	 * @param centerYs Y screen coordinates of polygon centers, or null
+	 */
+	public RenderSnapshot(ScreenPolygon[] polys, double[] centerXs, double[] centerYs) {
+		this(polys, centerXs, centerYs, null);
+	}
+
+	/**
+	 * Custom constructor for RenderSnapshot
+	 *
+	 * @param polys    Visible polygons in draw order
+	 * @param centerXs X screen coordinates of polygon centers, or null
+	 * @param centerYs Y screen coordinates of polygon centers, or null
+	 * @param sources  Faces the polygons were projected from, or null
+	 */
+	public RenderSnapshot(ScreenPolygon[] polys, double[] centerXs, double[] centerYs, Face[] sources) {
+		this.polys = polys;
+		this.centerXs = centerXs;
+		this.centerYs = centerYs;
+		this.sources = sources;
+	}
+
+	/**
+	 * Projects the visible faces of a sorted list
+	 *
+	 * @param faces Faces in draw order
+	 * @return Returns snapshot of faces as they are now
+	 */
+	public static RenderSnapshot capture(List<Face> faces) {
+		int num = 0;
+		for (int i = 0; i < faces.size(); i++) {
+			if (faces.get(i).isVisible()) {
+				num++;
+			}
+		}
+
+		ScreenPolygon[] polys = new ScreenPolygon[num];
+		Face[] sources = new Face[num];
+		double[] centerXs = MainWindow.SHOWCENT ? new double[num] : null;
+		double[] centerYs = MainWindow.SHOWCENT ? new double[num] : null;
+
+		int index = 0;
+		for (int i = 0; i < faces.size(); i++) {
+			Face face = faces.get(i);
+			if (!face.isVisible()) {
+				continue;
+			}
+
+			polys[index] = new ScreenPolygon(face);
+			sources[index] = face;
+			if (centerXs != null) {
+				Position2D center = face.getPOV().getViewPoint(face.getCenter3D());
+				centerXs[index] = center.getX() + Face.xOffset;
+				centerYs[index] = -center.getY() + Face.yOffset;
+			}
+			index++;
+		}
+
+		return new RenderSnapshot(polys, centerXs, centerYs, sources);
+	}
+
+	/**
+	 * Blends two snapshots for drawing between simulation ticks. Polygons of the
+	 * current snapshot are moved back towards where the same face was in the
+	 * previous one. Faces that only exist in the current snapshot, or whose
+	 * outline changed shape, are drawn where they are now
+	 *
+	 * @param prev  Snapshot of previous tick
+	 * @param curr  Snapshot of current tick
+	 * @param alpha Fraction of the way from prev to curr
+	 * @return Returns blended snapshot
+	 */
+	public static RenderSnapshot interpolate(RenderSnapshot prev, RenderSnapshot curr, double alpha) {
+		if (prev == null || prev == curr || prev.sources == null || curr.sources == null || alpha >= 1) {
+			return curr;
+		}
+
+		Map<Face, Integer> prevIndex = new IdentityHashMap<Face, Integer>(prev.size() * 2);
+		for (int i = 0; i < prev.size(); i++) {
+			prevIndex.put(prev.sources[i], i);
+		}
+
+		ScreenPolygon[] polys = new ScreenPolygon[curr.size()];
+		for (int i = 0; i < polys.length; i++) {
+			Integer j = prevIndex.get(curr.sources[i]);
+			ScreenPolygon to = curr.polys[i];
+			if (j == null || prev.polys[j].getNumPoints() != to.getNumPoints()) {
+				polys[i] = to;
+				continue;
+			}
+
+			ScreenPolygon from = prev.polys[j];
+			int num = to.getNumPoints();
+			double[] xs = new double[num];
+			double[] ys = new double[num];
+			float[] invZ = new float[num];
+			for (int k = 0; k < num; k++) {
+				xs[k] = from.getXs()[k] + alpha * (to.getXs()[k] - from.getXs()[k]);
+				ys[k] = from.getYs()[k] + alpha * (to.getYs()[k] - from.getYs()[k]);
+				invZ[k] = (float) (from.getInvZ()[k] + alpha * (to.getInvZ()[k] - from.getInvZ()[k]));
+			}
+			polys[i] = new ScreenPolygon(xs, ys, invZ, num, to.getRGB());
+		}
+
+		return new RenderSnapshot(polys, curr.centerXs, curr.centerYs, curr.sources);
+	}
+
+	/**
+	 *
+	 * @return Returns visible polygons in draw order
+	 */
+	public ScreenPolygon[] getPolys() {
+		return polys;
+	}
+
+	/**
+	 *
+	 * @return Returns number of polygons
+	 */
+	public int size() {
+		return polys.length;
+	}
+
+	/**
+	 *
+	 * @param index Index of polygon
+	 * @return Returns face polygon was projected from, null if it is not known
+	 */
+	public Face getSource(int index) {
+		return sources == null ? null : sources[index];
+	}
+
+	/**
+	 *
+	 * @return Returns true if polygon centers were captured
+	 */
+	public boolean hasCenters() {
+		return centerXs != null;
+	}
+
+	/**
+	 *
+	 * @param index Index of polygon
+	 * @return Returns x screen coordinate of polygon center
+	 */
+	public double getCenterX(int index) {
+		return centerXs[index];
+	}
+
+	/**
+	 *
+	 * @param index Index of polygon
+	 * @return Returns y screen coordinate of polygon center
+	 */
+	public double getCenterY(int index) {
+		return centerYs[index];
+	}
+
+	/**
+	 *
+	 * @param index Index of polygon
+	 * @return Returns outline of polygon for wireframe drawing
+	 */
+	public Polygon getOutline(int index) {
+		ScreenPolygon poly = polys[index];
+		int[] xs = new int[poly.getNumPoints()];
+		int[] ys = new int[poly.getNumPoints()];
+		for (int i = 0; i < xs.length; i++) {
+			xs[i] = (int) poly.getXs()[i];
+			ys[i] = (int) poly.getYs()[i];
+		}
+		return new Polygon(xs, ys, xs.length);
+	}
+}
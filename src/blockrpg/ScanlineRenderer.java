@@ -0,0 +1,353 @@
+package blockrpg;
+
+import java.util.Arrays;
+
+/**
+ * Watkins style scanline hidden surface renderer. Edges of every polygon are
+ * bucketed by the scanline they start on, then each scanline keeps a list of
+ * the edges crossing it sorted by x and a list of the polygons the sweep is
+ * inside of. Between two crossings only the nearest polygon is found, from its
+ * plane equation, and written, so every pixel is written exactly once and the
+ * polygons never need to be sorted
+ */
+public class ScanlineRenderer {
+
+	private final Rasterizer target;
+
+	// Plane of each polygon as inverse distance = a * x + b * y + c
+	private double[] planeA;
+	private double[] planeB;
+	private double[] planeC;
+	private int[] colours;
+	private final double[] plane = new double[3];
+
+	// Edge table, every edge kept by the scanline it starts on
+	private int numEdges;
+	private double[] edgeX;
+	private double[] edgeDX;
+	private int[] edgeEnd;
+	private int[] edgePoly;
+	private int[] edgeNext;
+	private int[] bucketHead;
+
+	// Active edges of the current scanline, sorted by x
+	private int[] active;
+	private int numActive;
+
+	// Polygons the sweep is inside of, with where each sits in the list
+	private int[] inside;
+	private int[] insidePos;
+	private int numInside;
+
+	private long spans;
+
+	/**
+	 * Custom constructor for ScanlineRenderer
+	 *
+	 * @param target Rasterizer whose buffers are written to
+	 */
+	public ScanlineRenderer(Rasterizer target) {
+		this.target = target;
+		this.bucketHead = new int[target.getHeight()];
+		ensurePolys(16);
+		ensureEdges(64);
+	}
+
+	/**
+	 *
+	 * @return Returns number of spans written by the last render
+	 */
+	public long getSpans() {
+		return spans;
+	}
+
+	/**
+	 * Draws polygons in any order, nearest one wins at every pixel
+	 *
+	 * @param polys      Polygons to draw
+	 * @param background Colour of pixels no polygon covers
+	 */
+	public void render(ScreenPolygon[] polys, int background) {
+		buildEdgeTable(polys);
+
+		int width = target.getWidth();
+		int[] pixels = target.getPixels();
+		float[] depth = target.getDepth();
+		int[] ids = target.getIds();
+		spans = 0;
+		numActive = 0;
+
+		for (int y = 0; y < target.getHeight(); y++) {
+			double sampleY = y + 0.5;
+
+			// Drop edges that ended, step the rest and add the ones starting here
+			int kept = 0;
+			for (int i = 0; i < numActive; i++) {
+				int edge = active[i];
+				if (edgeEnd[edge] >= y) {
+					edgeX[edge] += edgeDX[edge];
+					active[kept++] = edge;
+				}
+			}
+			numActive = kept;
+			for (int edge = bucketHead[y]; edge >= 0; edge = edgeNext[edge]) {
+				if (numActive == active.length) {
+					active = Arrays.copyOf(active, active.length * 2);
+				}
+				active[numActive++] = edge;
+			}
+
+			// Edges barely move between scanlines so insertion sort is nearly linear
+			for (int i = 1; i < numActive; i++) {
+				int edge = active[i];
+				double x = edgeX[edge];
+				int j = i - 1;
+				while (j >= 0 && edgeX[active[j]] > x) {
+					active[j + 1] = active[j];
+					j--;
+				}
+				active[j + 1] = edge;
+			}
+
+			int row = y * width;
+			int cursor = 0;
+			numInside = 0;
+			for (int i = 0; i < numActive; i++) {
+				int edge = active[i];
+				int start = clamp((int) Math.ceil(edgeX[edge] - 0.5), width);
+				if (start > cursor) {
+					if (numInside == 0) {
+						Arrays.fill(pixels, row + cursor, row + start, background);
+						Arrays.fill(depth, row + cursor, row + start, 0f);
+						Arrays.fill(ids, row + cursor, row + start, -1);
+					} else {
+						fillSegment(pixels, depth, ids, row, cursor, start, sampleY);
+					}
+					cursor = start;
+				}
+				toggle(edgePoly[edge]);
+			}
+			Arrays.fill(pixels, row + cursor, row + width, background);
+			Arrays.fill(depth, row + cursor, row + width, 0f);
+			Arrays.fill(ids, row + cursor, row + width, -1);
+		}
+	}
+
+	/**
+	 * Writes the nearest polygon across a segment where the inside list does not
+	 * change. If polygons pass through each other the segment is cut at the first
+	 * point any of them comes in front of the nearest one, which need not be the
+	 * one nearest at the far end
+	 *
+	 * @param pixels  Pixels to write
+	 * @param depth   Depth buffer to write
+	 * @param ids     Id buffer to write
+	 * @param row     Index of first pixel of scanline
+	 * @param start   First pixel of segment
+	 * @param end     One past last pixel of segment
+	 * @param sampleY Y coordinate of scanline center
+	 */
+	private void fillSegment(int[] pixels, float[] depth, int[] ids, int row, int start, int end, double sampleY) {
+		while (start < end) {
+			double left = start + 0.5;
+			double right = end - 0.5;
+
+			int near = nearestAt(left, sampleY);
+			double nearZ = depthAt(near, left, sampleY);
+
+			// Planes are straight along the scanline, so each one that gains on the
+			// nearest overtakes it at most once
+			double meet = right + 1;
+			for (int i = 0; i < numInside; i++) {
+				int poly = inside[i];
+				double slope = planeA[poly] - planeA[near];
+				if (poly != near && slope > 0) {
+					meet = Math.min(meet, left + (nearZ - depthAt(poly, left, sampleY)) / slope);
+				}
+			}
+			int stop = Math.max(start + 1, Math.min(end, (int) Math.ceil(meet - 0.5)));
+
+			int colour = colours[near];
+			float dz = (float) planeA[near];
+			float value = (float) nearZ;
+			for (int index = row + start, last = row + stop; index < last; index++) {
+				pixels[index] = colour;
+				depth[index] = value;
+				ids[index] = near;
+				value += dz;
+			}
+			spans++;
+			start = stop;
+		}
+	}
+
+	/**
+	 *
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @return Returns polygon of inside list nearest at a point
+	 */
+	private int nearestAt(double x, double y) {
+		int best = inside[0];
+		double bestZ = depthAt(best, x, y);
+		for (int i = 1; i < numInside; i++) {
+			double z = depthAt(inside[i], x, y);
+			if (z > bestZ) {
+				bestZ = z;
+				best = inside[i];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 *
+	 * @param poly Index of polygon
+	 * @param x    X coordinate
+	 * @param y    Y coordinate
+	 * @return Returns inverse distance of polygon plane at a point
+	 */
+	private double depthAt(int poly, double x, double y) {
+		return planeA[poly] * x + planeB[poly] * y + planeC[poly];
+	}
+
+	/**
+	 * Enters a polygon if the sweep was outside of it, leaves it otherwise
+	 *
+	 * @param poly Index of polygon
+	 */
+	private void toggle(int poly) {
+		int pos = insidePos[poly];
+		if (pos < 0) {
+			insidePos[poly] = numInside;
+			inside[numInside++] = poly;
+		} else {
+			int last = inside[--numInside];
+			inside[pos] = last;
+			insidePos[last] = pos;
+			insidePos[poly] = -1;
+		}
+	}
+
+	/**
+	 * Fits planes to polygons and buckets their edges by starting scanline
+	 *
+	 * @param polys Polygons to draw
+	 */
+	private void buildEdgeTable(ScreenPolygon[] polys) {
+		ensurePolys(polys.length);
+		Arrays.fill(bucketHead, -1);
+		Arrays.fill(insidePos, 0, polys.length, -1);
+		numEdges = 0;
+
+		int height = target.getHeight();
+		for (int p = 0; p < polys.length; p++) {
+			ScreenPolygon poly = polys[p];
+			if (!fitPlane(p, poly)) {
+				continue;
+			}
+			colours[p] = poly.getRGB();
+
+			double[] xs = poly.getXs();
+			double[] ys = poly.getYs();
+			int num = poly.getNumPoints();
+			for (int i = 0, j = num - 1; i < num; j = i++) {
+				double x0 = xs[j];
+				double y0 = ys[j];
+				double x1 = xs[i];
+				double y1 = ys[i];
+				if (y0 > y1) {
+					double swap = x0;
+					x0 = x1;
+					x1 = swap;
+					swap = y0;
+					y0 = y1;
+					y1 = swap;
+				}
+
+				// Edges own their top point but not their bottom one, like Rasterizer
+				int top = (int) Math.ceil(y0 - 0.5);
+				int bottom = (int) Math.ceil(y1 - 0.5);
+				if (top >= bottom || bottom <= 0 || top >= height) {
+					continue;
+				}
+
+				double dx = (x1 - x0) / (y1 - y0);
+				int first = Math.max(0, top);
+				ensureEdges(numEdges + 1);
+				edgeX[numEdges] = x0 + (first + 0.5 - y0) * dx;
+				edgeDX[numEdges] = dx;
+				edgeEnd[numEdges] = Math.min(height, bottom) - 1;
+				edgePoly[numEdges] = p;
+				edgeNext[numEdges] = bucketHead[first];
+				bucketHead[first] = numEdges;
+				numEdges++;
+			}
+		}
+	}
+
+	/**
+	 * Fits the plane of a polygon into the per polygon arrays
+	 *
+	 * @param index Index of polygon
+	 * @param poly  Polygon to fit
+	 * @return Returns false if polygon is edge on and covers nothing
+	 */
+	private boolean fitPlane(int index, ScreenPolygon poly) {
+		if (!poly.fitDepthPlane(plane, 0)) {
+			return false;
+		}
+		planeA[index] = plane[0];
+		planeB[index] = plane[1];
+		planeC[index] = plane[2];
+		return true;
+	}
+
+	/**
+	 *
+	 * @param value Value to clamp
+	 * @param max   Highest value
+	 * @return Returns value clamped between 0 and max
+	 */
+	private static int clamp(int value, int max) {
+		return Math.max(0, Math.min(max, value));
+	}
+
+	/**
+	 * Grows per polygon arrays
+	 *
+	 * @param size Number of polygons needed
+	 */
+	private void ensurePolys(int size) {
+		if (planeA != null && planeA.length >= size) {
+			return;
+		}
+		int length = Math.max(size, planeA == null ? 0 : planeA.length * 2);
+		planeA = new double[length];
+		planeB = new double[length];
+		planeC = new double[length];
+		colours = new int[length];
+		inside = new int[length];
+		insidePos = new int[length];
+	}
+
+	/**
+	 * Grows per edge arrays, keeping edges already added
+	 *
+	 * @param size Number of edges needed
+	 */
+	private void ensureEdges(int size) {
+		if (edgeX != null && edgeX.length >= size) {
+			return;
+		}
+		int length = Math.max(size, edgeX == null ? 0 : edgeX.length * 2);
+		edgeX = edgeX == null ? new double[length] : Arrays.copyOf(edgeX, length);
+		edgeDX = edgeDX == null ? new double[length] : Arrays.copyOf(edgeDX, length);
+		edgeEnd = edgeEnd == null ? new int[length] : Arrays.copyOf(edgeEnd, length);
+		edgePoly = edgePoly == null ? new int[length] : Arrays.copyOf(edgePoly, length);
+		edgeNext = edgeNext == null ? new int[length] : Arrays.copyOf(edgeNext, length);
+		if (active == null || active.length < length) {
+			active = new int[length];
+		}
+	}
+}
@@ -0,0 +1,235 @@
+package blockrpg;
+
+/**
+ * Projected outline of a face in screen pixels, with everything the rasterizer
+ * needs and nothing it has to look up again
+ */
+public class ScreenPolygon {
+
+	private final double[] xs;
+	private final double[] ys;
+	private final float[] invZ;
+	private final int numPoints;
+	private final int rgb;
+
+	private final double minX;
+	private final double minY;
+	private final double maxX;
+	private final double maxY;
+
+	/**
+	 * Custom constructor for ScreenPolygon
+	 * 
+	 * @param xs        X screen coordinates of points
+	 * @param ys        Y screen coordinates of points
+	 * @param invZ      Inverse distance of points from the perspective
+	 * @param numPoints Number of points
+	 * @param rgb       Colour of polygon
+	 */
+	public ScreenPolygon(double[] xs, double[] ys, float[] invZ, int numPoints, int rgb) {
+		this.xs = xs;
+		this.ys = ys;
+		this.invZ = invZ;
+		this.numPoints = numPoints;
+		this.rgb = rgb;
+
+		double lowX = Double.POSITIVE_INFINITY;
+		double lowY = Double.POSITIVE_INFINITY;
+		double highX = Double.NEGATIVE_INFINITY;
+		double highY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < numPoints; i++) {
+			lowX = Math.min(lowX, xs[i]);
+			lowY = Math.min(lowY, ys[i]);
+			highX = Math.max(highX, xs[i]);
+			highY = Math.max(highY, ys[i]);
+		}
+		this.minX = lowX;
+		this.minY = lowY;
+		this.maxX = highX;
+		this.maxY = highY;
+	}
+
+	/**
+	 * Projects a face into screen pixels
+	 * 
+	 * @param face Face to project
+	 */
+	public ScreenPolygon(Face face) {
+		this(screenXs(face), screenYs(face), invDepths(face), face.getNumPoints(), face.getCol().getRGB());
+	}
+
+	/**
+	 * 
+	 * @param face Face to project
+	 * @return Returns x screen coordinates of face points
+	 */
+	private static double[] screenXs(Face face) {
+		double[] xs = new double[face.getNumPoints()];
+		for (int i = 0; i < xs.length; i++) {
+			xs[i] = face.getViewPoints()[i].getX() + Face.xOffset;
+		}
+		return xs;
+	}
+
+	/**
+	 * 
+	 * @param face Face to project
+	 * @return Returns y screen coordinates of face points
+	 */
+	private static double[] screenYs(Face face) {
+		double[] ys = new double[face.getNumPoints()];
+		for (int i = 0; i < ys.length; i++) {
+			ys[i] = -face.getViewPoints()[i].getY() + Face.yOffset;
+		}
+		return ys;
+	}
+
+	/**
+	 * 
+	 * @param face Face to project
+	 * @return Returns inverse distances of face points
+	 */
+	private static float[] invDepths(Face face) {
+		float[] invZ = new float[face.getNumPoints()];
+		Position3D eye = face.getPOV().getPos();
+		for (int i = 0; i < invZ.length; i++) {
+			invZ[i] = (float) (1 / eye.totDistanceFrom(face.getTruePoints()[i]));
+		}
+		return invZ;
+	}
+
+	/**
+	 * 
+	 * @return Returns x screen coordinates of points
+	 */
+	public double[] getXs() {
+		return xs;
+	}
+
+	/**
+	 * 
+	 * @return Returns y screen coordinates of points
+	 */
+	public double[] getYs() {
+		return ys;
+	}
+
+	/**
+	 * 
+	 * @return Returns inverse distance of points
+	 */
+	public float[] getInvZ() {
+		return invZ;
+	}
+
+	/**
+	 * 
+	 * @return Returns number of points
+	 */
+	public int getNumPoints() {
+		return numPoints;
+	}
+
+	/**
+	 * 
+	 * @return Returns colour of polygon
+	 */
+	public int getRGB() {
+		return rgb;
+	}
+
+	/**
+	 * 
+	 * @return Returns lowest x screen coordinate
+	 */
+	public double getMinX() {
+		return minX;
+	}
+
+	/**
+	 * 
+	 * @return Returns lowest y screen coordinate
+	 */
+	public double getMinY() {
+		return minY;
+	}
+
+	/**
+	 * 
+	 * @return Returns highest x screen coordinate
+	 */
+	public double getMaxX() {
+		return maxX;
+	}
+
+	/**
+	 * 
+	 * @return Returns highest y screen coordinate
+	 */
+	public double getMaxY() {
+		return maxY;
+	}
+
+	/**
+	 * Checks a point with the same edge rules the rasterizer fills by, without
+	 * allocating anything
+	 * 
+	 * @param x X screen coordinate
+	 * @param y Y screen coordinate
+	 * @return Returns true if a pixel sampled at the point would be filled
+	 */
+	public boolean contains(double x, double y) {
+		if (x < minX || x >= maxX || y < minY || y >= maxY) {
+			return false;
+		}
+
+		boolean inside = false;
+		for (int i = 0, j = numPoints - 1; i < numPoints; j = i++) {
+			double y0 = ys[j];
+			double y1 = ys[i];
+			if ((y0 <= y && y < y1) || (y1 <= y && y < y0)) {
+				double cross = xs[j] + (y - y0) / (y1 - y0) * (xs[i] - xs[j]);
+				if (cross <= x) {
+					inside = !inside;
+				}
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Fits inverse distance over screen space as a plane with Newell's method, so
+	 * it can be found at any point as a * x + b * y + c
+	 * 
+	 * @param out    Array to write a, b and c into
+	 * @param offset Index of a in out
+	 * @return Returns false if polygon is edge on and covers nothing
+	 */
+	public boolean fitDepthPlane(double[] out, int offset) {
+		double nx = 0;
+		double ny = 0;
+		double nz = 0;
+		double cx = 0;
+		double cy = 0;
+		double cz = 0;
+		for (int i = 0, j = numPoints - 1; i < numPoints; j = i++) {
+			nx += (ys[j] - ys[i]) * (invZ[j] + invZ[i]);
+			ny += (invZ[j] - invZ[i]) * (xs[j] + xs[i]);
+			nz += (xs[j] - xs[i]) * (ys[j] + ys[i]);
+			cx += xs[i];
+			cy += ys[i];
+			cz += invZ[i];
+		}
+
+		if (numPoints < 3 || Math.abs(nz) < Coord3D.ERROR) {
+			return false;
+		}
+
+		double a = -nx / nz;
+		double b = -ny / nz;
+		out[offset] = a;
+		out[offset + 1] = b;
+		out[offset + 2] = (cz - a * cx - b * cy) / numPoints;
+		return true;
+	}
+}
@@ -0,0 +1,308 @@
+package blockrpg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Spreads a depth sort over as many frames as it needs. The sort is a bottom up
+ * merge sort whose place is kept between calls, and each call only does as many
+ * comparisons (or as much time) as its budget allows before handing back the
+ * last order that finished. New passes start from that order, which is nearly
+ * sorted, so runs already in place cost one comparison each and the order
+ * settles within a few frames of things stopping
+ */
+public class SlicedSorter implements VisibilityEngine {
+
+	// Default comparisons allowed per call
+	public static final long BUDGET = 20000;
+	// Default time allowed per call, in nanoseconds
+	public static final long BUDGET_NANOS = 4000000;
+	// Comparisons between checks of the clock
+	private static final int CLOCK_INTERVAL = 64;
+
+	private final long maxComparisons;
+	private final long maxNanos;
+	private List<Face> staticFaces;
+
+	// Last finished order, handed out until the next one finishes
+	private ArrayList<Face> good;
+	private long[] goodVersions;
+
+	// Faces being sorted and what their versions were when the pass started
+	private Face[] src;
+	private Face[] dst;
+	private long[] startVersions;
+	private int size;
+	private boolean sorting;
+
+	// Where the pass is: run width, start of the current pair of runs, and the
+	// read and write positions of a merge that ran out of budget part way
+	private int width;
+	private int pairLo;
+	private boolean merging;
+	private int left;
+	private int leftEnd;
+	private int right;
+	private int rightEnd;
+	private int out;
+
+	private long comparisons;
+	private long passes;
+
+	/**
+	 * Default constructor for SlicedSorter
+	 */
+	public SlicedSorter() {
+		this(BUDGET, BUDGET_NANOS);
+	}
+
+	/**
+	 * Custom constructor for SlicedSorter
+	 *
+	 * @param maxComparisons Comparisons allowed per call
+	 * @param maxNanos       Time allowed per call in nanoseconds, 0 for no limit
+	 */
+	public SlicedSorter(long maxComparisons, long maxNanos) {
+		this.maxComparisons = Math.max(1, maxComparisons);
+		this.maxNanos = maxNanos;
+		this.staticFaces = new ArrayList<Face>();
+		this.good = new ArrayList<Face>();
+		this.goodVersions = new long[0];
+		this.src = new Face[0];
+		this.dst = new Face[0];
+		this.startVersions = new long[0];
+	}
+
+	@Override
+	public void setStaticFaces(List<Face> faces) {
+		this.staticFaces = faces;
+	}
+
+	@Override
+	public List<Face> getStaticFaces() {
+		return staticFaces;
+	}
+
+	@Override
+	public boolean isRefining() {
+		return sorting;
+	}
+
+	/**
+	 *
+	 * @return Returns total number of comparisons made
+	 */
+	public long getComparisons() {
+		return comparisons;
+	}
+
+	/**
+	 *
+	 * @return Returns number of sorts that have finished
+	 */
+	public long getPasses() {
+		return passes;
+	}
+
+	@Override
+	public ArrayList<Face> order(List<Face> faces, Perspective pov) {
+		ArrayList<Face> all = new ArrayList<Face>(staticFaces.size() + faces.size());
+		all.addAll(staticFaces);
+		all.addAll(faces);
+		return order(all);
+	}
+
+	/**
+	 * Does one slice of sorting work
+	 *
+	 * @param faces Faces to order
+	 * @return Returns last finished order of faces, which may be a few frames old
+	 */
+	public ArrayList<Face> order(List<Face> faces) {
+		if (!sameFaces(faces)) {
+			// Faces that are still here keep their places and new ones go in front,
+			// then a new pass starts from there
+			Set<Face> present = Collections.newSetFromMap(new IdentityHashMap<Face, Boolean>());
+			present.addAll(faces);
+			ArrayList<Face> seed = new ArrayList<Face>(faces.size());
+			for (Face face : good) {
+				if (present.remove(face)) {
+					seed.add(face);
+				}
+			}
+			for (Face face : faces) {
+				if (present.remove(face)) {
+					seed.add(face);
+				}
+			}
+			good = seed;
+			start();
+		} else if (!sorting && movedSinceFinished()) {
+			start();
+		}
+
+		if (sorting) {
+			step();
+		}
+		return new ArrayList<Face>(good);
+	}
+
+	/**
+	 *
+	 * @param faces Faces to order
+	 * @return Returns true if faces are the ones the last order holds
+	 */
+	private boolean sameFaces(List<Face> faces) {
+		if (faces.size() != good.size()) {
+			return false;
+		}
+		Set<Face> present = Collections.newSetFromMap(new IdentityHashMap<Face, Boolean>());
+		present.addAll(good);
+		for (Face face : faces) {
+			if (!present.remove(face)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @return Returns true if any face was moved or reprojected since the last
+	 *         pass finished
+	 */
+	private boolean movedSinceFinished() {
+		for (int i = 0; i < good.size(); i++) {
+			if (i >= goodVersions.length || good.get(i).getVersion() != goodVersions[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Starts a pass from the last finished order
+	 */
+	private void start() {
+		size = good.size();
+		if (src.length < size) {
+			src = new Face[size];
+			dst = new Face[size];
+			startVersions = new long[size];
+		}
+		for (int i = 0; i < size; i++) {
+			src[i] = good.get(i);
+			startVersions[i] = src[i].getVersion();
+		}
+		Arrays.fill(dst, null);
+
+		width = 1;
+		pairLo = 0;
+		merging = false;
+		sorting = size > 1;
+	}
+
+	/**
+	 * Runs the pass until it finishes or the budget is spent
+	 */
+	private void step() {
+		long begin = System.nanoTime();
+		long used = 0;
+		long nextClock = CLOCK_INTERVAL;
+
+		while (sorting && used < maxComparisons) {
+			if (maxNanos > 0 && used >= nextClock) {
+				nextClock = used + CLOCK_INTERVAL;
+				if (System.nanoTime() - begin >= maxNanos) {
+					break;
+				}
+			}
+
+			if (merging) {
+				// Long merges look at the budget again every so often
+				long limit = Math.min(maxComparisons, used + CLOCK_INTERVAL);
+				while (left < leftEnd && right < rightEnd && used < limit) {
+					used++;
+					if (src[left].compareTo(src[right]) <= 0) {
+						dst[out++] = src[left++];
+					} else {
+						dst[out++] = src[right++];
+					}
+				}
+				if (left < leftEnd && right < rightEnd) {
+					continue;
+				}
+				System.arraycopy(src, left, dst, out, leftEnd - left);
+				out += leftEnd - left;
+				System.arraycopy(src, right, dst, out, rightEnd - right);
+				merging = false;
+				pairLo = rightEnd;
+				continue;
+			}
+
+			if (pairLo >= size) {
+				// Every pair of runs is merged, so runs are now twice as wide
+				Face[] swap = src;
+				src = dst;
+				dst = swap;
+				width *= 2;
+				pairLo = 0;
+				if (width >= size) {
+					finish();
+				}
+				continue;
+			}
+
+			int mid = Math.min(pairLo + width, size);
+			int hi = Math.min(pairLo + 2 * width, size);
+			if (mid < hi) {
+				used++;
+			}
+			// A lone run, or two runs already in order, are copied across whole
+			if (mid >= hi || src[mid - 1].compareTo(src[mid]) <= 0) {
+				System.arraycopy(src, pairLo, dst, pairLo, hi - pairLo);
+				pairLo = hi;
+				continue;
+			}
+
+			left = pairLo;
+			leftEnd = mid;
+			right = mid;
+			rightEnd = hi;
+			out = pairLo;
+			merging = true;
+		}
+
+		comparisons += used;
+	}
+
+	/**
+	 * Publishes a finished pass, and starts another straight away if any face
+	 * moved while it ran
+	 */
+	private void finish() {
+		sorting = false;
+		passes++;
+
+		// src holds faces in their new order, so versions are checked by looking
+		// each face up in the order the pass started from
+		boolean changed = false;
+		for (int i = 0; i < size && !changed; i++) {
+			changed = good.get(i).getVersion() != startVersions[i];
+		}
+
+		good = new ArrayList<Face>(Arrays.asList(src).subList(0, size));
+		if (changed) {
+			start();
+		} else {
+			goodVersions = new long[size];
+			for (int i = 0; i < size; i++) {
+				goodVersions[i] = good.get(i).getVersion();
+			}
+		}
+	}
+}
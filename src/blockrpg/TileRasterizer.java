@@ -0,0 +1,182 @@
+package blockrpg;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the screen into square tiles and rasterizes them in parallel. Every
+ * polygon is binned into the tiles its screen bounds overlap, and each tile only
+ * ever writes its own pixels, so the shared colour and depth buffers need no
+ * locks
+ */
+public class TileRasterizer {
+
+	public static final int TILE_SIZE = 64;
+
+	private final Rasterizer rasterizer;
+	private final ForkJoinPool pool;
+
+	private final int tilesX;
+	private final int tilesY;
+
+	// Polygon indices per tile in draw order, reused between frames
+	private final int[][] bins;
+	private final int[] binSizes;
+
+	private ScreenPolygon[] polys;
+	private int background;
+
+	/**
+	 * Custom constructor for TileRasterizer using the common pool
+	 *
+	 * @param width  Width of screen in pixels
+	 * @param height Height of screen in pixels
+	 */
+	public TileRasterizer(int width, int height) {
+		this(width, height, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Custom constructor for TileRasterizer
+	 *
+	 * @param width  Width of screen in pixels
+	 * @param height Height of screen in pixels
+	 * @param pool   Pool tiles are rasterized on
+	 */
+	public TileRasterizer(int width, int height, ForkJoinPool pool) {
+		this.rasterizer = new Rasterizer(width, height);
+		this.pool = pool;
+
+		this.tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+		this.tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+		this.bins = new int[tilesX * tilesY][16];
+		this.binSizes = new int[tilesX * tilesY];
+	}
+
+	/**
+	 *
+	 * @return Returns rasterizer holding the buffers
+	 */
+	public Rasterizer getRasterizer() {
+		return rasterizer;
+	}
+
+	/**
+	 *
+	 * @return Returns image the pixels are written to
+	 */
+	public BufferedImage getImage() {
+		return rasterizer.getImage();
+	}
+
+	/**
+	 * Rasterizes visible faces
+	 *
+	 * @param faces      Faces to draw
+	 * @param background Colour of empty pixels
+	 */
+	public void render(List<Face> faces, int background) {
+		ScreenPolygon[] polys = new ScreenPolygon[faces.size()];
+		int num = 0;
+		for (Face face : faces) {
+			if (face.isVisible()) {
+				polys[num++] = new ScreenPolygon(face);
+			}
+		}
+		render(Arrays.copyOf(polys, num), background);
+	}
+
+	/**
+	 * Bins polygons into tiles then rasterizes every tile in parallel
+	 *
+	 * @param polys      Polygons to draw (in draw order)
+	 * @param background Colour of empty pixels
+	 */
+	public void render(ScreenPolygon[] polys, int background) {
+		this.polys = polys;
+		this.background = background;
+
+		Arrays.fill(binSizes, 0);
+		for (int i = 0; i < polys.length; i++) {
+			bin(i, polys[i]);
+		}
+
+		pool.invoke(new TileTask(0, tilesX * tilesY));
+		this.polys = null;
+	}
+
+	/**
+	 * Adds a polygon to every tile its screen bounds overlap
+	 *
+	 * @param index Index of polygon
+	 * @param poly  Polygon to bin
+	 */
+	private void bin(int index, ScreenPolygon poly) {
+		int minTileX = Math.max(0, (int) Math.floor(poly.getMinX() / TILE_SIZE));
+		int minTileY = Math.max(0, (int) Math.floor(poly.getMinY() / TILE_SIZE));
+		int maxTileX = Math.min(tilesX - 1, (int) Math.floor(poly.getMaxX() / TILE_SIZE));
+		int maxTileY = Math.min(tilesY - 1, (int) Math.floor(poly.getMaxY() / TILE_SIZE));
+
+		for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+			for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+				int tile = tileY * tilesX + tileX;
+				if (binSizes[tile] == bins[tile].length) {
+					bins[tile] = Arrays.copyOf(bins[tile], bins[tile].length * 2);
+				}
+				bins[tile][binSizes[tile]++] = index;
+			}
+		}
+	}
+
+	/**
+	 * Clears a tile and fills every polygon binned into it
+	 *
+	 * @param tile Index of tile
+	 */
+	private void renderTile(int tile) {
+		int minX = (tile % tilesX) * TILE_SIZE;
+		int minY = (tile / tilesX) * TILE_SIZE;
+		int maxX = Math.min(rasterizer.getWidth(), minX + TILE_SIZE);
+		int maxY = Math.min(rasterizer.getHeight(), minY + TILE_SIZE);
+
+		rasterizer.clear(background, minX, minY, maxX, maxY);
+
+		int[] bin = bins[tile];
+		for (int i = 0; i < binSizes[tile]; i++) {
+			rasterizer.fillPolygon(polys[bin[i]], bin[i], minX, minY, maxX, maxY);
+		}
+	}
+
+	/**
+	 * Splits a range of tiles in half until each task holds a single tile
+	 */
+	private class TileTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 4807216371052307341L;
+
+		private final int lo;
+		private final int hi;
+
+		TileTask(int lo, int hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo <= 1) {
+				if (lo < hi) {
+					renderTile(lo);
+				}
+				return;
+			}
+
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new TileTask(lo, mid), new TileTask(mid, hi));
+		}
+	}
+}
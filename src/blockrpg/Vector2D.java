@@ -78,7 +78,7 @@ public class Vector2D extends Coord2D {
 	 * @return length of Vector2D as double
 	 */
 	public double getLength() {
-		return Double.parseDouble(df.format(Math.sqrt(length)));
+		return Double.parseDouble(df.get().format(Math.sqrt(length)));
 	}
 
 	/**
@@ -76,12 +76,27 @@ public class Vector3D extends Coord3D {
 		this.length = x * x + y * y + z * z;
 	}
 
+	/**
+	 * Sets coordinates as given, without the rounding setCoord does, so it can be
+	 * called every frame without allocating
+	 * 
+	 * @param x x-Coordinate
+	 * @param y y-Coordinate
+	 * @param z z-Coordinate
+	 */
+	void setExact(double x, double y, double z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.length = x * x + y * y + z * z;
+	}
+
 	/**
 	 * 
 	 * @return length of Vector3D as double
 	 */
 	public double getLength() {
-		return Double.parseDouble(df.format(Math.sqrt(length)));
+		return Double.parseDouble(df.get().format(Math.sqrt(length)));
 	}
 
 	@Override
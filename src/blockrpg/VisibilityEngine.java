@@ -0,0 +1,77 @@
+package blockrpg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides the order faces are painted in. Static faces are handed over once so
+ * an engine can do its heavy work up front, and the faces that move are passed
+ * in every frame
+ */
+public interface VisibilityEngine {
+
+	/**
+	 * Replaces the faces that do not move between frames
+	 *
+	 * @param faces Static faces
+	 */
+	void setStaticFaces(List<Face> faces);
+
+	/**
+	 *
+	 * @return Returns static faces as the engine holds them, which may have been
+	 *         split
+	 */
+	List<Face> getStaticFaces();
+
+	/**
+	 * Orders the static faces together with moving ones
+	 *
+	 * @param faces Moving faces
+	 * @param pov   Perspective faces are seen from
+	 * @return Returns every face in back to front order
+	 */
+	ArrayList<Face> order(List<Face> faces, Perspective pov);
+
+	/**
+	 * 
+	 * @return Returns true if the last order is still being improved, so order
+	 *         should be called again even if nothing changed
+	 */
+	default boolean isRefining() {
+		return false;
+	}
+
+	/**
+	 *
+	 * @return Returns true if the work done on static faces holds from every
+	 *         perspective, so they only need handing over when they change
+	 *         rather than whenever the view does
+	 */
+	default boolean isViewIndependent() {
+		return false;
+	}
+
+	/**
+	 * Creates an engine from its config name
+	 *
+	 * @param name Name of engine ("bsp", "newell", "coherent", "sliced",
+	 *             anything else sorts)
+	 * @return Returns new engine
+	 */
+	static VisibilityEngine create(String name) {
+		if ("bsp".equalsIgnoreCase(name)) {
+			return new BSPTree();
+		}
+		if ("newell".equalsIgnoreCase(name)) {
+			return new NewellSorter();
+		}
+		if ("coherent".equalsIgnoreCase(name)) {
+			return new CoherentSorter();
+		}
+		if ("sliced".equalsIgnoreCase(name)) {
+			return new SlicedSorter();
+		}
+		return new FaceSorter();
+	}
+}
@@ -0,0 +1,267 @@
+package blockrpg;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Warnock area subdivision renderer. The screen is split into quarters until a
+ * region is simple: nothing in it, one polygon covering all of it in front of
+ * every other, or few enough pixels that filling what is left with a depth test
+ * is cheaper than splitting again. Work follows how busy each part of the image
+ * is rather than how many polygons there are, and quarters never share pixels
+ * so large ones are split across the pool
+ */
+public class WarnockRenderer {
+
+	// Regions this wide or narrower are filled directly
+	public static final int LEAF_SIZE = 8;
+	// Regions with at least this many pixels have their quarters forked
+	public static final int PARALLEL_AREA = 128 * 128;
+
+	private final Rasterizer target;
+	private final ForkJoinPool pool;
+
+	private ScreenPolygon[] polys;
+	// Plane of each polygon as a, b and c of inverse distance = a * x + b * y + c
+	private double[] planes;
+	private int background;
+
+	/**
+	 * Custom constructor for WarnockRenderer using the common pool
+	 *
+	 * @param target Rasterizer whose buffers are written to
+	 */
+	public WarnockRenderer(Rasterizer target) {
+		this(target, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Custom constructor for WarnockRenderer
+	 *
+	 * @param target Rasterizer whose buffers are written to
+	 * @param pool   Pool large regions are split across
+	 */
+	public WarnockRenderer(Rasterizer target, ForkJoinPool pool) {
+		this.target = target;
+		this.pool = pool;
+		this.planes = new double[0];
+	}
+
+	/**
+	 * Draws polygons in any order, nearest one wins at every pixel
+	 *
+	 * @param polys      Polygons to draw
+	 * @param background Colour of pixels no polygon covers
+	 */
+	public void render(ScreenPolygon[] polys, int background) {
+		this.polys = polys;
+		this.background = background;
+		if (planes.length < polys.length * 3) {
+			planes = new double[polys.length * 3];
+		}
+
+		// Edge on polygons cover nothing so they never enter a region
+		int[] all = new int[polys.length];
+		int num = 0;
+		for (int i = 0; i < polys.length; i++) {
+			if (polys[i].fitDepthPlane(planes, i * 3)) {
+				all[num++] = i;
+			}
+		}
+
+		pool.invoke(new RegionTask(0, 0, target.getWidth(), target.getHeight(), all, num));
+		this.polys = null;
+	}
+
+	/**
+	 * Resolves a region or splits it into quarters
+	 *
+	 * @param minX  Lowest x pixel
+	 * @param minY  Lowest y pixel
+	 * @param maxX  One past highest x pixel
+	 * @param maxY  One past highest y pixel
+	 * @param cands Polygons that may cover part of region
+	 * @param num   Number of candidates
+	 * @return Returns quarters still to do, null if region was resolved
+	 */
+	private RegionTask[] resolve(int minX, int minY, int maxX, int maxY, int[] cands, int num) {
+		// Sample points of the outermost pixels
+		double left = minX + 0.5;
+		double top = minY + 0.5;
+		double right = maxX - 0.5;
+		double bottom = maxY - 0.5;
+
+		int[] inside = new int[num];
+		int count = 0;
+		int front = -1;
+		double frontDepth = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < num; i++) {
+			ScreenPolygon poly = polys[cands[i]];
+			// Disjoint, no pixel center of region can be filled
+			if (poly.getMaxX() <= left || poly.getMinX() > right || poly.getMaxY() <= top
+					|| poly.getMinY() > bottom) {
+				continue;
+			}
+			inside[count++] = cands[i];
+
+			// Faces are convex, so holding every corner means holding the whole region
+			if (poly.contains(left, top) && poly.contains(right, top) && poly.contains(left, bottom)
+					&& poly.contains(right, bottom)) {
+				double depth = farthest(cands[i], left, top, right, bottom);
+				if (depth > frontDepth) {
+					frontDepth = depth;
+					front = cands[i];
+				}
+			}
+		}
+
+		if (count == 0) {
+			target.clear(background, minX, minY, maxX, maxY);
+			return null;
+		}
+
+		// A surrounding polygon wins if its farthest point in the region is nearer
+		// than the nearest point of every other polygon there
+		if (front >= 0) {
+			boolean hides = true;
+			for (int i = 0; i < count && hides; i++) {
+				if (inside[i] != front && nearest(inside[i], left, top, right, bottom) > frontDepth) {
+					hides = false;
+				}
+			}
+			if (hides) {
+				fill(front, minX, minY, maxX, maxY);
+				return null;
+			}
+		}
+
+		if (count == 1 || maxX - minX <= LEAF_SIZE && maxY - minY <= LEAF_SIZE) {
+			target.clear(background, minX, minY, maxX, maxY);
+			for (int i = 0; i < count; i++) {
+				target.fillPolygon(polys[inside[i]], inside[i], minX, minY, maxX, maxY);
+			}
+			return null;
+		}
+
+		int midX = maxX - minX > LEAF_SIZE ? (minX + maxX) >>> 1 : maxX;
+		int midY = maxY - minY > LEAF_SIZE ? (minY + maxY) >>> 1 : maxY;
+		RegionTask[] quarters = new RegionTask[4];
+		int numQuarters = 0;
+		quarters[numQuarters++] = new RegionTask(minX, minY, midX, midY, inside, count);
+		if (midX < maxX) {
+			quarters[numQuarters++] = new RegionTask(midX, minY, maxX, midY, inside, count);
+		}
+		if (midY < maxY) {
+			quarters[numQuarters++] = new RegionTask(minX, midY, midX, maxY, inside, count);
+			if (midX < maxX) {
+				quarters[numQuarters++] = new RegionTask(midX, midY, maxX, maxY, inside, count);
+			}
+		}
+		return Arrays.copyOf(quarters, numQuarters);
+	}
+
+	/**
+	 * Writes one polygon over every pixel of a region
+	 *
+	 * @param poly Index of polygon
+	 * @param minX Lowest x pixel
+	 * @param minY Lowest y pixel
+	 * @param maxX One past highest x pixel
+	 * @param maxY One past highest y pixel
+	 */
+	private void fill(int poly, int minX, int minY, int maxX, int maxY) {
+		int[] pixels = target.getPixels();
+		float[] depth = target.getDepth();
+		int[] ids = target.getIds();
+		int width = target.getWidth();
+		int rgb = polys[poly].getRGB();
+		double a = planes[poly * 3];
+		double b = planes[poly * 3 + 1];
+		double c = planes[poly * 3 + 2];
+
+		for (int y = minY; y < maxY; y++) {
+			float z = (float) (a * (minX + 0.5) + b * (y + 0.5) + c);
+			float dz = (float) a;
+			for (int index = y * width + minX, end = y * width + maxX; index < end; index++) {
+				pixels[index] = rgb;
+				depth[index] = z;
+				ids[index] = poly;
+				z += dz;
+			}
+		}
+	}
+
+	/**
+	 * Planes are linear so their extremes over a rectangle are at its corners
+	 *
+	 * @param poly   Index of polygon
+	 * @param left   Lowest x coordinate
+	 * @param top    Lowest y coordinate
+	 * @param right  Highest x coordinate
+	 * @param bottom Highest y coordinate
+	 * @return Returns inverse distance of farthest point of plane over rectangle
+	 */
+	private double farthest(int poly, double left, double top, double right, double bottom) {
+		double a = planes[poly * 3];
+		double b = planes[poly * 3 + 1];
+		double c = planes[poly * 3 + 2];
+		return Math.min(a * left, a * right) + Math.min(b * top, b * bottom) + c;
+	}
+
+	/**
+	 *
+	 * @param poly   Index of polygon
+	 * @param left   Lowest x coordinate
+	 * @param top    Lowest y coordinate
+	 * @param right  Highest x coordinate
+	 * @param bottom Highest y coordinate
+	 * @return Returns inverse distance of nearest point of plane over rectangle
+	 */
+	private double nearest(int poly, double left, double top, double right, double bottom) {
+		double a = planes[poly * 3];
+		double b = planes[poly * 3 + 1];
+		double c = planes[poly * 3 + 2];
+		return Math.max(a * left, a * right) + Math.max(b * top, b * bottom) + c;
+	}
+
+	/**
+	 * Resolves one region, forking its quarters if it is large and recursing on
+	 * the calling thread otherwise
+	 */
+	private class RegionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -6405262915310937467L;
+
+		private final int minX;
+		private final int minY;
+		private final int maxX;
+		private final int maxY;
+		private final int[] cands;
+		private final int num;
+
+		RegionTask(int minX, int minY, int maxX, int maxY, int[] cands, int num) {
+			this.minX = minX;
+			this.minY = minY;
+			this.maxX = maxX;
+			this.maxY = maxY;
+			this.cands = cands;
+			this.num = num;
+		}
+
+		@Override
+		protected void compute() {
+			RegionTask[] quarters = resolve(minX, minY, maxX, maxY, cands, num);
+			if (quarters == null) {
+				return;
+			}
+			if ((maxX - minX) * (maxY - minY) >= PARALLEL_AREA) {
+				invokeAll(quarters);
+			} else {
+				for (RegionTask quarter : quarters) {
+					quarter.compute();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,455 @@
+package blockrpg;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Voxel store made of chunks. Block edits only mark the chunks they touch as
+ * dirty and a ChunkMesher rebuilds those in the background
+ */
+public class World {
+
+	public static final double BLOCK_SIZE = 1000;
+
+	private final Map<Long, Chunk> chunks;
+	private final Perspective pov;
+	private final ChunkMesher mesher;
+	private final AtomicLong version;
+
+	/**
+	 * Custom constructor for an empty World
+	 *
+	 * @param pov Perspective the world is seen from
+	 */
+	public World(Perspective pov) {
+		this.chunks = new ConcurrentHashMap<Long, Chunk>();
+		this.pov = pov; // You don't clone perspective
+		this.version = new AtomicLong();
+		this.mesher = new ChunkMesher(this);
+	}
+
+	/**
+	 *
+	 * @return Returns perspective of world
+	 */
+	public Perspective getPov() {
+		return pov;
+	}
+
+	/**
+	 *
+	 * @return Returns mesher used for dirty chunks
+	 */
+	public ChunkMesher getMesher() {
+		return mesher;
+	}
+
+	/**
+	 *
+	 * @return Returns a counter that changes every time a chunk mesh is swapped
+	 */
+	public long getVersion() {
+		return version.get();
+	}
+
+	/**
+	 * Bumps version after a chunk mesh has been swapped
+	 */
+	void incrementVersion() {
+		version.incrementAndGet();
+	}
+
+	/**
+	 *
+	 * @param chunkX X index of chunk
+	 * @param chunkY Y index of chunk
+	 * @param chunkZ Z index of chunk
+	 * @return Returns chunk or null if it was never created
+	 */
+	public Chunk getChunk(int chunkX, int chunkY, int chunkZ) {
+		return chunks.get(key(chunkX, chunkY, chunkZ));
+	}
+
+	/**
+	 *
+	 * @return Returns all loaded chunks
+	 */
+	public Collection<Chunk> getChunks() {
+		return chunks.values();
+	}
+
+	/**
+	 *
+	 * @param x Block x coordinate
+	 * @param y Block y coordinate
+	 * @param z Block z coordinate
+	 * @return Returns block at coordinates (Chunk.AIR if empty)
+	 */
+	public int getBlock(int x, int y, int z) {
+		Chunk chunk = getChunk(Math.floorDiv(x, Chunk.SIZE), Math.floorDiv(y, Chunk.SIZE),
+				Math.floorDiv(z, Chunk.SIZE));
+		if (chunk == null) {
+			return Chunk.AIR;
+		}
+		return chunk.getBlock(Math.floorMod(x, Chunk.SIZE), Math.floorMod(y, Chunk.SIZE),
+				Math.floorMod(z, Chunk.SIZE));
+	}
+
+	/**
+	 *
+	 * @param x Block x coordinate
+	 * @param y Block y coordinate
+	 * @param z Block z coordinate
+	 * @return Returns true if there is a block at coordinates
+	 */
+	public boolean isSolid(int x, int y, int z) {
+		return getBlock(x, y, z) != Chunk.AIR;
+	}
+
+	/**
+	 * Places a block
+	 *
+	 * @param x   Block x coordinate
+	 * @param y   Block y coordinate
+	 * @param z   Block z coordinate
+	 * @param col Colour of block
+	 */
+	public void setBlock(int x, int y, int z, Color col) {
+		// Alpha is always set so a block can never equal AIR
+		setBlock(x, y, z, col.getRGB() | 0xFF000000);
+	}
+
+	/**
+	 * Breaks a block
+	 *
+	 * @param x Block x coordinate
+	 * @param y Block y coordinate
+	 * @param z Block z coordinate
+	 */
+	public void removeBlock(int x, int y, int z) {
+		setBlock(x, y, z, Chunk.AIR);
+	}
+
+	/**
+	 * Sets a block and marks its chunk, and neighbours if on a border, as dirty
+	 *
+	 * @param x     Block x coordinate
+	 * @param y     Block y coordinate
+	 * @param z     Block z coordinate
+	 * @param block Block to set
+	 */
+	private void setBlock(int x, int y, int z, int block) {
+		int chunkX = Math.floorDiv(x, Chunk.SIZE);
+		int chunkY = Math.floorDiv(y, Chunk.SIZE);
+		int chunkZ = Math.floorDiv(z, Chunk.SIZE);
+		int localX = Math.floorMod(x, Chunk.SIZE);
+		int localY = Math.floorMod(y, Chunk.SIZE);
+		int localZ = Math.floorMod(z, Chunk.SIZE);
+
+		Chunk chunk = getChunk(chunkX, chunkY, chunkZ);
+		if (chunk == null) {
+			if (block == Chunk.AIR) {
+				return;
+			}
+			chunk = chunks.computeIfAbsent(key(chunkX, chunkY, chunkZ), k -> new Chunk(chunkX, chunkY, chunkZ));
+		}
+
+		if (chunk.getBlock(localX, localY, localZ) == block) {
+			return;
+		}
+
+		chunk.setBlock(localX, localY, localZ, block);
+		mesher.markDirty(chunk);
+
+		if (localX == 0) {
+			markDirty(chunkX - 1, chunkY, chunkZ);
+		} else if (localX == Chunk.SIZE - 1) {
+			markDirty(chunkX + 1, chunkY, chunkZ);
+		}
+
+		if (localY == 0) {
+			markDirty(chunkX, chunkY - 1, chunkZ);
+		} else if (localY == Chunk.SIZE - 1) {
+			markDirty(chunkX, chunkY + 1, chunkZ);
+		}
+
+		if (localZ == 0) {
+			markDirty(chunkX, chunkY, chunkZ - 1);
+		} else if (localZ == Chunk.SIZE - 1) {
+			markDirty(chunkX, chunkY, chunkZ + 1);
+		}
+	}
+
+	/**
+	 * Marks a neighbouring chunk as dirty if it exists
+	 *
+	 * @param chunkX X index of chunk
+	 * @param chunkY Y index of chunk
+	 * @param chunkZ Z index of chunk
+	 */
+	private void markDirty(int chunkX, int chunkY, int chunkZ) {
+		Chunk chunk = getChunk(chunkX, chunkY, chunkZ);
+		if (chunk != null) {
+			mesher.markDirty(chunk);
+		}
+	}
+
+	/**
+	 * Builds the render list out of the latest mesh of every chunk
+	 *
+	 * @return Returns faces of all chunks
+	 */
+	public ArrayList<Face> getFaces() {
+		ArrayList<Face> faces = new ArrayList<Face>();
+		for (Chunk chunk : chunks.values()) {
+			faces.addAll(chunk.getFaces());
+		}
+		return faces;
+	}
+
+	/**
+	 * Builds the render list out of the chunks that may be visible from the
+	 * perspective
+	 *
+	 * @param frustum Frustum of the perspective
+	 * @return Returns faces of potentially visible chunks
+	 */
+	public ArrayList<Face> getVisibleFaces(Frustum frustum) {
+		ArrayList<Face> faces = new ArrayList<Face>();
+		for (Chunk chunk : getVisibleChunks(frustum)) {
+			faces.addAll(chunk.getFaces());
+		}
+		return faces;
+	}
+
+	/**
+	 * Flood fills out from the chunk holding the perspective. A neighbour is only
+	 * entered if it is in the frustum, the walk never turns back on itself, and the
+	 * current chunk connects the side it was entered from to the side it leaves
+	 * through. Chunks sealed off by solid blocks are never reached
+	 *
+	 * @param frustum Frustum of the perspective
+	 * @return Returns chunks that may be visible
+	 */
+	public List<Chunk> getVisibleChunks(Frustum frustum) {
+		List<Chunk> visible = new ArrayList<Chunk>();
+		if (chunks.isEmpty()) {
+			return visible;
+		}
+
+		double chunkLength = Chunk.SIZE * BLOCK_SIZE;
+		Position3D pos = pov.getPos();
+		int startX = (int) Math.floor(pos.getX() / chunkLength);
+		int startY = (int) Math.floor(pos.getY() / chunkLength);
+		int startZ = (int) Math.floor(pos.getZ() / chunkLength);
+
+		// Walk is kept to the loaded area (and the perspective) since empty space
+		// has nothing to draw
+		int minX = startX, minY = startY, minZ = startZ;
+		int maxX = startX, maxY = startY, maxZ = startZ;
+		for (Chunk chunk : chunks.values()) {
+			minX = Math.min(minX, chunk.getChunkX());
+			minY = Math.min(minY, chunk.getChunkY());
+			minZ = Math.min(minZ, chunk.getChunkZ());
+			maxX = Math.max(maxX, chunk.getChunkX());
+			maxY = Math.max(maxY, chunk.getChunkY());
+			maxZ = Math.max(maxZ, chunk.getChunkZ());
+		}
+
+		Direction[] dirs = Direction.values();
+		HashSet<Long> visited = new HashSet<Long>();
+		ArrayDeque<int[]> queue = new ArrayDeque<int[]>();
+
+		// Each entry holds chunk indices, the side it was entered from (-1 for the
+		// start) and the directions travelled so far
+		queue.add(new int[] { startX, startY, startZ, -1, 0 });
+		visited.add(key(startX, startY, startZ));
+
+		while (!queue.isEmpty()) {
+			int[] curr = queue.poll();
+			Chunk chunk = getChunk(curr[0], curr[1], curr[2]);
+			if (chunk != null) {
+				visible.add(chunk);
+			}
+
+			for (Direction dir : dirs) {
+				if ((curr[4] & (1 << dir.getOpposite().ordinal())) != 0) {
+					continue;
+				}
+				if (curr[3] >= 0 && chunk != null && !chunk.isConnected(dirs[curr[3]], dir)) {
+					continue;
+				}
+
+				int nextX = curr[0] + dir.getDX();
+				int nextY = curr[1] + dir.getDY();
+				int nextZ = curr[2] + dir.getDZ();
+				if (nextX < minX || nextX > maxX || nextY < minY || nextY > maxY || nextZ < minZ || nextZ > maxZ) {
+					continue;
+				}
+				if (visited.contains(key(nextX, nextY, nextZ))) {
+					continue;
+				}
+				if (!frustum.intersectsBox(nextX * chunkLength, nextY * chunkLength, nextZ * chunkLength,
+						(nextX + 1) * chunkLength, (nextY + 1) * chunkLength, (nextZ + 1) * chunkLength)) {
+					continue;
+				}
+
+				visited.add(key(nextX, nextY, nextZ));
+				queue.add(new int[] { nextX, nextY, nextZ, dir.getOpposite().ordinal(), curr[4] | (1 << dir.ordinal()) });
+			}
+		}
+
+		return visible;
+	}
+
+	/**
+	 * Finds the first block under a screen pixel
+	 *
+	 * @param screenX     Pixel x coordinate
+	 * @param screenY     Pixel y coordinate
+	 * @param maxDistance Furthest distance to look
+	 * @return Returns hit or null if nothing was hit
+	 */
+	public RayHit pick(int screenX, int screenY, double maxDistance) {
+		Line3D ray = pov.getRay(new Position2D(screenX - Face.xOffset, Face.yOffset - screenY));
+		return raycast(ray.getPos(), ray.getDir(), maxDistance);
+	}
+
+	/**
+	 *
+	 * @param from Start of sight line
+	 * @param to   End of sight line
+	 * @return Returns true if no block is in between the two points
+	 */
+	public boolean hasLineOfSight(Position3D from, Position3D to) {
+		double dis = from.totDistanceFrom(to);
+		if (dis < Coord3D.ERROR) {
+			return !isSolid((int) Math.floor(from.getX() / BLOCK_SIZE), (int) Math.floor(from.getY() / BLOCK_SIZE),
+					(int) Math.floor(from.getZ() / BLOCK_SIZE));
+		}
+		return raycast(from, from.getDirection(to), dis) == null;
+	}
+
+	/**
+	 * Walks the blocks a ray passes through in order (Amanatides and Woo) and stops
+	 * at the first solid one, so the cost only depends on how far the ray travels
+	 *
+	 * @param origin      Start of ray
+	 * @param dir         Direction of ray
+	 * @param maxDistance Furthest distance to look
+	 * @return Returns hit or null if nothing was hit
+	 */
+	public RayHit raycast(Position3D origin, Vector3D dir, double maxDistance) {
+		double len = Math.sqrt(dir.getX() * dir.getX() + dir.getY() * dir.getY() + dir.getZ() * dir.getZ());
+		if (len < Coord3D.ERROR) {
+			return null;
+		}
+
+		// Everything is done in block units
+		double[] pos = { origin.getX() / BLOCK_SIZE, origin.getY() / BLOCK_SIZE, origin.getZ() / BLOCK_SIZE };
+		double[] step = { dir.getX() / len, dir.getY() / len, dir.getZ() / len };
+		double maxT = maxDistance / BLOCK_SIZE;
+
+		int[] cell = new int[3];
+		int[] inc = new int[3];
+		double[] tMax = new double[3];
+		double[] tDelta = new double[3];
+
+		for (int i = 0; i < 3; i++) {
+			cell[i] = (int) Math.floor(pos[i]);
+			if (step[i] > 0) {
+				inc[i] = 1;
+				tDelta[i] = 1 / step[i];
+				tMax[i] = (cell[i] + 1 - pos[i]) * tDelta[i];
+			} else if (step[i] < 0) {
+				inc[i] = -1;
+				tDelta[i] = -1 / step[i];
+				tMax[i] = (pos[i] - cell[i]) * tDelta[i];
+			} else {
+				inc[i] = 0;
+				tDelta[i] = Double.POSITIVE_INFINITY;
+				tMax[i] = Double.POSITIVE_INFINITY;
+			}
+		}
+
+		// Sides crossed when stepping along each axis
+		Direction[] entered = { inc[0] > 0 ? Direction.NEG_X : Direction.POS_X,
+				inc[1] > 0 ? Direction.NEG_Y : Direction.POS_Y, inc[2] > 0 ? Direction.NEG_Z : Direction.POS_Z };
+
+		Chunk chunk = null;
+		int chunkX = 0, chunkY = 0, chunkZ = 0;
+		boolean loaded = false;
+
+		Direction face = null;
+		double t = 0;
+
+		while (t <= maxT) {
+			// Chunk lookups only happen when the ray crosses into a new chunk
+			int cx = Math.floorDiv(cell[0], Chunk.SIZE);
+			int cy = Math.floorDiv(cell[1], Chunk.SIZE);
+			int cz = Math.floorDiv(cell[2], Chunk.SIZE);
+			if (!loaded || cx != chunkX || cy != chunkY || cz != chunkZ) {
+				chunk = getChunk(cx, cy, cz);
+				chunkX = cx;
+				chunkY = cy;
+				chunkZ = cz;
+				loaded = true;
+			}
+
+			if (chunk != null) {
+				int block = chunk.getBlock(Math.floorMod(cell[0], Chunk.SIZE), Math.floorMod(cell[1], Chunk.SIZE),
+						Math.floorMod(cell[2], Chunk.SIZE));
+				if (block != Chunk.AIR) {
+					return new RayHit(cell[0], cell[1], cell[2], face, t * BLOCK_SIZE, block);
+				}
+			}
+
+			int axis;
+			if (tMax[0] < tMax[1]) {
+				axis = tMax[0] < tMax[2] ? 0 : 2;
+			} else {
+				axis = tMax[1] < tMax[2] ? 1 : 2;
+			}
+
+			t = tMax[axis];
+			tMax[axis] += tDelta[axis];
+			cell[axis] += inc[axis];
+			face = entered[axis];
+		}
+
+		return null;
+	}
+
+	/**
+	 * Blocks until every queued mesh has been swapped in
+	 */
+	public void flush() {
+		mesher.flush();
+	}
+
+	/**
+	 * Stops background meshing
+	 */
+	public void shutdown() {
+		mesher.shutdown();
+	}
+
+	/**
+	 * Packs chunk indices into a single map key (21 bits each)
+	 *
+	 * @param chunkX X index of chunk
+	 * @param chunkY Y index of chunk
+	 * @param chunkZ Z index of chunk
+	 * @return Returns key for chunk map
+	 */
+	private static long key(int chunkX, int chunkY, int chunkZ) {
+		return ((chunkX & 0x1FFFFFL) << 42) | ((chunkY & 0x1FFFFFL) << 21) | (chunkZ & 0x1FFFFFL);
+	}
+}
@@ -0,0 +1,100 @@
+package blockrpg;
+
+import static blockrpg.TestFixtures.createWall;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BSPTreeTests {
+
+	@Test
+	void testParallelFacesFromBothSides() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		List<Face> faces = new ArrayList<Face>();
+		Face near = createWall(10, 0, 0, 4, pov);
+		Face mid = createWall(20, 0, 0, 4, pov);
+		Face far = createWall(30, 0, 0, 4, pov);
+		faces.add(mid);
+		faces.add(near);
+		faces.add(far);
+		BSPTree test = new BSPTree(faces);
+
+		List<Face> order = test.order(pov);
+		assertEquals(3, order.size());
+		assertSame(far, order.get(0));
+		assertSame(mid, order.get(1));
+		assertSame(near, order.get(2));
+
+		order = test.order(
+				new Perspective(new double[] { 40, 0, 0 }, new double[] { -1, 0, 0 }, new double[] { 0, 1, 0 }));
+		assertSame(near, order.get(0));
+		assertSame(mid, order.get(1));
+		assertSame(far, order.get(2));
+	}
+
+	@Test
+	void testCrossingFaceSplit() {
+		Perspective pov = new Perspective(new double[] { 0, 5, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		List<Face> faces = new ArrayList<Face>();
+		Face wall = createWall(20, 0, 0, 4, pov);
+		faces.add(wall);
+		// Floor in the plane y = 0 running from x = 10 to x = 30 through the wall
+		Position2D[] points = { new Position2D(-10, -4), new Position2D(-10, 4), new Position2D(10, 4),
+				new Position2D(10, -4) };
+		faces.add(new Face(points, points.length,
+				new Plane(new Vector3D(1, 0, 0), new Vector3D(0, 0, 1), new Position3D(20, 0, 0)), pov));
+		BSPTree test = new BSPTree(faces);
+
+		assertEquals(3, test.getStaticFaces().size());
+
+		List<Face> order = test.order(pov);
+		int wallIndex = order.indexOf(wall);
+		for (int i = 0; i < order.size(); i++) {
+			if (order.get(i) != wall) {
+				// Far half of floor is painted before the wall, near half after
+				assertEquals(order.get(i).getCenter3D().getX() > 20, i < wallIndex);
+			}
+		}
+	}
+
+	@Test
+	void testMovingFaceInserted() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		List<Face> faces = new ArrayList<Face>();
+		faces.add(createWall(10, 0, 0, 4, pov));
+		faces.add(createWall(20, 0, 0, 4, pov));
+		faces.add(createWall(30, 0, 0, 4, pov));
+		BSPTree test = new BSPTree(faces);
+
+		List<Face> moving = new ArrayList<Face>();
+		Face between = createWall(25, 0, 0, 4, pov);
+		Face front = createWall(5, 0, 0, 4, pov);
+		moving.add(front);
+		moving.add(between);
+
+		List<Face> order = test.order(moving, pov);
+		assertEquals(5, order.size());
+		assertSame(between, order.get(1));
+		assertSame(front, order.get(4));
+	}
+
+	@Test
+	void testEmptyTree() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		BSPTree test = new BSPTree();
+		List<Face> moving = new ArrayList<Face>();
+		moving.add(createWall(10, 0, 0, 4, pov));
+
+		assertEquals(0, test.order(pov).size());
+		assertEquals(1, test.order(moving, pov).size());
+		assertTrue(VisibilityEngine.create("bsp") instanceof BSPTree);
+		assertTrue(VisibilityEngine.create("sort") instanceof FaceSorter);
+	}
+}
@@ -0,0 +1,141 @@
+package blockrpg;
+
+import static blockrpg.TestFixtures.createPOV;
+import static blockrpg.TestFixtures.createWall;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BVHTests {
+
+	/**
+	 * Walls on a grid in the y z plane, at increasing distance along x
+	 */
+	private static List<Face> createGrid(Perspective pov, int side) {
+		List<Face> faces = new ArrayList<Face>();
+		for (int i = 0; i < side; i++) {
+			for (int j = 0; j < side; j++) {
+				faces.add(createWall(10 + i * 3, j * 3 - side, 0, 1, pov));
+			}
+		}
+		return faces;
+	}
+
+	@Test
+	void testStaysBalanced() {
+		List<Face> faces = createGrid(createPOV(), 16);
+		BVH test = new BVH(faces);
+
+		assertEquals(256, test.size());
+		// A perfectly balanced tree of 256 leaves is 8 levels high
+		assertTrue(test.getHeight() <= 12, "height " + test.getHeight());
+	}
+
+	@Test
+	void testRemove() {
+		List<Face> faces = createGrid(createPOV(), 4);
+		BVH test = new BVH(faces);
+
+		assertTrue(test.remove(faces.get(3)));
+		assertFalse(test.remove(faces.get(3)));
+		assertFalse(test.contains(faces.get(3)));
+		assertEquals(15, test.size());
+		for (Face face : faces) {
+			test.remove(face);
+		}
+		assertEquals(0, test.size());
+		assertEquals(0, test.getHeight());
+	}
+
+	@Test
+	void testSyncOnlyChangesDifference() {
+		Perspective pov = createPOV();
+		List<Face> faces = createGrid(pov, 4);
+		BVH test = new BVH(faces);
+
+		List<Face> next = new ArrayList<Face>(faces.subList(2, 16));
+		Face added = createWall(40, 0, 0, 1, pov);
+		next.add(added);
+
+		assertEquals(3, test.sync(next));
+		assertEquals(15, test.size());
+		assertFalse(test.contains(faces.get(0)));
+		assertFalse(test.contains(faces.get(1)));
+		assertTrue(test.contains(faces.get(2)));
+		assertTrue(test.contains(added));
+		assertEquals(0, test.sync(next));
+	}
+
+	@Test
+	void testBoxQuery() {
+		List<Face> faces = createGrid(createPOV(), 8);
+		BVH test = new BVH(faces);
+
+		List<Face> found = test.query(9, -9, -1, 11.5, -4.5, 1);
+
+		// First column, rows at y -8, -5
+		assertEquals(2, found.size());
+		assertTrue(found.contains(faces.get(0)));
+		assertTrue(found.contains(faces.get(1)));
+	}
+
+	@Test
+	void testFrustumQueryMatchesScan() {
+		Perspective pov = createPOV();
+		List<Face> faces = createGrid(pov, 12);
+		BVH test = new BVH(faces);
+		Frustum frustum = new Frustum(pov, 40, 40);
+
+		List<Face> found = test.query(frustum);
+		int expected = 0;
+		for (Face face : faces) {
+			if (frustum.intersectsSphere(face.getCenter3D(), 0)) {
+				expected++;
+				assertTrue(found.contains(face));
+			}
+		}
+		assertTrue(expected > 0);
+		assertTrue(found.size() < faces.size());
+	}
+
+	@Test
+	void testRaycastFindsNearest() {
+		Perspective pov = createPOV();
+		Face near = createWall(10, 0, 0, 1, pov);
+		Face far = createWall(20, 0, 0, 1, pov);
+		Face aside = createWall(5, 5, 0, 1, pov);
+		List<Face> faces = new ArrayList<Face>();
+		faces.add(far);
+		faces.add(aside);
+		faces.add(near);
+		BVH test = new BVH(faces);
+
+		assertSame(near, test.raycast(new Position3D(0, 0, 0), new Vector3D(1, 0, 0), 100));
+		assertNull(test.raycast(new Position3D(0, 0, 0), new Vector3D(1, 0, 0), 5));
+		assertNull(test.raycast(new Position3D(0, 0, 0), new Vector3D(-1, 0, 0), 100));
+		assertSame(aside, test.raycast(new Position3D(0, 5, 0), new Vector3D(1, 0, 0), 100));
+	}
+
+	@Test
+	void testRefitAfterMove() {
+		Perspective pov = createPOV();
+		List<Face> faces = createGrid(pov, 4);
+		BVH test = new BVH(faces);
+
+		Face moved = faces.get(0);
+		moved.addZ(0.05);
+		// Still inside its padded box
+		assertEquals(0, test.refit());
+
+		moved.addZ(50);
+		assertEquals(1, test.refit());
+		assertEquals(0, test.refit());
+		List<Face> found = test.query(0, -100, 40, 100, 100, 60);
+		assertEquals(1, found.size());
+		assertSame(moved, found.get(0));
+		assertSame(moved, test.raycast(new Position3D(10, -4, 50.05), new Vector3D(1, 0, 0), 100));
+	}
+}
@@ -0,0 +1,102 @@
+package blockrpg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class ChunkTests {
+
+	@Test
+	void testEmptyChunkFullyConnected() {
+		World world = new World(
+				new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 }, new double[] { 0, 1, 0 }));
+		Chunk test = new Chunk(0, 0, 0);
+
+		assertEquals(Chunk.ALL_CONNECTED, world.getMesher().buildVisibility(test));
+		world.shutdown();
+	}
+
+	@Test
+	void testSolidChunkNotConnected() {
+		World world = new World(
+				new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 }, new double[] { 0, 1, 0 }));
+		Chunk test = new Chunk(0, 0, 0);
+		for (int x = 0; x < Chunk.SIZE; x++) {
+			for (int y = 0; y < Chunk.SIZE; y++) {
+				for (int z = 0; z < Chunk.SIZE; z++) {
+					test.setBlock(x, y, z, 1);
+				}
+			}
+		}
+
+		test.setVisibility(world.getMesher().buildVisibility(test));
+		assertEquals(0, test.getVisibility());
+		assertFalse(test.isConnected(Direction.POS_X, Direction.NEG_X));
+		world.shutdown();
+	}
+
+	@Test
+	void testWallSplitsChunk() {
+		World world = new World(
+				new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 }, new double[] { 0, 1, 0 }));
+		Chunk test = new Chunk(0, 0, 0);
+		for (int y = 0; y < Chunk.SIZE; y++) {
+			for (int z = 0; z < Chunk.SIZE; z++) {
+				test.setBlock(8, y, z, 1);
+			}
+		}
+
+		test.setVisibility(world.getMesher().buildVisibility(test));
+		assertFalse(test.isConnected(Direction.POS_X, Direction.NEG_X));
+		assertFalse(test.isConnected(Direction.NEG_X, Direction.POS_X));
+		assertTrue(test.isConnected(Direction.POS_Y, Direction.NEG_Y));
+		assertTrue(test.isConnected(Direction.NEG_X, Direction.POS_Z));
+		assertTrue(test.isConnected(Direction.POS_X, Direction.POS_Z));
+		world.shutdown();
+	}
+
+	@Test
+	void testVisibleChunksThroughAir() {
+		Perspective pov = new Perspective(new double[] { 8000, 8000, 8000 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(3000);
+		World world = new World(pov);
+		world.setBlock(Chunk.SIZE + 4, 0, 0, java.awt.Color.RED);
+		world.setBlock(2 * Chunk.SIZE + 4, 0, 0, java.awt.Color.RED);
+		world.flush();
+
+		assertEquals(2, world.getVisibleChunks(new Frustum(pov, 960, 540)).size());
+		world.shutdown();
+	}
+
+	@Test
+	void testSealedChunkHidesChunkBehind() {
+		Perspective pov = new Perspective(new double[] { 8000, 8000, 8000 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(3000);
+		World world = new World(pov);
+		world.setBlock(Chunk.SIZE + 4, 0, 0, java.awt.Color.RED);
+		world.setBlock(2 * Chunk.SIZE + 4, 0, 0, java.awt.Color.RED);
+		world.flush();
+		world.getChunk(1, 0, 0).setVisibility(0);
+
+		assertEquals(1, world.getVisibleChunks(new Frustum(pov, 960, 540)).size());
+		assertSame(world.getChunk(1, 0, 0), world.getVisibleChunks(new Frustum(pov, 960, 540)).get(0));
+		world.shutdown();
+	}
+
+	@Test
+	void testChunkBehindCulled() {
+		Perspective pov = new Perspective(new double[] { 24000, 8000, 8000 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(3000);
+		World world = new World(pov);
+		world.setBlock(4, 0, 0, java.awt.Color.RED);
+		world.setBlock(2 * Chunk.SIZE + 4, 0, 0, java.awt.Color.RED);
+		world.flush();
+
+		assertEquals(1, world.getVisibleChunks(new Frustum(pov, 960, 540)).size());
+		assertSame(world.getChunk(2, 0, 0), world.getVisibleChunks(new Frustum(pov, 960, 540)).get(0));
+		world.shutdown();
+	}
+}
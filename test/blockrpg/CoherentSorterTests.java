@@ -0,0 +1,138 @@
+package blockrpg;
+
+import static blockrpg.TestFixtures.assertBackToFront;
+import static blockrpg.TestFixtures.createPOV;
+import static blockrpg.TestFixtures.createWall;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class CoherentSorterTests {
+
+	private static List<Face> createRow(Perspective pov, int num) {
+		List<Face> faces = new ArrayList<Face>();
+		for (int i = 0; i < num; i++) {
+			faces.add(createWall(20 + i, (i % 3) * 0.5, 0, 2, pov));
+		}
+		return faces;
+	}
+
+	/**
+	 * Orders then clears moved flags the way the main loop does
+	 */
+	private static List<Face> order(CoherentSorter sorter, List<Face> faces) {
+		List<Face> order = sorter.order(faces);
+		for (Face face : order) {
+			face.setMoved(false);
+		}
+		return order;
+	}
+
+	@Test
+	void testVersionBumpedBySetPoints() {
+		Face face = createWall(20, 0, 0, 2, createPOV());
+		long version = face.getVersion();
+		face.addX(1);
+
+		assertEquals(version + 1, face.getVersion());
+	}
+
+	@Test
+	void testFirstOrderSortsEverything() {
+		List<Face> faces = createRow(createPOV(), 20);
+		Collections.shuffle(faces, new Random(1));
+
+		CoherentSorter test = new CoherentSorter();
+		List<Face> order = order(test, faces);
+
+		assertBackToFront(order);
+		assertEquals(1, test.getFullSorts());
+		assertEquals(0, test.getRepairs());
+	}
+
+	@Test
+	void testStillSceneNeedsNoWork() {
+		List<Face> faces = createRow(createPOV(), 20);
+		CoherentSorter test = new CoherentSorter();
+		List<Face> first = order(test, faces);
+		List<Face> second = order(test, faces);
+
+		assertEquals(first, second);
+		assertEquals(1, test.getFullSorts());
+		assertEquals(0, test.getRepairs());
+	}
+
+	@Test
+	void testMovedFaceRepaired() {
+		List<Face> faces = createRow(createPOV(), 20);
+		CoherentSorter test = new CoherentSorter();
+		order(test, faces);
+
+		// Nearest face jumps to the back
+		Face moved = faces.get(0);
+		moved.addX(30.5);
+		List<Face> order = order(test, faces);
+
+		assertEquals(20, order.size());
+		assertSame(moved, order.get(0));
+		assertBackToFront(order);
+		assertEquals(1, test.getFullSorts());
+		assertEquals(1, test.getRepairs());
+	}
+
+	@Test
+	void testManySmallMovesWalkBack() {
+		List<Face> faces = createRow(createPOV(), 200);
+		CoherentSorter test = new CoherentSorter();
+		order(test, faces);
+
+		// More changed faces than MAX_MOVES, each staying between its neighbours
+		for (int i = 0; i < 200; i += 5) {
+			faces.get(i).addX(0.25);
+		}
+		List<Face> order = order(test, faces);
+
+		assertBackToFront(order);
+		assertEquals(1, test.getFullSorts());
+		assertEquals(40, test.getRepairs());
+		assertEquals(0, test.getSearches());
+	}
+
+	@Test
+	void testAddedAndRemovedFaces() {
+		Perspective pov = createPOV();
+		List<Face> faces = createRow(pov, 20);
+		CoherentSorter test = new CoherentSorter();
+		order(test, faces);
+
+		faces.remove(5);
+		Face added = createWall(27.5, 0, 0, 2, pov);
+		faces.add(added);
+		List<Face> order = order(test, faces);
+
+		assertEquals(20, order.size());
+		assertTrue(order.contains(added));
+		assertBackToFront(order);
+		assertEquals(1, test.getRepairs());
+	}
+
+	@Test
+	void testManyChangesSortAgain() {
+		List<Face> faces = createRow(createPOV(), 20);
+		CoherentSorter test = new CoherentSorter();
+		order(test, faces);
+
+		for (int i = 0; i < 10; i++) {
+			faces.get(i).addX(0.25);
+		}
+		List<Face> order = order(test, faces);
+
+		assertBackToFront(order);
+		assertEquals(2, test.getFullSorts());
+	}
+}
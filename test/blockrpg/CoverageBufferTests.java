@@ -0,0 +1,113 @@
+package blockrpg;
+
+import static blockrpg.TestFixtures.quad;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class CoverageBufferTests {
+
+	@Test
+	void testMatchesPainter() {
+		Random rand = new Random(11);
+		ScreenPolygon[] polys = new ScreenPolygon[30];
+		for (int i = 0; i < polys.length; i++) {
+			double[] xs = new double[3];
+			double[] ys = new double[3];
+			for (int j = 0; j < 3; j++) {
+				xs[j] = rand.nextDouble() * 80 - 10;
+				ys[j] = rand.nextDouble() * 60 - 10;
+			}
+			// Later polygons are nearer, as in a back to front list
+			float z = (i + 1) / 64f;
+			polys[i] = new ScreenPolygon(xs, ys, new float[] { z, z, z }, 3, 0x010101 * (i + 1));
+		}
+
+		Rasterizer expected = new Rasterizer(64, 48);
+		expected.clear(0x000000);
+		for (int i = 0; i < polys.length; i++) {
+			expected.fillPolygon(polys[i], i, 0, 0, 64, 48);
+		}
+
+		Rasterizer actual = new Rasterizer(64, 48);
+		actual.clear(0xFFFFFF);
+		CoverageBuffer test = new CoverageBuffer(actual);
+		test.render(polys, 0x000000);
+
+		assertArrayEquals(expected.getPixels(), actual.getPixels());
+		assertArrayEquals(expected.getDepth(), actual.getDepth());
+		assertArrayEquals(expected.getIds(), actual.getIds());
+	}
+
+	@Test
+	void testEachPixelWrittenOnce() {
+		ScreenPolygon back = quad(0, 0, 20, 10, 0.1f, 0x0000FF);
+		ScreenPolygon front = quad(5, 0, 15, 10, 0.5f, 0xFF0000);
+
+		Rasterizer target = new Rasterizer(20, 10);
+		CoverageBuffer test = new CoverageBuffer(target);
+		test.render(new ScreenPolygon[] { back, front }, 0);
+
+		assertEquals(200, test.getWritten());
+		assertEquals(0, test.getRejected());
+		assertEquals(0xFF0000, target.getPixels()[5]);
+		assertEquals(0x0000FF, target.getPixels()[4]);
+		assertEquals(0x0000FF, target.getPixels()[15]);
+	}
+
+	@Test
+	void testHiddenFacesRejected() {
+		ScreenPolygon hidden = quad(4, 4, 8, 8, 0.1f, 0x0000FF);
+		ScreenPolygon alsoHidden = quad(0, 0, 20, 10, 0.2f, 0x00FF00);
+		ScreenPolygon cover = quad(-5, -5, 25, 15, 0.5f, 0xFF0000);
+
+		Rasterizer target = new Rasterizer(20, 10);
+		CoverageBuffer test = new CoverageBuffer(target);
+		test.render(new ScreenPolygon[] { hidden, alsoHidden, cover }, 0);
+
+		assertEquals(200, test.getWritten());
+		assertEquals(2, test.getRejected());
+		for (int pixel : target.getPixels()) {
+			assertEquals(0xFF0000, pixel);
+		}
+	}
+
+	@Test
+	void testPartlyCoveredScreenRejects() {
+		// The wall only covers the left half, but that is all the faces behind it span
+		ScreenPolygon wall = quad(0, 0, 10, 10, 0.5f, 0xFF0000);
+		ScreenPolygon hidden = quad(2, 2, 8, 8, 0.1f, 0x0000FF);
+		ScreenPolygon edge = quad(0, 0, 10, 10, 0.2f, 0x00FF00);
+		ScreenPolygon open = quad(8, 0, 12, 10, 0.3f, 0xFFFF00);
+
+		Rasterizer target = new Rasterizer(20, 10);
+		CoverageBuffer test = new CoverageBuffer(target);
+		test.render(new ScreenPolygon[] { open, edge, hidden, wall }, 0);
+
+		assertEquals(2, test.getRejected());
+		assertEquals(120, test.getWritten());
+		assertEquals(0xFF0000, target.getPixels()[9]);
+		assertEquals(0xFFFF00, target.getPixels()[10]);
+		assertEquals(0, target.getPixels()[12]);
+	}
+
+	@Test
+	void testSpansMerge() {
+		// Three strips filled out of order leave a single covered row behind
+		ScreenPolygon left = quad(0, 0, 5, 1, 0.3f, 0x0000FF);
+		ScreenPolygon right = quad(10, 0, 20, 1, 0.3f, 0x00FF00);
+		ScreenPolygon middle = quad(2, 0, 12, 1, 0.1f, 0xFF0000);
+
+		Rasterizer target = new Rasterizer(20, 1);
+		CoverageBuffer test = new CoverageBuffer(target);
+		test.render(new ScreenPolygon[] { middle, right, left }, 0x777777);
+
+		assertEquals(20, test.getWritten());
+		assertEquals(0x0000FF, target.getPixels()[4]);
+		assertEquals(0xFF0000, target.getPixels()[5]);
+		assertEquals(0xFF0000, target.getPixels()[9]);
+		assertEquals(0x00FF00, target.getPixels()[10]);
+	}
+}
@@ -0,0 +1,35 @@
+package blockrpg;
+
+import static blockrpg.TestFixtures.createWall;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class DrawnFrameTests {
+
+	@Test
+	void testPickReadsIdsOfFrame() {
+		Perspective pov = new Perspective();
+		Face near = createWall(10, 0, 0, 1, pov);
+		Face far = createWall(20, 0, 0, 1, pov);
+		ScreenPolygon[] polys = new ScreenPolygon[2];
+		RenderSnapshot frame = new RenderSnapshot(polys, null, null, new Face[] { far, near });
+
+		Rasterizer target = new Rasterizer(4, 2);
+		target.clear(0);
+		int[] ids = target.getIds();
+		ids[1] = 0;
+		ids[6] = 1;
+		ids[7] = 5;
+		DrawnFrame test = new DrawnFrame(frame, target.swapIds(new int[8]), 4, 2);
+		target.clear(0);
+
+		assertSame(frame, test.getFrame());
+		assertSame(far, test.pick(1, 0));
+		assertSame(near, test.pick(2, 1));
+		assertNull(test.pick(0, 0));
+		assertNull(test.pick(3, 1));
+		assertNull(test.pick(4, 0));
+		assertNull(test.pick(-1, 1));
+	}
+}
@@ -0,0 +1,41 @@
+package blockrpg;
+
+import static blockrpg.TestFixtures.createWall;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class FacePickerTests {
+
+	private static BVH createTree(Face... faces) {
+		List<Face> list = new ArrayList<Face>();
+		for (Face face : faces) {
+			list.add(face);
+		}
+		return new BVH(list);
+	}
+
+	@Test
+	void testRayPicksNearestAcrossTrees() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		Face near = createWall(10, 0, 0, 1, pov);
+		Face far = createWall(20, 0, 0, 1, pov);
+		int centerX = (int) Face.xOffset;
+		int centerY = (int) Face.yOffset;
+
+		FacePicker test = new FacePicker(null, pov, createTree(far), createTree(near));
+		assertSame(near, test.pick(centerX, centerY, 100));
+		assertNull(test.pick(centerX, centerY, 5));
+
+		test.setTrees(createTree(near), createTree(far));
+		assertSame(near, test.pick(centerX, centerY, 100));
+
+		// Far off to the side, the ray misses both walls
+		assertNull(test.pick(centerX + 90, centerY, 100));
+	}
+}
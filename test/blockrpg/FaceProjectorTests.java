@@ -0,0 +1,60 @@
+package blockrpg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class FaceProjectorTests {
+
+	private static List<Face> createFaces(Perspective pov, int num) {
+		List<Face> faces = new ArrayList<Face>();
+		for (int i = 0; i < num; i++) {
+			Position2D[] points = { new Position2D(-4, -4), new Position2D(-4, 4), new Position2D(4, 4),
+					new Position2D(4, -4) };
+			Plane plane = new Plane(new Vector3D(0, 0, 1), new Vector3D(0, 1, 0),
+					new Position3D(10 + i % 50, i % 7 - 3, i % 11 - 5));
+			faces.add(new Face(points, points.length, plane, pov));
+		}
+		return faces;
+	}
+
+	@Test
+	void testMatchesSerial() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = createFaces(pov, 3 * FaceProjector.BATCH_SIZE + 17);
+
+		pov.setPos(new double[] { -5, 2, 1 });
+		new FaceProjector(new ForkJoinPool(4)).project(faces);
+
+		Face expected = new Face(faces.get(faces.size() - 1));
+		expected.setPoints();
+		Face test = faces.get(faces.size() - 1);
+		for (int i = 0; i < test.getNumPoints(); i++) {
+			assertEquals(expected.getViewPoints()[i].getX(), test.getViewPoints()[i].getX(), Coord3D.ERROR);
+			assertEquals(expected.getViewPoints()[i].getY(), test.getViewPoints()[i].getY(), Coord3D.ERROR);
+		}
+	}
+
+	@Test
+	void testEveryFaceProjected() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = createFaces(pov, 2 * FaceProjector.BATCH_SIZE + 1);
+		for (Face face : faces) {
+			face.setMoved(false);
+		}
+
+		new FaceProjector().project(faces);
+
+		for (Face face : faces) {
+			assertTrue(face.checkMoved());
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package blockrpg;
+
+import static blockrpg.TestFixtures.assertBackToFront;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class FaceSorterTests {
+
+	/**
+	 * Builds faces that all look the same size on screen but are shifted by a
+	 * different amount each, so every pair overlaps with crossing edges
+	 */
+	private static List<Face> createStack(Perspective pov, int num) {
+		List<Face> faces = new ArrayList<Face>();
+		for (int i = 0; i < num; i++) {
+			double dis = 20 + i * 0.05;
+			double half = dis * 0.1;
+			double shiftY = half * 0.6 * i / num;
+			double shiftZ = half * 0.6 * ((i * 11) % num) / num;
+			Position2D[] points = { new Position2D(-half, -half), new Position2D(-half, half),
+					new Position2D(half, half), new Position2D(half, -half) };
+			Plane plane = new Plane(new Vector3D(0, 0, 1), new Vector3D(0, 1, 0), new Position3D(dis, shiftY, shiftZ));
+			faces.add(new Face(points, points.length, plane, pov));
+		}
+		return faces;
+	}
+
+	@Test
+	void testSortsSmallList() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = createStack(pov, 50);
+		Collections.shuffle(faces, new Random(3));
+
+		List<Face> test = new FaceSorter().sort(faces);
+
+		assertEquals(50, test.size());
+		assertBackToFront(test);
+	}
+
+	@Test
+	void testSortsInParallel() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = createStack(pov, 301);
+		Collections.shuffle(faces, new Random(7));
+
+		// Small thresholds so both the sort and the merge are split
+		List<Face> test = new FaceSorter(new ForkJoinPool(4), 8, 16).sort(faces);
+
+		assertEquals(faces.size(), test.size());
+		assertBackToFront(test);
+	}
+
+	@Test
+	void testEmptyAndSingle() {
+		FaceSorter test = new FaceSorter();
+		assertEquals(0, test.sort(new ArrayList<Face>()).size());
+
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		List<Face> faces = createStack(pov, 1);
+		assertSame(faces.get(0), test.sort(faces).get(0));
+	}
+}
@@ -352,4 +352,64 @@ class FaceTests {
 		assertFalse(test.inShape(point));
 	}
 
+	@Test
+	void testSplitAcrossPlane() {
+		Position2D[] points = { new Position2D(-4, -4), new Position2D(-4, 4), new Position2D(4, 4),
+				new Position2D(4, -4) };
+		// Lies in the plane z = 0, spanning x -4 to 4
+		Plane plane = new Plane(new Vector3D(1, 0, 0), new Vector3D(0, 1, 0), new Position3D(0, 0, 0));
+		Face test = new Face(points, points.length, plane,
+				new Perspective(new double[] { 0, 0, 10 }, new double[] { 0, 0, -1 }, new double[] { 0, 1, 0 }));
+		Plane splitter = new Plane(new Vector3D(0, 1, 0), new Vector3D(0, 0, 1), new Position3D(1, 0, 0));
+
+		Face[] pieces = test.split(splitter);
+
+		assertNotNull(pieces[0]);
+		assertNotNull(pieces[1]);
+		assertEquals(4, pieces[0].getNumPoints());
+		assertEquals(4, pieces[1].getNumPoints());
+		for (Position3D point : pieces[0].getTruePoints()) {
+			assertTrue(point.getX() >= 1 - Coord3D.ERROR);
+		}
+		for (Position3D point : pieces[1].getTruePoints()) {
+			assertTrue(point.getX() <= 1 + Coord3D.ERROR);
+		}
+		assertEquals(2.5, pieces[0].getCenter3D().getX(), Coord3D.ERROR);
+		assertEquals(-1.5, pieces[1].getCenter3D().getX(), Coord3D.ERROR);
+	}
+
+	@Test
+	void testSplitOneSide() {
+		Position2D[] points = { new Position2D(-4, -4), new Position2D(-4, 4), new Position2D(4, 4),
+				new Position2D(4, -4) };
+		Plane plane = new Plane(new Vector3D(1, 0, 0), new Vector3D(0, 1, 0), new Position3D(0, 0, 0));
+		Face test = new Face(points, points.length, plane,
+				new Perspective(new double[] { 0, 0, 10 }, new double[] { 0, 0, -1 }, new double[] { 0, 1, 0 }));
+
+		Face[] pieces = test.split(new Plane(new Vector3D(0, 1, 0), new Vector3D(0, 0, 1), new Position3D(-10, 0, 0)));
+		assertSame(test, pieces[0]);
+		assertNull(pieces[1]);
+
+		pieces = test.split(new Plane(new Vector3D(0, 1, 0), new Vector3D(0, 0, 1), new Position3D(10, 0, 0)));
+		assertNull(pieces[0]);
+		assertSame(test, pieces[1]);
+	}
+
+	@Test
+	void testSplitTriangleCorner() {
+		Position2D[] points = { new Position2D(0, 0), new Position2D(4, 0), new Position2D(0, 4) };
+		Plane plane = new Plane(new Vector3D(1, 0, 0), new Vector3D(0, 1, 0), new Position3D(0, 0, 0));
+		Face test = new Face(points, points.length, plane,
+				new Perspective(new double[] { 0, 0, 10 }, new double[] { 0, 0, -1 }, new double[] { 0, 1, 0 }));
+		double minX = Double.POSITIVE_INFINITY;
+		for (Position3D point : test.getTruePoints()) {
+			minX = Math.min(minX, point.getX());
+		}
+
+		// Cutting off one corner leaves a triangle and a quad
+		Face[] pieces = test.split(new Plane(new Vector3D(0, 1, 0), new Vector3D(0, 0, 1),
+				new Position3D(minX + 2, 0, 0)));
+		assertEquals(3, pieces[0].getNumPoints());
+		assertEquals(4, pieces[1].getNumPoints());
+	}
 }
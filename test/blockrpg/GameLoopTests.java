@@ -0,0 +1,59 @@
+package blockrpg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class GameLoopTests {
+
+	private static class Counter implements GameLoop.Simulation {
+
+		int updates = 0;
+		double lastAlpha = -1;
+
+		@Override
+		public void update(double dt) {
+			updates++;
+		}
+
+		@Override
+		public void render(double alpha) {
+			lastAlpha = alpha;
+		}
+	}
+
+	@Test
+	void testFixedTicks() {
+		Counter sim = new Counter();
+		GameLoop test = new GameLoop(sim, 100, 60);
+
+		assertEquals(2, test.advance(25000000L));
+		assertEquals(2, sim.updates);
+		assertEquals(0.5, sim.lastAlpha, Coord3D.ERROR);
+
+		// Left over time carries into the next frame
+		assertEquals(1, test.advance(5000000L));
+		assertEquals(0, sim.lastAlpha, Coord3D.ERROR);
+		assertEquals(3, test.getTicks());
+		assertEquals(0.01, test.getDT(), Coord3D.ERROR);
+	}
+
+	@Test
+	void testShortFrameOnlyRenders() {
+		Counter sim = new Counter();
+		GameLoop test = new GameLoop(sim, 100, 60);
+
+		assertEquals(0, test.advance(4000000L));
+		assertEquals(0, sim.updates);
+		assertEquals(0.4, sim.lastAlpha, Coord3D.ERROR);
+	}
+
+	@Test
+	void testLongFrameClamped() {
+		Counter sim = new Counter();
+		GameLoop test = new GameLoop(sim, 100, 60);
+
+		test.advance(10 * GameLoop.MAX_FRAME);
+		assertEquals(GameLoop.MAX_FRAME / 10000000L, sim.updates);
+	}
+}
@@ -0,0 +1,81 @@
+package blockrpg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class InputRingTests {
+
+	@Test
+	void testCapacityRounded() {
+		assertEquals(2, new InputRing(1).getCapacity());
+		assertEquals(8, new InputRing(5).getCapacity());
+		assertEquals(1024, new InputRing(1024).getCapacity());
+	}
+
+	@Test
+	void testDrainInOrder() {
+		InputRing test = new InputRing(4);
+		List<Integer> codes = new ArrayList<Integer>();
+
+		// Wraps around the end of the ring several times
+		for (int round = 0; round < 5; round++) {
+			assertTrue(test.offer(round, 10 * round, true));
+			assertTrue(test.offer(round, 10 * round + 1, false));
+			assertTrue(test.offer(round, 10 * round + 2, true));
+			assertEquals(3, test.size());
+			assertEquals(3, test.drain((time, code, pressed) -> codes.add(code)));
+		}
+
+		assertEquals(15, codes.size());
+		assertEquals(41, (int) codes.get(13));
+		assertEquals(0, test.size());
+	}
+
+	@Test
+	void testFullRingRejects() {
+		InputRing test = new InputRing(2);
+		assertTrue(test.offer(0, 1, true));
+		assertTrue(test.offer(0, 2, true));
+		assertFalse(test.offer(0, 3, true));
+		assertEquals(1, test.getDropped());
+
+		test.drain((time, code, pressed) -> {
+		});
+		assertTrue(test.offer(0, 3, true));
+	}
+
+	@Test
+	void testConcurrentNothingLost() throws InterruptedException {
+		InputRing test = new InputRing(64);
+		int total = 20000;
+
+		Thread producer = new Thread(() -> {
+			for (int i = 0; i < total; i++) {
+				while (!test.offer(i, i, true)) {
+					Thread.yield();
+				}
+			}
+		});
+		producer.start();
+
+		long[] next = { 0 };
+		boolean[] ordered = { true };
+		while (next[0] < total) {
+			int num = test.drain((time, code, pressed) -> {
+				ordered[0] &= code == next[0];
+				next[0]++;
+			});
+			if (num == 0) {
+				Thread.yield();
+			}
+		}
+		producer.join();
+
+		assertTrue(ordered[0]);
+		assertEquals(total, next[0]);
+	}
+}
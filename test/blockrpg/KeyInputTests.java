@@ -0,0 +1,67 @@
+package blockrpg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.event.KeyEvent;
+
+import org.junit.jupiter.api.Test;
+
+class KeyInputTests {
+
+	@Test
+	void testHeldKey() {
+		KeyInput test = new KeyInput();
+		test.record(100, KeyEvent.VK_A, true);
+
+		InputSnapshot keys = test.poll();
+		assertTrue(keys.isDown(KeyEvent.VK_A));
+		assertTrue(keys.wasPressed(KeyEvent.VK_A));
+		assertEquals(1, keys.getAxis(KeyEvent.VK_A, KeyEvent.VK_D));
+
+		// Still held next tick but not pressed again
+		keys = test.poll();
+		assertTrue(keys.isDown(KeyEvent.VK_A));
+		assertFalse(keys.wasPressed(KeyEvent.VK_A));
+		assertEquals(0, keys.getNumEvents());
+	}
+
+	@Test
+	void testTapWithinTickNotLost() {
+		KeyInput test = new KeyInput();
+		test.record(100, KeyEvent.VK_E, true);
+		test.record(200, KeyEvent.VK_E, false);
+
+		InputSnapshot keys = test.poll();
+		assertFalse(keys.isDown(KeyEvent.VK_E));
+		assertTrue(keys.wasPressed(KeyEvent.VK_E));
+		assertEquals(1, keys.getAxis(KeyEvent.VK_E, KeyEvent.VK_Q));
+		assertEquals(2, keys.getNumEvents());
+		assertEquals(100, keys.getOldestEvent());
+		assertEquals(200, keys.getNewestEvent());
+		assertEquals(400, keys.getLatency(500));
+
+		assertEquals(0, test.poll().getAxis(KeyEvent.VK_E, KeyEvent.VK_Q));
+	}
+
+	@Test
+	void testOpposingKeysCancel() {
+		KeyInput test = new KeyInput();
+		test.record(0, KeyEvent.VK_W, true);
+		test.record(0, KeyEvent.VK_S, true);
+
+		assertEquals(0, test.poll().getAxis(KeyEvent.VK_S, KeyEvent.VK_W));
+	}
+
+	@Test
+	void testSnapshotUnchangedByLaterEvents() {
+		KeyInput test = new KeyInput();
+		test.record(0, KeyEvent.VK_W, true);
+		InputSnapshot keys = test.poll();
+
+		test.record(1, KeyEvent.VK_W, false);
+		test.poll();
+
+		assertTrue(keys.isDown(KeyEvent.VK_W));
+		assertFalse(keys.isDown(100000));
+	}
+}
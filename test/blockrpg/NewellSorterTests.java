@@ -0,0 +1,165 @@
+package blockrpg;
+
+import static blockrpg.TestFixtures.createWall;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class NewellSorterTests {
+
+	/**
+	 * Long thin face tilted about the z axis, so it slopes away from the eye
+	 */
+	private static Face createPlank(double x, double z, double slope, Perspective pov) {
+		Position2D[] points = { new Position2D(-8, -1), new Position2D(-8, 1), new Position2D(8, 1),
+				new Position2D(8, -1) };
+		Plane plane = new Plane(new Vector3D(slope, 1, 0), new Vector3D(0, 0, 1), new Position3D(x, 0, z));
+		return new Face(points, points.length, plane, pov);
+	}
+
+	/**
+	 *
+	 * @return Returns true if a view point is inside a face's outline
+	 */
+	private static boolean contains(Face face, double x, double y) {
+		Position2D[] points = face.getViewPoints();
+		boolean inside = false;
+		for (int i = 0, j = points.length - 1; i < points.length; j = i++) {
+			double y0 = points[j].getY();
+			double y1 = points[i].getY();
+			if ((y0 <= y) != (y1 <= y)) {
+				double t = (y - y0) / (y1 - y0);
+				if (x < points[j].getX() + t * (points[i].getX() - points[j].getX())) {
+					inside = !inside;
+				}
+			}
+		}
+		return inside;
+	}
+
+	@Test
+	void testLastPaintedIsNearest() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		Random rand = new Random(5);
+
+		for (int scene = 0; scene < 40; scene++) {
+			List<Face> faces = new ArrayList<Face>();
+			for (int i = 0; i < 6; i++) {
+				faces.add(createPlank(18 + rand.nextDouble() * 8, rand.nextDouble() * 4 - 2,
+						rand.nextDouble() * 2 - 1, pov));
+				faces.add(createWall(18 + rand.nextDouble() * 8, rand.nextDouble() * 8 - 4,
+						rand.nextDouble() * 4 - 2, 2, pov));
+			}
+			List<Face> order = new NewellSorter().sort(faces, pov);
+
+			for (double x = -60.5; x < 60; x += 3) {
+				for (double y = -40.5; y < 40; y += 3) {
+					Line3D ray = pov.getRay(new Position2D(x, y));
+					Face painted = null;
+					Face nearest = null;
+					double nearestT = Double.POSITIVE_INFINITY;
+					double secondT = Double.POSITIVE_INFINITY;
+					for (Face face : order) {
+						if (!contains(face, x, y)) {
+							continue;
+						}
+						painted = face;
+						// The eye is at the origin looking along x, so x grows along the ray
+						double t = face.getPlane().getIntersect(ray).getX();
+						if (t < nearestT) {
+							secondT = nearestT;
+							nearestT = t;
+							nearest = face;
+						} else {
+							secondT = Math.min(secondT, t);
+						}
+					}
+					// Points right where two planes cross are left out
+					if (nearest != null && secondT - nearestT > 0.01) {
+						assertSame(nearest, painted);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void testStackedWalls() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = new ArrayList<Face>();
+		Face near = createWall(10, 1, 0, 4, pov);
+		Face far = createWall(30, 0, 0, 4, pov);
+		Face mid = createWall(20, -1, 0, 4, pov);
+		faces.add(near);
+		faces.add(far);
+		faces.add(mid);
+
+		NewellSorter test = new NewellSorter();
+		List<Face> order = test.sort(faces, pov);
+
+		assertEquals(3, order.size());
+		assertSame(far, order.get(0));
+		assertSame(mid, order.get(1));
+		assertSame(near, order.get(2));
+		assertEquals(0, test.getSplits());
+	}
+
+	@Test
+	void testSeparateFacesNeedNoOutlineTest() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = new ArrayList<Face>();
+		// Overlap in depth but are far apart on screen
+		faces.add(createWall(20, 30, 0, 4, pov));
+		faces.add(createWall(21, -30, 0, 4, pov));
+
+		NewellSorter test = new NewellSorter();
+		assertEquals(2, test.sort(faces, pov).size());
+		assertEquals(0, test.getOutlineTests());
+	}
+
+	@Test
+	void testDepthOverlapResolvedByPlanes() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = new ArrayList<Face>();
+		// Sloped plank reaches further back than the wall but is in front of it
+		Face plank = createPlank(18, 0, 0.8, pov);
+		Face wall = createWall(22, 0, 0, 4, pov);
+		faces.add(plank);
+		faces.add(wall);
+
+		List<Face> order = new NewellSorter().sort(faces, pov);
+
+		assertSame(wall, order.get(0));
+		assertSame(plank, order.get(1));
+	}
+
+	@Test
+	void testCycleIsSplit() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = new ArrayList<Face>();
+		// Two planks crossing like an X seen from the side, each one is in front of
+		// the other at one end
+		faces.add(createPlank(20, 0.5, 0.5, pov));
+		faces.add(createPlank(20, -0.5, -0.5, pov));
+
+		NewellSorter test = new NewellSorter();
+		List<Face> order = test.sort(faces, pov);
+
+		assertTrue(test.getSplits() > 0);
+		assertTrue(order.size() > 2);
+	}
+}
@@ -0,0 +1,89 @@
+package blockrpg;
+
+import static blockrpg.TestFixtures.createPOV;
+import static blockrpg.TestFixtures.createWall;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class OcclusionCullerTests {
+
+	/**
+	 * Faces are projected around the origin, so the screen is centered on it
+	 */
+	private static List<Face> cull(OcclusionCuller culler, List<Face> faces) {
+		double oldX = Face.xOffset;
+		double oldY = Face.yOffset;
+		Face.xOffset = 100;
+		Face.yOffset = 100;
+		try {
+			return culler.cullAll(faces);
+		} finally {
+			Face.xOffset = oldX;
+			Face.yOffset = oldY;
+		}
+	}
+
+	@Test
+	void testPyramidLevels() {
+		assertEquals(6, new OcclusionCuller(200, 200).getLevels());
+		assertEquals(1, new OcclusionCuller(4, 4).getLevels());
+	}
+
+	@Test
+	void testHiddenFaceCulled() {
+		Perspective pov = createPOV();
+		Face wall = createWall(10, 0, 0, 4, pov);
+		Face hidden = createWall(30, 0, 0, 2, pov);
+		List<Face> faces = new ArrayList<Face>();
+		faces.add(hidden);
+		faces.add(wall);
+
+		OcclusionCuller test = new OcclusionCuller(200, 200);
+		List<Face> kept = cull(test, faces);
+
+		assertEquals(1, kept.size());
+		assertSame(wall, kept.get(0));
+		assertEquals(1, test.getCulled());
+	}
+
+	@Test
+	void testFaceBesideOccluderKept() {
+		Perspective pov = createPOV();
+		List<Face> faces = new ArrayList<Face>();
+		faces.add(createWall(10, 0, 0, 4, pov));
+		faces.add(createWall(30, 20, 0, 2, pov));
+		// Sticks out past the edge of the wall
+		faces.add(createWall(30, 10, 0, 4, pov));
+
+		OcclusionCuller test = new OcclusionCuller(200, 200);
+		assertEquals(3, cull(test, faces).size());
+		assertEquals(0, test.getCulled());
+	}
+
+	@Test
+	void testNearerFaceKept() {
+		Perspective pov = createPOV();
+		List<Face> faces = new ArrayList<Face>();
+		faces.add(createWall(20, 0, 0, 8, pov));
+		faces.add(createWall(10, 0, 0, 1, pov));
+
+		OcclusionCuller test = new OcclusionCuller(200, 200);
+		assertEquals(2, cull(test, faces).size());
+	}
+
+	@Test
+	void testSmallFacesDoNotOcclude() {
+		Perspective pov = createPOV();
+		List<Face> faces = new ArrayList<Face>();
+		// Too small on screen to be drawn into the buffer
+		faces.add(createWall(100, 0, 0, 0.5, pov));
+		faces.add(createWall(200, 0, 0, 0.1, pov));
+
+		OcclusionCuller test = new OcclusionCuller(200, 200);
+		assertEquals(2, cull(test, faces).size());
+	}
+}
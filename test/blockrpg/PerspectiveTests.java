@@ -256,4 +256,102 @@ class PerspectiveTests {
 		assertEquals(expected2, pov.getRealPoint(testPoint2, plane));
 	}
 
+	@Test
+	void testGetRealPointRoundTrip() {
+		Perspective pov = new Perspective(new double[] { -80, 10, 30 }, new double[] { 1, 0.2, -0.3 },
+				new double[] { 0, 1, 0 });
+		Plane plane = new Plane(new Vector3D(0, 1, 0), new Vector3D(0, 0, 1), new Position3D(0, 0, 0));
+
+		double[][] points = { { 0, 0 }, { 3, -7 }, { -50, 40 }, { 3.25, -7.5 }, { 60, 10 } };
+		for (int zoom = 100; zoom <= 200; zoom += 100) {
+			pov.setZoom(zoom);
+			for (double[] point : points) {
+				Position3D real = pov.getRealPoint(new Position2D(point[0], point[1]), plane);
+				assertEquals(0, real.getX(), 0.000001);
+				Position2D view = pov.getViewPoint(real);
+				assertEquals(point[0], view.getX(), 0.000001);
+				assertEquals(point[1], view.getY(), 0.000001);
+			}
+		}
+	}
+
+	@Test
+	void testRotateDirTurnsWholeView() {
+		Perspective test = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		test.rotateDir(Math.PI / 2, new Vector3D(0, 0, 1));
+
+		assertEquals(new Vector3D(0, 1, 0), test.getDir());
+		assertEquals(new Vector3D(-1, 0, 0), test.getTilt());
+		assertEquals(new Vector3D(0, 0, 1), test.getNorm());
+	}
+
+	@Test
+	void testManyTurnsStayOrthonormal() {
+		Perspective test = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 2, -1 },
+				new double[] { 0, 1, 0 });
+		Vector3D start = test.getDir().clone();
+		Vector3D axis = new Vector3D(1, -3, 2);
+		int steps = 1000;
+		for (int i = 0; i < steps; i++) {
+			test.rotateDir(2 * Math.PI / steps, axis);
+		}
+
+		double[][] basis = test.getBasis();
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				double dot = 0;
+				for (int k = 0; k < 3; k++) {
+					dot += basis[i][k] * basis[j][k];
+				}
+				assertEquals(i == j ? 1 : 0, dot, 0.000000001);
+				assertEquals(basis[i][j], test.getInverse()[j][i]);
+			}
+		}
+		// A full turn comes back to where it started
+		assertEquals(start, test.getDir());
+	}
+
+	@Test
+	void testSlerp() {
+		Perspective from = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		Perspective to = new Perspective(new double[] { 10, 0, 0 }, new double[] { 0, 1, 0 },
+				new double[] { -1, 0, 0 });
+		Perspective test = new Perspective();
+
+		test.slerp(from, to, 0);
+		assertEquals(from, test);
+		test.slerp(from, to, 1);
+		assertEquals(to, test);
+
+		test.slerp(from, to, 0.5);
+		assertEquals(new Vector3D(Math.sqrt(0.5), Math.sqrt(0.5), 0), test.getDir());
+		assertEquals(new Vector3D(-Math.sqrt(0.5), Math.sqrt(0.5), 0), test.getTilt());
+		assertEquals(new Position3D(5, 0, 0), test.getPos());
+	}
+
+	@Test
+	void testCloneIsIndependent() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(5);
+		Perspective test = pov.clone();
+		pov.rotateDir(Math.PI / 2, new Vector3D(0, 0, 1));
+
+		assertEquals(1.0, test.getBasis()[0][0]);
+		assertEquals(new Vector3D(1, 0, 0), test.getDir());
+		assertEquals(5, test.getZoom());
+	}
+
+	@Test
+	void testGetRealPointParallel() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(5);
+		Plane plane = new Plane(new Vector3D(1, 0, 0), new Vector3D(0, 1, 0), new Position3D(0, 0, 3));
+
+		assertNull(pov.getRealPoint(new Position2D(0, 0), plane));
+		assertNotNull(pov.getRealPoint(new Position2D(0, 4), plane));
+	}
 }
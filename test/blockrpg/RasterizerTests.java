@@ -0,0 +1,147 @@
+package blockrpg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class RasterizerTests {
+
+	private static int count(Rasterizer rasterizer, int rgb) {
+		int num = 0;
+		for (int pixel : rasterizer.getPixels()) {
+			if ((pixel & 0xFFFFFF) == (rgb & 0xFFFFFF)) {
+				num++;
+			}
+		}
+		return num;
+	}
+
+	@Test
+	void testClear() {
+		Rasterizer test = new Rasterizer(8, 4);
+		test.clear(0x123456);
+
+		assertEquals(32, count(test, 0x123456));
+		assertEquals(0x123456, test.getImage().getRGB(7, 3) & 0xFFFFFF);
+	}
+
+	@Test
+	void testFillSquare() {
+		Rasterizer test = new Rasterizer(20, 20);
+		test.fillPolygon(new double[] { 2, 12, 12, 2 }, new double[] { 3, 3, 13, 13 }, 
+				new float[] { 1, 1, 1, 1 }, 4, 0xFF0000, 0, 0, 20, 20);
+
+		assertEquals(100, count(test, 0xFF0000));
+		assertEquals(0xFF0000, test.getImage().getRGB(2, 3) & 0xFFFFFF);
+		assertEquals(0, test.getImage().getRGB(12, 13) & 0xFFFFFF);
+	}
+
+	@Test
+	void testSharedEdgeFilledOnce() {
+		Rasterizer test = new Rasterizer(20, 20);
+		test.fillPolygon(new double[] { 0, 10, 0 }, new double[] { 0, 0, 10 }, 
+				new float[] { 1, 1, 1 }, 3, 0xFF0000, 0, 0, 20, 20);
+		int first = count(test, 0xFF0000);
+		test.fillPolygon(new double[] { 10, 10, 0 }, new double[] { 0, 10, 10 }, 
+				new float[] { 1, 1, 1 }, 3, 0x00FF00, 0, 0, 20, 20);
+
+		assertEquals(100, count(test, 0xFF0000) + count(test, 0x00FF00));
+		assertEquals(first, count(test, 0xFF0000));
+	}
+
+	@Test
+	void testClipRectangle() {
+		Rasterizer test = new Rasterizer(20, 20);
+		test.fillPolygon(new double[] { -5, 25, 25, -5 }, new double[] { -5, -5, 25, 25 }, 
+				new float[] { 1, 1, 1, 1 }, 4, 0xFF0000, 5, 5, 10, 8);
+
+		assertEquals(15, count(test, 0xFF0000));
+	}
+
+	@Test
+	void testFillFace() {
+		Position2D[] points = { new Position2D(-4, -4), new Position2D(-4, 4), new Position2D(4, 4),
+				new Position2D(4, -4) };
+		Plane plane = new Plane(new Vector3D(0, 0, 1), new Vector3D(0, 1, 0), new Position3D(10, 0, 0));
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		Face face = new Face(points, points.length, plane, pov, java.awt.Color.RED);
+
+		Rasterizer test = new Rasterizer((int) (2 * Face.xOffset) + 200, (int) (2 * Face.yOffset) + 200);
+		test.fillFace(face);
+
+		assertTrue(count(test, 0xFF0000) > 0);
+	}
+
+	@Test
+	void testNearerPolygonWins() {
+		Rasterizer test = new Rasterizer(20, 20);
+		test.clear(0);
+		test.fillPolygon(new double[] { 0, 10, 10, 0 }, new double[] { 0, 0, 10, 10 }, new float[] { 2, 2, 2, 2 },
+				4, 0xFF0000, 0, 0, 20, 20);
+		test.fillPolygon(new double[] { 5, 15, 15, 5 }, new double[] { 0, 0, 10, 10 }, new float[] { 1, 1, 1, 1 },
+				4, 0x00FF00, 0, 0, 20, 20);
+
+		assertEquals(100, count(test, 0xFF0000));
+		assertEquals(50, count(test, 0x00FF00));
+		assertEquals(2f, test.getDepth()[3 * 20 + 7]);
+
+		test.clear(0);
+		assertEquals(0f, test.getDepth()[3 * 20 + 7]);
+	}
+
+	@Test
+	void testIdsOfNearestPolygon() {
+		Rasterizer test = new Rasterizer(20, 20);
+		test.clear(0);
+		test.fillPolygon(new ScreenPolygon(new double[] { 0, 10, 10, 0 }, new double[] { 0, 0, 10, 10 },
+				new float[] { 2, 2, 2, 2 }, 4, 0xFF0000), 3, 0, 0, 20, 20);
+		test.fillPolygon(new ScreenPolygon(new double[] { 5, 15, 15, 5 }, new double[] { 0, 0, 10, 10 },
+				new float[] { 1, 1, 1, 1 }, 4, 0x00FF00), 7, 0, 0, 20, 20);
+
+		assertEquals(3, test.getId(7, 3));
+		assertEquals(7, test.getId(12, 3));
+		assertEquals(-1, test.getId(12, 15));
+		assertEquals(-1, test.getId(-1, 3));
+		assertEquals(-1, test.getId(20, 3));
+
+		test.clear(0, 0, 0, 10, 10);
+		assertEquals(-1, test.getId(7, 3));
+		assertEquals(7, test.getId(12, 3));
+	}
+
+	@Test
+	void testSwapIdsKeepsFinishedFrame() {
+		Rasterizer test = new Rasterizer(20, 20);
+		test.clear(0);
+		test.fillPolygon(new ScreenPolygon(new double[] { 0, 10, 10, 0 }, new double[] { 0, 0, 10, 10 },
+				new float[] { 2, 2, 2, 2 }, 4, 0xFF0000), 3, 0, 0, 20, 20);
+
+		int[] spare = new int[400];
+		int[] filled = test.swapIds(spare);
+		test.clear(0);
+		assertEquals(3, filled[3 * 20 + 7]);
+		assertEquals(-1, test.getId(7, 3));
+		assertSame(spare, test.swapIds(filled));
+		assertEquals(3, test.getId(7, 3));
+		assertThrows(IllegalArgumentException.class, () -> test.swapIds(new int[10]));
+	}
+
+	@Test
+	void testDepthInterpolatedAcrossSpan() {
+		Rasterizer test = new Rasterizer(20, 1);
+		test.clear(0);
+		test.fillPolygon(new double[] { 0, 20, 20, 0 }, new double[] { 0, 0, 1, 1 }, new float[] { 1, 3, 3, 1 }, 4,
+				0xFF0000, 0, 0, 20, 1);
+		test.fillPolygon(new double[] { 0, 20, 20, 0 }, new double[] { 0, 0, 1, 1 }, new float[] { 3, 1, 1, 3 }, 4,
+				0x00FF00, 0, 0, 20, 1);
+
+		// Two surfaces crossing half way along the span
+		assertEquals(10, count(test, 0xFF0000));
+		assertEquals(10, count(test, 0x00FF00));
+		assertEquals(0x00FF00, test.getPixels()[0] & 0xFFFFFF);
+		assertEquals(0xFF0000, test.getPixels()[19] & 0xFFFFFF);
+		assertEquals(2.95f, test.getDepth()[0], 0.0001f);
+	}
+}
@@ -0,0 +1,112 @@
+package blockrpg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RenderSnapshotTests {
+
+	private static Face createFace(double x, Perspective pov, Color col) {
+		Position2D[] points = { new Position2D(-4, -4), new Position2D(-4, 4), new Position2D(4, 4),
+				new Position2D(4, -4) };
+		Plane plane = new Plane(new Vector3D(0, 0, 1), new Vector3D(0, 1, 0), new Position3D(x, 0, 0));
+		return new Face(points, points.length, plane, pov, col);
+	}
+
+	@Test
+	void testCaptureKeepsOrder() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = new ArrayList<Face>();
+		faces.add(createFace(20, pov, Color.RED));
+		faces.add(createFace(10, pov, Color.BLUE));
+
+		RenderSnapshot test = RenderSnapshot.capture(faces);
+
+		assertEquals(2, test.size());
+		assertEquals(Color.RED.getRGB(), test.getPolys()[0].getRGB());
+		assertEquals(Color.BLUE.getRGB(), test.getPolys()[1].getRGB());
+	}
+
+	@Test
+	void testCaptureSkipsHiddenFaces() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = new ArrayList<Face>();
+		faces.add(createFace(10, pov, Color.RED));
+		faces.add(createFace(20, pov, Color.BLUE));
+		faces.get(0).setVisible(false);
+
+		RenderSnapshot test = RenderSnapshot.capture(faces);
+
+		assertEquals(1, test.size());
+		assertEquals(Color.BLUE.getRGB(), test.getPolys()[0].getRGB());
+	}
+
+	@Test
+	void testCaptureUnaffectedByLaterMoves() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = new ArrayList<Face>();
+		faces.add(createFace(10, pov, Color.RED));
+
+		RenderSnapshot test = RenderSnapshot.capture(faces);
+		double[] xs = test.getPolys()[0].getXs().clone();
+		float[] invZ = test.getPolys()[0].getInvZ().clone();
+
+		faces.get(0).addY(5);
+		faces.get(0).addX(10);
+
+		assertArrayEquals(xs, test.getPolys()[0].getXs());
+		assertArrayEquals(invZ, test.getPolys()[0].getInvZ());
+		assertNotEquals(xs[0], new ScreenPolygon(faces.get(0)).getXs()[0]);
+	}
+
+	@Test
+	void testInterpolate() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = new ArrayList<Face>();
+		faces.add(createFace(10, pov, Color.RED));
+
+		RenderSnapshot prev = RenderSnapshot.capture(faces);
+		faces.get(0).addY(2);
+		RenderSnapshot curr = RenderSnapshot.capture(faces);
+
+		RenderSnapshot test = RenderSnapshot.interpolate(prev, curr, 0.25);
+		for (int i = 0; i < 4; i++) {
+			double from = prev.getPolys()[0].getXs()[i];
+			double to = curr.getPolys()[0].getXs()[i];
+			assertEquals(from + 0.25 * (to - from), test.getPolys()[0].getXs()[i], Coord3D.ERROR);
+		}
+		assertSame(curr, RenderSnapshot.interpolate(prev, curr, 1));
+		assertSame(curr, RenderSnapshot.interpolate(null, curr, 0.5));
+		// A scene that did not change keeps being the same frame
+		assertSame(curr, RenderSnapshot.interpolate(curr, curr, 0.5));
+	}
+
+	@Test
+	void testInterpolateNewFace() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = new ArrayList<Face>();
+		faces.add(createFace(10, pov, Color.RED));
+
+		RenderSnapshot prev = RenderSnapshot.capture(faces);
+		faces.add(0, createFace(20, pov, Color.BLUE));
+		RenderSnapshot curr = RenderSnapshot.capture(faces);
+
+		RenderSnapshot test = RenderSnapshot.interpolate(prev, curr, 0.5);
+		assertSame(curr.getPolys()[0], test.getPolys()[0]);
+		assertArrayEquals(curr.getPolys()[1].getXs(), test.getPolys()[1].getXs());
+	}
+}
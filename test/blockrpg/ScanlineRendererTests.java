@@ -0,0 +1,125 @@
+package blockrpg;
+
+import static blockrpg.TestFixtures.quad;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ScanlineRendererTests {
+
+	@Test
+	void testEmptyIsBackground() {
+		Rasterizer target = new Rasterizer(16, 8);
+		target.clear(0x00FF00);
+		new ScanlineRenderer(target).render(new ScreenPolygon[0], 0x123456);
+
+		for (int pixel : target.getPixels()) {
+			assertEquals(0x123456, pixel);
+		}
+	}
+
+	@Test
+	void testNearestWinsInAnyOrder() {
+		ScreenPolygon near = quad(2, 2, 12, 12, 0.5f, 0xFF0000);
+		ScreenPolygon far = quad(6, 6, 18, 18, 0.25f, 0x0000FF);
+
+		Rasterizer first = new Rasterizer(20, 20);
+		new ScanlineRenderer(first).render(new ScreenPolygon[] { near, far }, 0);
+		Rasterizer second = new Rasterizer(20, 20);
+		new ScanlineRenderer(second).render(new ScreenPolygon[] { far, near }, 0);
+
+		assertArrayEquals(first.getPixels(), second.getPixels());
+		assertEquals(0xFF0000, first.getPixels()[8 * 20 + 8]);
+		assertEquals(0x0000FF, first.getPixels()[14 * 20 + 14]);
+		assertEquals(0, first.getPixels()[0]);
+		assertEquals(0.5f, first.getDepth()[8 * 20 + 8], 0.000001f);
+	}
+
+	@Test
+	void testMatchesRasterizer() {
+		Random rand = new Random(7);
+		ScreenPolygon[] polys = new ScreenPolygon[30];
+		for (int i = 0; i < polys.length; i++) {
+			double[] xs = new double[3];
+			double[] ys = new double[3];
+			for (int j = 0; j < 3; j++) {
+				xs[j] = rand.nextDouble() * 80 - 10;
+				ys[j] = rand.nextDouble() * 60 - 10;
+			}
+			// Flat and at distinct depths, so the nearest face never ties
+			float z = (i + 1) / 64f;
+			polys[i] = new ScreenPolygon(xs, ys, new float[] { z, z, z }, 3, 0x010101 * (i + 1));
+		}
+
+		Rasterizer expected = new Rasterizer(64, 48);
+		expected.clear(0x000000);
+		for (int i = 0; i < polys.length; i++) {
+			expected.fillPolygon(polys[i], i, 0, 0, 64, 48);
+		}
+
+		Rasterizer actual = new Rasterizer(64, 48);
+		ScanlineRenderer test = new ScanlineRenderer(actual);
+		test.render(polys, 0x000000);
+
+		assertArrayEquals(expected.getPixels(), actual.getPixels());
+		assertArrayEquals(expected.getIds(), actual.getIds());
+		assertTrue(test.getSpans() > 0);
+	}
+
+	@Test
+	void testIntersectingFaces() {
+		// Left face comes nearer to the right, right face goes farther, so they swap
+		// in the middle of the scanline
+		ScreenPolygon rising = new ScreenPolygon(new double[] { 0, 20, 20, 0 }, new double[] { 0, 0, 4, 4 },
+				new float[] { 0.1f, 0.9f, 0.9f, 0.1f }, 4, 0xFF0000);
+		ScreenPolygon falling = new ScreenPolygon(new double[] { 0, 20, 20, 0 }, new double[] { 0, 0, 4, 4 },
+				new float[] { 0.9f, 0.1f, 0.1f, 0.9f }, 4, 0x00FF00);
+
+		Rasterizer target = new Rasterizer(20, 4);
+		ScanlineRenderer test = new ScanlineRenderer(target);
+		test.render(new ScreenPolygon[] { rising, falling }, 0);
+
+		for (int y = 0; y < 4; y++) {
+			for (int x = 0; x < 20; x++) {
+				assertEquals(x < 10 ? 0x00FF00 : 0xFF0000, target.getPixels()[y * 20 + x]);
+			}
+		}
+		assertEquals(8, test.getSpans());
+	}
+
+	@Test
+	void testThirdFaceNearestInMiddle() {
+		// Falling and rising faces cross behind a flat one, which is only nearest in
+		// the middle of the scanline
+		ScreenPolygon falling = new ScreenPolygon(new double[] { 0, 20, 20, 0 }, new double[] { 0, 0, 4, 4 },
+				new float[] { 0.9f, 0.1f, 0.1f, 0.9f }, 4, 0xFF0000);
+		ScreenPolygon rising = new ScreenPolygon(new double[] { 0, 20, 20, 0 }, new double[] { 0, 0, 4, 4 },
+				new float[] { 0.1f, 0.9f, 0.9f, 0.1f }, 4, 0x00FF00);
+		ScreenPolygon flat = quad(0, 0, 20, 4, 0.62f, 0x0000FF);
+
+		Rasterizer target = new Rasterizer(20, 4);
+		new ScanlineRenderer(target).render(new ScreenPolygon[] { falling, rising, flat }, 0);
+
+		for (int y = 0; y < 4; y++) {
+			for (int x = 0; x < 20; x++) {
+				int expected = x < 7 ? 0xFF0000 : x < 13 ? 0x0000FF : 0x00FF00;
+				assertEquals(expected, target.getPixels()[y * 20 + x], "pixel " + x);
+			}
+		}
+	}
+
+	@Test
+	void testEdgeOnSkipped() {
+		ScreenPolygon line = new ScreenPolygon(new double[] { 1, 10, 5 }, new double[] { 1, 10, 5 },
+				new float[] { 1, 1, 1 }, 3, 0xFF0000);
+
+		Rasterizer target = new Rasterizer(12, 12);
+		new ScanlineRenderer(target).render(new ScreenPolygon[] { line }, 0);
+
+		for (int pixel : target.getPixels()) {
+			assertEquals(0, pixel);
+		}
+	}
+}
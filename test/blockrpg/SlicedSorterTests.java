@@ -0,0 +1,106 @@
+package blockrpg;
+
+import static blockrpg.TestFixtures.createWall;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SlicedSorterTests {
+
+	private static List<Face> createRow(int num) {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		List<Face> faces = new ArrayList<Face>();
+		for (int i = 0; i < num; i++) {
+			faces.add(createWall(20 + i, (i % 3) * 0.5, 0, 2, pov));
+		}
+		return faces;
+	}
+
+	private static boolean isBackToFront(List<Face> faces) {
+		for (int i = 1; i < faces.size(); i++) {
+			if (faces.get(i - 1).getPlane().getPos().getX() <= faces.get(i).getPlane().getPos().getX()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Test
+	void testConvergesWithinBudget() {
+		List<Face> faces = createRow(40);
+		Collections.shuffle(faces, new Random(2));
+		SlicedSorter test = new SlicedSorter(10, 0);
+
+		List<Face> order = test.order(faces);
+		assertEquals(40, order.size());
+		assertTrue(test.isRefining());
+		assertFalse(isBackToFront(order));
+
+		int calls = 1;
+		long last = test.getComparisons();
+		while (test.isRefining()) {
+			order = test.order(faces);
+			assertTrue(test.getComparisons() - last <= 10);
+			last = test.getComparisons();
+			calls++;
+		}
+
+		assertTrue(calls > 1);
+		assertTrue(isBackToFront(order));
+		assertEquals(1, test.getPasses());
+	}
+
+	@Test
+	void testSortedInputIsCheap() {
+		List<Face> faces = createRow(32);
+		Collections.reverse(faces);
+		SlicedSorter test = new SlicedSorter(1000, 0);
+
+		List<Face> order = test.order(faces);
+
+		assertFalse(test.isRefining());
+		assertTrue(isBackToFront(order));
+		assertEquals(31, test.getComparisons());
+	}
+
+	@Test
+	void testMovedFaceStartsNewPass() {
+		List<Face> faces = createRow(20);
+		SlicedSorter test = new SlicedSorter(1000, 0);
+		test.order(faces);
+		test.order(faces);
+		assertEquals(1, test.getPasses());
+
+		Face moved = faces.get(0);
+		moved.addX(40);
+		List<Face> order = test.order(faces);
+
+		assertEquals(2, test.getPasses());
+		assertSame(moved, order.get(0));
+		assertTrue(isBackToFront(order));
+	}
+
+	@Test
+	void testAddedAndRemovedFaces() {
+		List<Face> faces = createRow(20);
+		SlicedSorter test = new SlicedSorter(1000, 0);
+		test.order(faces);
+
+		Face removed = faces.remove(3);
+		Face added = createWall(50.5, 0, 0, 2, faces.get(0).getPOV());
+		faces.add(added);
+		List<Face> order = test.order(faces);
+
+		assertEquals(20, order.size());
+		assertFalse(order.contains(removed));
+		assertSame(added, order.get(0));
+		assertTrue(isBackToFront(order));
+	}
+}
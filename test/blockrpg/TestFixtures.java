@@ -0,0 +1,70 @@
+package blockrpg;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+/**
+ * Shapes shared by the tests of the renderers, trees and sorters
+ */
+final class TestFixtures {
+
+	private TestFixtures() {
+	}
+
+	/**
+	 * Screen rectangle at a single depth
+	 *
+	 * @param minX Left edge
+	 * @param minY Top edge
+	 * @param maxX Right edge
+	 * @param maxY Bottom edge
+	 * @param z    Inverse distance at every corner
+	 * @param rgb  Colour of rectangle
+	 * @return Returns rectangle as a ScreenPolygon
+	 */
+	static ScreenPolygon quad(double minX, double minY, double maxX, double maxY, float z, int rgb) {
+		return new ScreenPolygon(new double[] { minX, maxX, maxX, minX }, new double[] { minY, minY, maxY, maxY },
+				new float[] { z, z, z, z }, 4, rgb);
+	}
+
+	/**
+	 * Perspective at the origin looking along x with zoom 100
+	 *
+	 * @return Returns new perspective
+	 */
+	static Perspective createPOV() {
+		Perspective pov = new Perspective(new double[] { 0, 0, 0 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(100);
+		return pov;
+	}
+
+	/**
+	 * Square face standing in the y z plane, facing along x
+	 *
+	 * @param x    X of center
+	 * @param y    Y of center
+	 * @param z    Z of center
+	 * @param half Half the length of a side
+	 * @param pov  Perspective face is seen from
+	 * @return Returns wall as a Face
+	 */
+	static Face createWall(double x, double y, double z, double half, Perspective pov) {
+		Position2D[] points = { new Position2D(-half, -half), new Position2D(-half, half),
+				new Position2D(half, half), new Position2D(half, -half) };
+		Plane plane = new Plane(new Vector3D(0, 0, 1), new Vector3D(0, 1, 0), new Position3D(x, y, z));
+		return new Face(points, points.length, plane, pov);
+	}
+
+	/**
+	 * Checks walls facing along x are ordered furthest first
+	 *
+	 * @param faces Walls in draw order
+	 */
+	static void assertBackToFront(List<Face> faces) {
+		for (int i = 1; i < faces.size(); i++) {
+			assertTrue(faces.get(i - 1).getPlane().getPos().getX() > faces.get(i).getPlane().getPos().getX());
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package blockrpg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class TileRasterizerTests {
+
+	@Test
+	void testMatchesSingleThreaded() {
+		int width = 300;
+		int height = 200;
+		ScreenPolygon[] polys = new ScreenPolygon[50];
+		for (int i = 0; i < polys.length; i++) {
+			double x = (i * 37) % width;
+			double y = (i * 53) % height;
+			polys[i] = new ScreenPolygon(new double[] { x - 40, x + 70, x + 10 },
+					new double[] { y - 30, y + 5, y + 90 }, new float[] { 1 + i % 7, 2 + i % 5, 1 + i % 3 }, 3, i * 0x050A0F);
+		}
+
+		Rasterizer expected = new Rasterizer(width, height);
+		expected.clear(0xFFFFFF);
+		for (ScreenPolygon poly : polys) {
+			expected.fillPolygon(poly, 0, 0, width, height);
+		}
+
+		TileRasterizer test = new TileRasterizer(width, height, new ForkJoinPool(4));
+		test.render(polys, 0xFFFFFF);
+
+		assertArrayEquals(expected.getPixels(), test.getRasterizer().getPixels());
+	}
+
+	@Test
+	void testClearsBetweenFrames() {
+		TileRasterizer test = new TileRasterizer(100, 100);
+		test.render(new ScreenPolygon[] { new ScreenPolygon(new double[] { 0, 100, 100, 0 },
+				new double[] { 0, 0, 100, 100 }, new float[] { 1, 1, 1, 1 }, 4, 0xFF0000) }, 0);
+		test.render(new ScreenPolygon[0], 0x00FF00);
+
+		for (int pixel : test.getRasterizer().getPixels()) {
+			assertEquals(0x00FF00, pixel & 0xFFFFFF);
+		}
+		assertEquals(0f, test.getRasterizer().getDepth()[5050]);
+	}
+}
@@ -0,0 +1,68 @@
+package blockrpg;
+
+import static blockrpg.TestFixtures.quad;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class WarnockRendererTests {
+
+	@Test
+	void testEmptyIsBackground() {
+		Rasterizer target = new Rasterizer(40, 30);
+		target.clear(0x00FF00);
+		new WarnockRenderer(target).render(new ScreenPolygon[0], 0x123456);
+
+		for (int pixel : target.getPixels()) {
+			assertEquals(0x123456, pixel);
+		}
+	}
+
+	@Test
+	void testSurroundingFaceHidesRest() {
+		ScreenPolygon behind = quad(10, 10, 30, 20, 0.1f, 0x0000FF);
+		ScreenPolygon cover = quad(-10, -10, 50, 40, 0.5f, 0xFF0000);
+
+		Rasterizer target = new Rasterizer(40, 30);
+		new WarnockRenderer(target).render(new ScreenPolygon[] { cover, behind }, 0);
+
+		for (int pixel : target.getPixels()) {
+			assertEquals(0xFF0000, pixel);
+		}
+		assertEquals(0.5f, target.getDepth()[15 * 40 + 20], 0.000001f);
+	}
+
+	@Test
+	void testMatchesRasterizer() {
+		Random rand = new Random(5);
+		ScreenPolygon[] polys = new ScreenPolygon[40];
+		for (int i = 0; i < polys.length; i++) {
+			double[] xs = new double[3];
+			double[] ys = new double[3];
+			for (int j = 0; j < 3; j++) {
+				xs[j] = rand.nextDouble() * 140 - 10;
+				ys[j] = rand.nextDouble() * 100 - 10;
+			}
+			float z = (i + 1) / 64f;
+			polys[i] = new ScreenPolygon(xs, ys, new float[] { z, z, z }, 3, 0x010101 * (i + 1));
+		}
+		// Covers a corner so some regions are resolved whole
+		polys[39] = quad(-5, -5, 60, 50, 1f, 0xFFFFFF);
+
+		Rasterizer expected = new Rasterizer(120, 80);
+		expected.clear(0x000000);
+		for (int i = 0; i < polys.length; i++) {
+			expected.fillPolygon(polys[i], i, 0, 0, 120, 80);
+		}
+
+		Rasterizer actual = new Rasterizer(120, 80);
+		actual.clear(0x00FF00);
+		new WarnockRenderer(actual).render(polys, 0x000000);
+
+		assertArrayEquals(expected.getPixels(), actual.getPixels());
+		assertArrayEquals(expected.getDepth(), actual.getDepth());
+		assertArrayEquals(expected.getIds(), actual.getIds());
+	}
+}
@@ -0,0 +1,159 @@
+package blockrpg;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+
+import org.junit.jupiter.api.Test;
+
+class WorldTests {
+
+	@Test
+	void testSetAndGetBlock() {
+		World test = new World(
+				new Perspective(new double[] { -8000, 0, 0 }, new double[] { 1, 0, 0 }, new double[] { 0, 1, 0 }));
+		test.setBlock(-1, 17, 3, Color.RED);
+
+		assertTrue(test.isSolid(-1, 17, 3));
+		assertFalse(test.isSolid(0, 17, 3));
+		assertEquals(Chunk.AIR, test.getBlock(100, 100, 100));
+
+		test.removeBlock(-1, 17, 3);
+		assertFalse(test.isSolid(-1, 17, 3));
+		test.shutdown();
+	}
+
+	@Test
+	void testSingleBlockMesh() {
+		World test = new World(
+				new Perspective(new double[] { -8000, 0, 0 }, new double[] { 1, 0, 0 }, new double[] { 0, 1, 0 }));
+		test.setBlock(2, 2, 2, Color.RED);
+		test.flush();
+
+		assertEquals(6, test.getFaces().size());
+		assertFalse(test.getChunk(0, 0, 0).isDirty());
+		test.shutdown();
+	}
+
+	@Test
+	void testHiddenFacesSkipped() {
+		World test = new World(
+				new Perspective(new double[] { -8000, 0, 0 }, new double[] { 1, 0, 0 }, new double[] { 0, 1, 0 }));
+		test.setBlock(2, 2, 2, Color.RED);
+		test.setBlock(3, 2, 2, Color.RED);
+		test.flush();
+
+		assertEquals(10, test.getFaces().size());
+		test.shutdown();
+	}
+
+	@Test
+	void testBorderEditRemeshesNeighbour() {
+		World test = new World(
+				new Perspective(new double[] { -8000, 0, 0 }, new double[] { 1, 0, 0 }, new double[] { 0, 1, 0 }));
+		test.setBlock(Chunk.SIZE - 1, 0, 0, Color.RED);
+		test.setBlock(Chunk.SIZE, 0, 0, Color.BLUE);
+		test.flush();
+
+		// Shared side is hidden in both chunks
+		assertEquals(5, test.getChunk(0, 0, 0).getFaces().size());
+		assertEquals(5, test.getChunk(1, 0, 0).getFaces().size());
+
+		test.removeBlock(Chunk.SIZE, 0, 0);
+		test.flush();
+
+		assertEquals(6, test.getChunk(0, 0, 0).getFaces().size());
+		assertEquals(0, test.getChunk(1, 0, 0).getFaces().size());
+		test.shutdown();
+	}
+
+	@Test
+	void testInnerEditKeepsNeighbourMesh() {
+		World test = new World(
+				new Perspective(new double[] { -8000, 0, 0 }, new double[] { 1, 0, 0 }, new double[] { 0, 1, 0 }));
+		test.setBlock(0, 0, 0, Color.RED);
+		test.setBlock(Chunk.SIZE + 5, 0, 0, Color.BLUE);
+		test.flush();
+
+		Object neighbourMesh = test.getChunk(1, 0, 0).getFaces();
+		long version = test.getVersion();
+		test.setBlock(5, 5, 5, Color.GREEN);
+		test.flush();
+
+		assertSame(neighbourMesh, test.getChunk(1, 0, 0).getFaces());
+		assertEquals(version + 1, test.getVersion());
+		test.shutdown();
+	}
+
+	@Test
+	void testRaycastHitsFirstBlock() {
+		World test = new World(
+				new Perspective(new double[] { -8000, 0, 0 }, new double[] { 1, 0, 0 }, new double[] { 0, 1, 0 }));
+		test.setBlock(3, 0, 0, Color.RED);
+		test.setBlock(5, 0, 0, Color.BLUE);
+
+		RayHit hit = test.raycast(new Position3D(500, 500, 500), new Vector3D(1, 0, 0), 10 * World.BLOCK_SIZE);
+
+		assertNotNull(hit);
+		assertEquals(3, hit.getX());
+		assertEquals(0, hit.getY());
+		assertEquals(0, hit.getZ());
+		assertEquals(Direction.NEG_X, hit.getFace());
+		assertEquals(2500, hit.getDistance(), Coord3D.ERROR);
+		assertEquals(Color.RED.getRGB(), hit.getBlock());
+		test.shutdown();
+	}
+
+	@Test
+	void testRaycastNegativeDiagonal() {
+		World test = new World(
+				new Perspective(new double[] { -8000, 0, 0 }, new double[] { 1, 0, 0 }, new double[] { 0, 1, 0 }));
+		test.setBlock(-3, -3, 0, Color.RED);
+
+		RayHit hit = test.raycast(new Position3D(500, 500, 500), new Vector3D(-1, -1, 0), 10 * World.BLOCK_SIZE);
+
+		assertNotNull(hit);
+		assertEquals(-3, hit.getX());
+		assertEquals(-3, hit.getY());
+		test.shutdown();
+	}
+
+	@Test
+	void testRaycastMaxDistance() {
+		World test = new World(
+				new Perspective(new double[] { -8000, 0, 0 }, new double[] { 1, 0, 0 }, new double[] { 0, 1, 0 }));
+		test.setBlock(0, 0, 20, Color.RED);
+
+		assertNull(test.raycast(new Position3D(500, 500, 500), new Vector3D(0, 0, 1), 10 * World.BLOCK_SIZE));
+		assertEquals(Direction.NEG_Z,
+				test.raycast(new Position3D(500, 500, 500), new Vector3D(0, 0, 1), 30 * World.BLOCK_SIZE).getFace());
+		test.shutdown();
+	}
+
+	@Test
+	void testLineOfSight() {
+		World test = new World(
+				new Perspective(new double[] { -8000, 0, 0 }, new double[] { 1, 0, 0 }, new double[] { 0, 1, 0 }));
+		test.setBlock(2, 0, 0, Color.RED);
+
+		assertFalse(test.hasLineOfSight(new Position3D(500, 500, 500), new Position3D(4500, 500, 500)));
+		assertTrue(test.hasLineOfSight(new Position3D(500, 1500, 500), new Position3D(4500, 1500, 500)));
+		test.shutdown();
+	}
+
+	@Test
+	void testPickCenterOfScreen() {
+		Perspective pov = new Perspective(new double[] { -8000, 500, 500 }, new double[] { 1, 0, 0 },
+				new double[] { 0, 1, 0 });
+		pov.setZoom(3000);
+		World test = new World(pov);
+		test.setBlock(0, 0, 0, Color.RED);
+
+		RayHit hit = test.pick((int) Face.xOffset, (int) Face.yOffset, 20 * World.BLOCK_SIZE);
+
+		assertNotNull(hit);
+		assertEquals(Direction.NEG_X, hit.getFace());
+		assertEquals(8000, hit.getDistance(), Coord3D.ERROR);
+		test.shutdown();
+	}
+}